@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.bench;
+
+import de.longri.serializable.NotImplementedException;
+import de.longri.serializable.Serializable;
+import de.longri.serializable.StoreBase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A large record for {@link StoreBenchmark}: a few hundred {@link WeatherInfo} entries, bulk int and long
+ * arrays and a long text, about 40 KB in a {@link de.longri.serializable.NormalStore}.
+ */
+public class LargeRecord implements Serializable {
+
+    WeatherInfo[] entries;
+    int[] values;
+    long[] timestamps;
+    String text;
+
+    static LargeRecord create(Random random) {
+        LargeRecord record = new LargeRecord();
+        record.entries = new WeatherInfo[500];
+        for (int i = 0; i < record.entries.length; i++) {
+            record.entries[i] = WeatherInfo.create(random);
+        }
+        record.values = new int[2048];
+        for (int i = 0; i < record.values.length; i++) {
+            record.values[i] = random.nextInt(1000);
+        }
+        record.timestamps = new long[512];
+        long time = 1447545600000L;
+        for (int i = 0; i < record.timestamps.length; i++) {
+            time += random.nextInt(60000);
+            record.timestamps[i] = time;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 4096) {
+            sb.append(WeatherInfo.randomString(random, 1 + random.nextInt(12))).append(' ');
+        }
+        record.text = sb.toString();
+        return record;
+    }
+
+    @Override
+    public void serialize(StoreBase writer) throws NotImplementedException {
+        writer.write(entries.length);
+        for (WeatherInfo entry : entries) {
+            entry.serialize(writer);
+        }
+        writer.write(values.length);
+        writer.write(values);
+        writer.write(timestamps.length);
+        writer.write(timestamps);
+        writer.write(text);
+    }
+
+    @Override
+    public void deserialize(StoreBase reader) throws NotImplementedException {
+        entries = new WeatherInfo[reader.readInt()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new WeatherInfo();
+            entries[i].deserialize(reader);
+        }
+        values = new int[reader.readInt()];
+        reader.readInts(values);
+        timestamps = new long[reader.readInt()];
+        reader.readLongs(timestamps);
+        text = reader.readString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LargeRecord)) return false;
+        LargeRecord obj = (LargeRecord) other;
+        return Arrays.equals(entries, obj.entries) && Arrays.equals(values, obj.values)
+                && Arrays.equals(timestamps, obj.timestamps) && text.equals(obj.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+}
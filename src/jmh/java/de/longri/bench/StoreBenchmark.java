@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.bench;
+
+import de.longri.serializable.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of every store with a small and a large record.
+ * <p>
+ * Run with {@code gradle jmh}, the task adds the gc profiler for the allocation rate
+ * ({@code gc.alloc.rate.norm} is bytes per operation). The output size of each store is printed
+ * once per trial, as it doesn't change between iterations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreBenchmark {
+
+    @Param({"NormalStore", "VariableByteStore", "BitStore", "ByteBufferStore",
+            "ZippedNormalStore", "ZippedVariableByteStore", "ZippedBitStore", "BitStoreZippedString"})
+    public String store;
+
+    @Param({"small", "large"})
+    public String record;
+
+    private Serializable value;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws NotImplementedException {
+        value = "small".equals(record) ? WeatherInfo.create(new Random(42)) : LargeRecord.create(new Random(42));
+        encoded = encode();
+        if (!value.equals(decode())) {
+            throw new IllegalStateException(store + " doesn't read the " + record + " record back");
+        }
+        System.out.println();
+        System.out.println("Output size " + store + " / " + record + ": " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() throws NotImplementedException {
+        StoreBase writer = createWriter();
+        value.serialize(writer);
+        return writer.getArray();
+    }
+
+    @Benchmark
+    public Serializable decode() throws NotImplementedException {
+        Serializable result = "small".equals(record) ? new WeatherInfo() : new LargeRecord();
+        result.deserialize(createReader(encoded));
+        return result;
+    }
+
+    private StoreBase createWriter() {
+        switch (store) {
+            case "NormalStore":
+                return new NormalStore();
+            case "VariableByteStore":
+                return new VariableByteStore();
+            case "BitStore":
+                return new BitStore();
+            case "ByteBufferStore":
+                return new ByteBufferStore();
+            case "ZippedNormalStore":
+                return new ZippedNormalStore();
+            case "ZippedVariableByteStore":
+                return new ZippedVariableByteStore();
+            case "ZippedBitStore":
+                return new ZippedBitStore();
+            case "BitStoreZippedString":
+                return new BitStoreZippedString();
+            default:
+                throw new IllegalArgumentException("Unknown store: " + store);
+        }
+    }
+
+    private StoreBase createReader(byte[] bytes) throws NotImplementedException {
+        switch (store) {
+            case "NormalStore":
+                return new NormalStore(bytes);
+            case "VariableByteStore":
+                return new VariableByteStore(bytes);
+            case "BitStore":
+                return new BitStore(bytes);
+            case "ByteBufferStore":
+                return new ByteBufferStore(bytes);
+            case "ZippedNormalStore":
+                return new ZippedNormalStore(bytes);
+            case "ZippedVariableByteStore":
+                return new ZippedVariableByteStore(bytes);
+            case "ZippedBitStore":
+                return new ZippedBitStore(bytes);
+            case "BitStoreZippedString":
+                return new BitStoreZippedString(bytes);
+            default:
+                throw new IllegalArgumentException("Unknown store: " + store);
+        }
+    }
+}
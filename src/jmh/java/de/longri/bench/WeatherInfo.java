@@ -23,6 +23,7 @@ import de.longri.serializable.Serializable;
 import de.longri.serializable.StoreBase;
 
 import java.util.Date;
+import java.util.Random;
 
 
 /**
@@ -36,6 +37,24 @@ public class WeatherInfo implements Serializable {
     Date date;
     String string;
 
+    static WeatherInfo create(Random random) {
+        WeatherInfo wi = new WeatherInfo();
+        wi.temp = random.nextInt();
+        wi.IconId = random.nextInt();
+        wi.testInt = random.nextInt();
+        wi.date = new Date(1447545600000L + random.nextInt());
+        wi.string = randomString(random, 32);
+        return wi;
+    }
+
+    static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int c = random.nextInt(62);
+            chars[i] = (char) (c < 10 ? '0' + c : c < 36 ? 'a' + c - 10 : 'A' + c - 36);
+        }
+        return new String(chars);
+    }
 
     @Override
     public void serialize(StoreBase writer) throws NotImplementedException {
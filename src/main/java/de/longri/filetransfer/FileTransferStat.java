@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+/**
+ * Type, size and modification time of a remote file, captured with one server round trip.
+ * <p/>
+ * Remote handles of a directory listing carry the stat of the listing entry, so {@link FileTransferHandle#exists()},
+ * {@link FileTransferHandle#isDirectory()} and {@link FileTransferHandle#lastModified()} of listed children
+ * don't ask the server again.
+ */
+public final class FileTransferStat {
+
+    /**
+     * Stat of a file which doesn't exist.
+     */
+    public static final FileTransferStat MISSING = new FileTransferStat(false, false, 0, 0);
+
+    private final boolean exists;
+    private final boolean directory;
+    private final long length;
+    private final long lastModified;
+
+    private FileTransferStat(boolean exists, boolean directory, long length, long lastModified) {
+        this.exists = exists;
+        this.directory = directory;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param length       the size in bytes
+     * @param lastModified the last modified time in milliseconds
+     */
+    public static FileTransferStat file(long length, long lastModified) {
+        return new FileTransferStat(true, false, length, lastModified);
+    }
+
+    /**
+     * @param lastModified the last modified time in milliseconds
+     */
+    public static FileTransferStat directory(long lastModified) {
+        return new FileTransferStat(true, true, 0, lastModified);
+    }
+
+    public boolean exists() {
+        return exists;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the size in bytes, zero for directories and missing files.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the last modified time in milliseconds, zero for missing files.
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        if (!exists) return "[missing]";
+        return "[" + (directory ? "dir" : "file " + length + " bytes") + " modified:" + lastModified + "]";
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Walks the tree below a {@link FileTransferHandle} breadth first and streams the entries to a consumer.
+ * <p/>
+ * Directories are listed by up to {@link #setParallelism(int)} threads at once, in the order they are found, so
+ * the walk of a remote tree is limited by the bandwidth and not by the round trip time of every {@code list()}.
+ * The consumer and the filters are called on the thread of {@link #walk(Consumer)} one after the other, a
+ * consumer which needs no more entries stops the walk with {@link #cancel()}.
+ * <p/>
+ * A directory which can't be listed is logged and skipped, an {@link Error} of a listing ends the walk and is thrown
+ * by {@link #walk(Consumer)}.
+ */
+public final class FileTransferWalker {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTransferWalker.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    // marks the end of a cancelled walk in the result queue
+    private static final Object CANCEL = new Object();
+
+    /**
+     * The children of a listed directory, or the error of the listing.
+     */
+    private static final class Listing {
+        final FileTransferHandle directory;
+        final int depth;
+        final FileTransferHandle[] children;
+        final boolean[] isDirectory;
+        final Throwable error;
+
+        Listing(FileTransferHandle directory, int depth, FileTransferHandle[] children, boolean[] isDirectory,
+                Throwable error) {
+            this.directory = directory;
+            this.depth = depth;
+            this.children = children;
+            this.isDirectory = isDirectory;
+            this.error = error;
+        }
+    }
+
+    private final FileTransferHandle root;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxDepth = Integer.MAX_VALUE;
+    private FileTransferHandleFilter filter;
+    private FileTransferHandleFilter directoryFilter;
+    private volatile boolean cancelled;
+    private volatile BlockingQueue<Object> results;
+    private volatile int failedDirectories;
+
+    public FileTransferWalker(FileTransferHandle root) {
+        this.root = root;
+    }
+
+    /**
+     * Number of directories listed at the same time.
+     */
+    public FileTransferWalker setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Depth of the deepest entries, the children of the root have the depth 1.
+     */
+    public FileTransferWalker setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Only entries accepted by the filter are given to the consumer, directories are walked anyway.
+     */
+    public FileTransferWalker setFilter(FileTransferHandleFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Only directories accepted by the filter are walked into.
+     */
+    public FileTransferWalker setDirectoryFilter(FileTransferHandleFilter directoryFilter) {
+        this.directoryFilter = directoryFilter;
+        return this;
+    }
+
+    /**
+     * Stops the running walk, directories which are listed at the moment are not reported anymore.
+     * A cancelled walker doesn't walk again.
+     */
+    public void cancel() {
+        cancelled = true;
+        BlockingQueue<Object> queue = results;
+        if (queue != null) queue.offer(CANCEL);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of directories of the last walk which couldn't be listed.
+     */
+    public int getFailedDirectories() {
+        return failedDirectories;
+    }
+
+    /**
+     * Walks the tree and gives every accepted entry to the consumer, returns when the tree is walked or the walk
+     * is cancelled.
+     *
+     * @return the number of entries given to the consumer
+     */
+    public long walk(Consumer<? super FileTransferHandle> consumer) throws InterruptedException {
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        results = queue;
+        failedDirectories = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "FileTransferWalker-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long count = 0;
+        try {
+            if (cancelled || maxDepth < 1) return 0;
+            int pending = 1;
+            submit(executor, queue, root, 0);
+            while (pending > 0 && !cancelled) {
+                Object result = queue.take();
+                if (result == CANCEL) break;
+                pending--;
+                Listing listing = (Listing) result;
+                if (listing.error instanceof Error) throw (Error) listing.error;
+                if (listing.error != null) {
+                    failedDirectories++;
+                    log.warn("can't list {}", listing.directory, listing.error);
+                    continue;
+                }
+                int depth = listing.depth + 1;
+                for (int i = 0; i < listing.children.length && !cancelled; i++) {
+                    FileTransferHandle child = listing.children[i];
+                    if (filter == null || filter.accept(child)) {
+                        consumer.accept(child);
+                        count++;
+                    }
+                    if (listing.isDirectory[i] && depth < maxDepth && !cancelled
+                            && (directoryFilter == null || directoryFilter.accept(child))) {
+                        pending++;
+                        submit(executor, queue, child, depth);
+                    }
+                }
+            }
+            return count;
+        } finally {
+            results = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private void submit(ExecutorService executor, BlockingQueue<Object> queue, FileTransferHandle directory,
+                        int depth) {
+        executor.execute(() -> {
+            if (cancelled) return;
+            // every submitted directory is answered, walk() waits for it
+            Listing listing;
+            try {
+                FileTransferHandle[] children = directory.list();
+                if (children == null) children = new FileTransferHandle[0];
+                // listed remote children carry their stat, so this is no round trip
+                boolean[] isDirectory = new boolean[children.length];
+                for (int i = 0; i < children.length; i++) isDirectory[i] = children[i].isDirectory();
+                listing = new Listing(directory, depth, children, isDirectory, null);
+            } catch (Throwable e) {
+                listing = new Listing(directory, depth, null, null, e);
+            }
+            queue.offer(listing);
+        });
+    }
+}
@@ -19,25 +19,44 @@
 package de.longri.filetransfer;
 
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * FTP connection backed by a {@link Ftp_ConnectionPool}, so independent files of this connection transfer in
+ * parallel on several logged in clients instead of queueing behind one client.
+ */
 public class Ftp_Connection implements Connection {
 
-    Logger log = LoggerFactory.getLogger(Ftp_Connection.class);
-
+    /**
+     * An operation on a pooled client.
+     */
+    @FunctionalInterface
+    public interface FtpAction<R> {
+        R run(FTPClient client) throws IOException;
+    }
 
-    FTPClient ftpClient = new FTPClient();
     private String rootPath;
 
     final private Credentials CRED;
 
+    private Ftp_ConnectionPool pool;
+    private int maxClients = Ftp_ConnectionPool.DEFAULT_MAX_CLIENTS;
+    private final MetadataCache metadataCache = new MetadataCache();
+    // null until the first MLST, false if the server doesn't know MLST
+    private volatile Boolean mlst;
+
     public Ftp_Connection(Credentials credentials) {
         this.CRED = credentials;
     }
@@ -60,43 +79,40 @@ public class Ftp_Connection implements Connection {
 
     private final AtomicInteger connectionCount = new AtomicInteger(0);
 
+    /**
+     * Sets the maximum number of parallel clients, takes effect with the next pool of this connection.
+     */
+    public Ftp_Connection setPoolSize(int maxClients) {
+        this.maxClients = maxClients;
+        return this;
+    }
+
+    /**
+     * Returns the pool of this connection, it is created with the first use.
+     */
+    public Ftp_ConnectionPool getPool() {
+        synchronized (connectionCount) {
+            if (pool == null) pool = createPool(maxClients);
+            return pool;
+        }
+    }
+
+    Ftp_ConnectionPool createPool(int maxClients) {
+        return new Ftp_ConnectionPool(CRED, maxClients);
+    }
+
     /**
      * connect
+     * <p/>
+     * Keeps the pool of this connection open until the matching {@link #disconnect()}.
+     * Without connect the pooled clients are closed after the idle timeout.
      */
     @Override
     public void connect() {
         synchronized (connectionCount) {
-            if (connectionCount.get() > 0) {
-                connectionCount.incrementAndGet();
-                return;
-            }
             connectionCount.incrementAndGet();
-            try {
-                ftpClient.connect(CRED.ADDRESS, Integer.parseInt(CRED.PORT));
-            } catch (IOException e) {
-                log.error("Can't connect ftp: " + this, e);
-            }
-            showServerReply(ftpClient);
-
-            int replyCode = ftpClient.getReplyCode();
-            if (!FTPReply.isPositiveCompletion(replyCode)) {
-                log.debug("Failed to connect: " + this);
-                return;
-            }
-
-            boolean success = false;
-            try {
-                success = ftpClient.login(CRED.USER, CRED.getPassword());
-            } catch (IOException e) {
-                log.error("Can't log in ftp: " + this, e);
-            }
-            showServerReply(ftpClient);
-
-            if (!success) {
-                log.error("Connection was not success ftp: " + this);
-            }
+            getPool();
         }
-
     }
 
     /**
@@ -106,19 +122,138 @@ public class Ftp_Connection implements Connection {
     public void disconnect() {
         synchronized (connectionCount) {
             if (connectionCount.decrementAndGet() <= 0) {
+                connectionCount.set(0);
                 // logs out and disconnects from server
+                if (pool != null) {
+                    pool.close();
+                    pool = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cache of the stats and listings of the handles of this connection.
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Runs the action on a pooled client. A client which lost its connection is dropped from the pool.
+     */
+    public <R> R execute(FtpAction<R> action) throws IOException {
+        Ftp_ConnectionPool pool = getPool();
+        FTPClient client = borrow(pool);
+        boolean broken = true;
+        try {
+            R result = action.run(client);
+            showServerReply(client);
+            broken = false;
+            return result;
+        } catch (IOException e) {
+            broken = isConnectionLost(e, client);
+            throw e;
+        } finally {
+            if (broken) {
+                pool.invalidate(client);
+            } else {
+                pool.release(client);
+            }
+        }
+    }
+
+    /**
+     * Opens the file for reading, the client stays borrowed until the stream is closed.
+     * Closing the stream completes the transfer. The control connection gets no keep-alive NOOPs while the
+     * stream is open.
+     */
+    public InputStream read(String path) throws IOException {
+        Ftp_ConnectionPool pool = getPool();
+        FTPClient client = borrow(pool);
+        InputStream stream;
+        try {
+            stream = client.retrieveFileStream(path);
+            showServerReply(client);
+        } catch (IOException e) {
+            if (isConnectionLost(e, client)) {
+                pool.invalidate(client);
+            } else {
+                pool.release(client);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            pool.invalidate(client);
+            throw e;
+        }
+        if (stream == null) {
+            String reply = client.getReplyString();
+            pool.release(client);
+            throw new FileNotFoundException("can't read " + path + ": " + reply);
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilterInputStream(stream) {
+            @Override
+            public void close() throws IOException {
+                if (!released.compareAndSet(false, true)) return;
+                boolean completed = false;
                 try {
-                    if (ftpClient.isConnected()) {
-                        ftpClient.logout();
-                        ftpClient.disconnect();
+                    super.close();
+                    completed = client.completePendingCommand();
+                    showServerReply(client);
+                } finally {
+                    // an aborted transfer leaves the control connection in an unknown state
+                    if (completed) {
+                        pool.release(client);
+                    } else {
+                        pool.invalidate(client);
                     }
-                } catch (IOException e) {
-                    log.error("Can't disconnect ftp: " + this, e);
                 }
             }
+        };
+    }
+
+    /**
+     * Returns the entry of the path with one MLST round trip, or from a listing of the parent directory if the
+     * server doesn't support MLST. Returns null if the path doesn't exist.
+     */
+    public FTPFile stat(String path) throws IOException {
+        return execute(client -> {
+            if (mlst != Boolean.FALSE) {
+                FTPFile file = client.mlistFile(path);
+                if (file != null) {
+                    mlst = Boolean.TRUE;
+                    return file;
+                }
+                int reply = client.getReplyCode();
+                if (reply != FTPReply.UNRECOGNIZED_COMMAND && reply != FTPReply.COMMAND_NOT_IMPLEMENTED) {
+                    return null;
+                }
+                mlst = Boolean.FALSE;
+            }
+            int index = path.lastIndexOf('/');
+            String parent = index < 0 ? "" : index == 0 ? "/" : path.substring(0, index);
+            String name = path.substring(index + 1);
+            for (FTPFile file : client.listFiles(parent)) {
+                if (name.equals(file.getName())) return file;
+            }
+            return null;
+        });
+    }
+
+    private static FTPClient borrow(Ftp_ConnectionPool pool) throws IOException {
+        try {
+            return pool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a FTP client");
         }
     }
 
+    private static boolean isConnectionLost(IOException e, FTPClient client) {
+        return e instanceof FTPConnectionClosedException || !client.isConnected();
+    }
+
     static void showServerReply(FTPClient ftpClient) {
         String[] replies = ftpClient.getReplyStrings();
         if (replies != null && replies.length > 0) {
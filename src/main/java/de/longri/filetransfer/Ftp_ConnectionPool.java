@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Pool of logged in {@link FTPClient}s.
+ * <p/>
+ * FTP has no channels, every client has its own control connection and carries one transfer at a time, so the
+ * client is the session and the channel of the pool. Clients use the passive mode, the binary file type and TCP
+ * keep-alive. Clients idle for longer than the validate time are checked with a NOOP before they are handed out.
+ * <p/>
+ * The control connection NOOP of {@link #setKeepAliveInterval(int)} is sent by commons-net only inside
+ * {@code retrieveFile}, {@code storeFile} and {@code appendFile} of an {@link Ftp_Connection#execute} action.
+ * The stream of {@link Ftp_Connection#read(String)} gets no NOOPs, if the server closes the idle control
+ * connection during a long download the client is dropped from the pool when the stream is closed.
+ */
+public class Ftp_ConnectionPool extends SessionPool<FTPClient, FTPClient> {
+
+    public static final int DEFAULT_MAX_CLIENTS = 4;
+    public static final int DEFAULT_KEEP_ALIVE_INTERVAL = 15_000;
+    public static final int CONNECT_TIMEOUT = 20 * 1000;
+
+    private final Credentials CRED;
+    private volatile int keepAliveInterval = DEFAULT_KEEP_ALIVE_INTERVAL;
+
+    public Ftp_ConnectionPool(Credentials credentials) {
+        this(credentials, DEFAULT_MAX_CLIENTS);
+    }
+
+    public Ftp_ConnectionPool(Credentials credentials, int maxClients) {
+        super(maxClients, 1);
+        this.CRED = credentials;
+    }
+
+    /**
+     * Interval in milliseconds of the control connection NOOPs during {@code retrieveFile}, {@code storeFile} and
+     * {@code appendFile} of new clients, 0 disables them. Streams of {@link Ftp_Connection#read(String)} get no NOOPs.
+     */
+    public void setKeepAliveInterval(int millis) {
+        this.keepAliveInterval = millis;
+    }
+
+    @Override
+    protected FTPClient openSession() throws IOException {
+        FTPClient client = new FTPClient();
+        client.setConnectTimeout(CONNECT_TIMEOUT);
+        client.setDefaultTimeout(CONNECT_TIMEOUT);
+        try {
+            client.connect(CRED.ADDRESS, Integer.parseInt(CRED.PORT));
+            Ftp_Connection.showServerReply(client);
+            if (!FTPReply.isPositiveCompletion(client.getReplyCode())) {
+                throw new IOException("FTP server " + CRED.ADDRESS + ":" + CRED.PORT + " refused connection: "
+                        + client.getReplyString());
+            }
+            if (!client.login(CRED.USER, CRED.getPassword())) {
+                throw new IOException("can't log in FTP: " + client.getReplyString());
+            }
+            client.enterLocalPassiveMode();
+            client.setFileType(FTP.BINARY_FILE_TYPE);
+            client.setKeepAlive(true);
+            if (keepAliveInterval > 0) {
+                client.setControlKeepAliveTimeout(Duration.ofMillis(keepAliveInterval));
+            }
+            return client;
+        } catch (IOException | RuntimeException e) {
+            closeSession(client);
+            throw e;
+        }
+    }
+
+    @Override
+    protected FTPClient openChannel(FTPClient session) {
+        return session;
+    }
+
+    @Override
+    protected boolean isAlive(FTPClient session) {
+        return session.isConnected();
+    }
+
+    @Override
+    protected boolean isChannelAlive(FTPClient channel) {
+        return channel.isConnected();
+    }
+
+    @Override
+    protected boolean validate(FTPClient channel) {
+        try {
+            return channel.sendNoOp();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The client is session and channel, a failed client is logged out and disconnected, not handed out again.
+     */
+    @Override
+    protected boolean invalidatesSession(FTPClient channel) {
+        return true;
+    }
+
+    @Override
+    protected void closeChannel(FTPClient channel) {
+        // the client is closed with its session
+    }
+
+    @Override
+    protected void closeSession(FTPClient session) {
+        if (!session.isConnected()) return;
+        try {
+            session.logout();
+        } catch (IOException e) {
+            // the connection is closed anyway
+        }
+        try {
+            session.disconnect();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -28,34 +28,44 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 
-import static de.longri.filetransfer.Ftp_Connection.showServerReply;
-import static org.apache.commons.net.ftp.FTPFile.DIRECTORY_TYPE;
-import static org.apache.commons.net.ftp.FTPFile.FILE_TYPE;
-
 
 public class Ftp_FileTransferHandle implements FileTransferHandle {
     private final Ftp_Connection connection;
-    private final FTPFile ftpFile;
     private final String path;
+    // snapshot of the listing entry, the root is a directory, null if unknown
+    private volatile FileTransferStat stat;
+    private volatile boolean useMetadataCache = true;
 
     public Ftp_FileTransferHandle(Credentials credentials) {
         this.connection = new Ftp_Connection(credentials);
-        this.ftpFile = new FTPFile();
         this.path = "/"; //ftp root path
-        ftpFile.setType(DIRECTORY_TYPE);
+        this.stat = FileTransferStat.directory(0);
     }
 
     private Ftp_FileTransferHandle(Ftp_Connection ftp_connection, FTPFile ftpFile, String path) {
         this.connection = ftp_connection;
-        this.ftpFile = ftpFile;
         this.path = path;
+        if (ftpFile != null) this.stat = toStat(ftpFile);
     }
 
     public Ftp_FileTransferHandle(Ftp_Connection ftp_connection, String rootPath) {
         this.connection = ftp_connection;
-        this.ftpFile = new FTPFile();
         this.path = rootPath; //ftp root path
-        ftpFile.setType(DIRECTORY_TYPE);
+        this.stat = FileTransferStat.directory(0);
+    }
+
+    /**
+     * Switches the metadata cache of the connection on or off for this handle and the children listed by it.
+     * The cache only serves lookups across handles, listed children keep the stat of their listing entry with
+     * and without the cache.
+     */
+    public Ftp_FileTransferHandle setUseMetadataCache(boolean use) {
+        this.useMetadataCache = use;
+        return this;
+    }
+
+    private MetadataCache metadataCache() {
+        return useMetadataCache ? connection.getMetadataCache() : null;
     }
 
     public Credentials getCredentials() {
@@ -76,9 +86,7 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public String name() {
-        synchronized (connection) {
-            return this.ftpFile.getName();
-        }
+        return this.path.substring(this.path.lastIndexOf('/') + 1);
     }
 
     /**
@@ -117,15 +125,7 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public InputStream read() throws IOException {
-        synchronized (connection) {
-            this.connection.connect();
-            //remove forwarded '/'
-            String p = this.path;
-            InputStream stream = this.connection.ftpClient.retrieveFileStream(p);
-            showServerReply(this.connection.ftpClient);
-            this.connection.disconnect();
-            return stream;
-        }
+        return this.connection.read(this.path);
     }
 
     /**
@@ -146,20 +146,16 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public String readString(String charset) throws IOException {
-        synchronized (connection) {
-            this.connection.connect();
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            byte[] buffer = new byte[4096];
-            int read = 0;
-            InputStream inputStream = read();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read = 0;
+        try (InputStream inputStream = read()) {
             while ((read = inputStream.read(buffer)) != -1) {
                 result.write(buffer, 0, read);
                 if (read <= 0) break;
             }
-            closeInputStream(inputStream);
-            this.connection.disconnect();
-            return result.toString(charset);
         }
+        return result.toString(charset);
     }
 
     /**
@@ -205,23 +201,10 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
     @Override
     public FileTransferHandle[] list() {
 
-        if (!this.ftpFile.isDirectory()) {
+        if (!isDirectory()) {
             throw new RuntimeException("FtpFileHandle is not a directory");
         }
-        this.connection.connect();
-        List<FileTransferHandle> list = new ArrayList<>();
-        try {
-            FTPFile[] files = this.connection.ftpClient.listFiles(this.path);
-            for (FTPFile file : files) {
-                String filePath = this.path + "/" + file.getName();
-                FileTransferHandle handle = new Ftp_FileTransferHandle(this.connection, file, filePath);
-                list.add(handle);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();//TODO replace with Logger
-        }
-        this.connection.disconnect();
-        return list.toArray(new FileTransferHandle[0]);
+        return listChildren();
     }
 
     /**
@@ -233,27 +216,44 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
     @Override
     public FileTransferHandle[] list(FileTransferHandleFilter filter) {
 
-        if (!this.ftpFile.isDirectory()) {
+        if (!isDirectory()) {
             throw new RuntimeException("FtpFileHandle is not a directory");
         }
-        this.connection.connect();
+        List<FileTransferHandle> list = new ArrayList<>();
+        for (FileTransferHandle handle : listChildren()) {
+            //ask filter
+            if (filter.accept(handle))
+                list.add(handle);
+        }
+        return list.toArray(new FileTransferHandle[0]);
+    }
+
+    /**
+     * Returns the children from the metadata cache, or lists them with one round trip and caches them.
+     * A failed listing throws an {@link UncheckedIOException}.
+     */
+    private FileTransferHandle[] listChildren() {
+        MetadataCache cache = metadataCache();
+        if (cache != null) {
+            FileTransferHandle[] cached = cache.getListing(this.path);
+            if (cached != null) return cached;
+        }
         List<FileTransferHandle> list = new ArrayList<>();
         try {
-            FTPFile[] files = this.connection.ftpClient.listFiles(this.path);
+            FTPFile[] files = listFiles(this.path);
             for (FTPFile file : files) {
                 String filePath = this.path + "/" + file.getName();
-
-                FileTransferHandle handle = new Ftp_FileTransferHandle(this.connection, file, filePath);
-
-                //ask filter
-                if (filter.accept(handle))
-                    list.add(handle);
+                Ftp_FileTransferHandle handle = new Ftp_FileTransferHandle(this.connection, file, filePath);
+                handle.useMetadataCache = this.useMetadataCache;
+                if (cache != null) cache.putStat(filePath, handle.stat);
+                list.add(handle);
             }
         } catch (IOException e) {
-            e.printStackTrace();//TODO replace with Logger
+            throw new UncheckedIOException(e);
         }
-        this.connection.disconnect();
-        return list.toArray(new FileTransferHandle[0]);
+        FileTransferHandle[] children = list.toArray(new FileTransferHandle[0]);
+        if (cache != null) cache.putListing(this.path, children);
+        return children;
     }
 
     /**
@@ -283,7 +283,7 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean isDirectory() {
-        return this.ftpFile.isDirectory();
+        return stat().isDirectory();
     }
 
     /**
@@ -293,33 +293,10 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public FileTransferHandle child(String name) {
-        this.connection.connect();
-        try {
-
-            String parentPath = getParentPath(this.path + "/" + name);
-
-            int pos = name.lastIndexOf("/");
-            if (pos > 0) {
-                name = name.substring(pos + 1);
-            }
-
-            FTPFile[] files = this.connection.ftpClient.listFiles(parentPath);
-            for (FTPFile file : files) {
-                if (name.equals(file.getName())) {
-                    return new Ftp_FileTransferHandle(this.connection, file, parentPath + "/" + name);
-                }
-            }
-            //file not exist, create a new one
-            FTPFile file = new FTPFile();
-            file.setName(name);
-            file.setType(FILE_TYPE);
-            return new Ftp_FileTransferHandle(this.connection, file, parentPath + "/" + name);
-        } catch (IOException e) {
-            e.printStackTrace();//TODO replace with Logger
-        } finally {
-            this.connection.disconnect();
-        }
-        return null;
+        // the stat is queried with the first use of the child
+        Ftp_FileTransferHandle child = new Ftp_FileTransferHandle(this.connection, null, this.path + "/" + name);
+        child.useMetadataCache = this.useMetadataCache;
+        return child;
     }
 
     /**
@@ -340,25 +317,37 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean exists() {
-        this.connection.connect();
+        return stat().exists();
+    }
+
+    /**
+     * Returns the snapshot of the listing this handle comes from, the cached stat, or asks the server with one round trip.
+     * Only a "not found" reply maps to {@link FileTransferStat#MISSING}, any other failure throws an
+     * {@link UncheckedIOException}.
+     */
+    FileTransferStat stat() {
+        FileTransferStat stat = this.stat;
+        if (stat != null) return stat;
+        MetadataCache cache = metadataCache();
+        if (cache != null && (stat = cache.getStat(this.path)) != null) return stat;
         try {
-            FTPFile[] files = this.connection.ftpClient.listFiles(getParentPath(this.path));
-            for (FTPFile file : files) {
-                if (this.ftpFile.getName().equals(file.getName())) {
-                    this.connection.disconnect();
-                    return true;
-                }
-            }
+            FTPFile file = this.connection.stat(this.path);
+            stat = file == null ? FileTransferStat.MISSING : toStat(file);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
         }
-        this.connection.disconnect();
-        return false;
+        if (cache != null) cache.putStat(this.path, stat);
+        return stat;
     }
 
-    private String getParentPath(String parent) {
-        int index = parent.lastIndexOf("/");
-        return parent.substring(0, index);
+    private static FileTransferStat toStat(FTPFile file) {
+        long lastModified = file.getTimestamp() == null ? 0 : file.getTimestamp().getTimeInMillis();
+        if (file.isDirectory()) return FileTransferStat.directory(lastModified);
+        return FileTransferStat.file(file.getSize(), lastModified);
+    }
+
+    private FTPFile[] listFiles(String path) throws IOException {
+        return this.connection.execute(client -> client.listFiles(path));
     }
 
     /**
@@ -415,7 +404,7 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public long lastModified() {
-        return this.ftpFile.getTimestamp().getTimeInMillis();
+        return stat().lastModified();
     }
 
     /**
@@ -442,11 +431,8 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
 
     @Override
     public void closeInputStream(InputStream inputStream) throws IOException {
-        synchronized (connection) {
-            inputStream.close();
-            this.connection.ftpClient.completePendingCommand();
-            showServerReply(this.connection.ftpClient);
-        }
+        // the stream of read() completes the transfer and gives the client back to the pool
+        inputStream.close();
     }
 
     @Override
@@ -454,7 +440,8 @@ public class Ftp_FileTransferHandle implements FileTransferHandle {
         return list(new FileTransferHandleFilter() {
             @Override
             public boolean accept(FileTransferHandle fth) {
-                return fth.exists() && fth.isDirectory();
+                // listed children carry their stat, no round trip per child
+                return fth.isDirectory();
             }
         });
     }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time bounded cache of the stats and directory listings of one remote connection, keyed by path.
+ * <p/>
+ * Entries expire after the time to live, the least recently used entries are dropped if the cache holds more
+ * than the maximum number of entries. Handles clear the entries of a path they write, delete or move with
+ * {@link #invalidate(String)} or {@link #invalidateTree(String)}, changes by other clients are seen after the
+ * time to live. Handles of a listing keep their own snapshot of the listing entry, the cache serves the lookups
+ * of other handles of the same path. The cache is thread safe.
+ */
+public final class MetadataCache {
+
+    public static final long DEFAULT_TIME_TO_LIVE = 30_000;
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final class Entry {
+        FileTransferStat stat;
+        long statExpires;
+        FileTransferHandle[] listing;
+        long listingExpires;
+    }
+
+    private final Map<String, Entry> entries;
+    private volatile long timeToLive = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_TO_LIVE);
+    private volatile int maxEntries;
+
+    public MetadataCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public MetadataCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // access order, the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Entries are used for the given time in milliseconds, 0 disables the cache.
+     */
+    public void setTimeToLive(long millis) {
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(millis);
+        if (millis <= 0) clear();
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the cached stat of the path, or null if it is unknown or expired.
+     */
+    public FileTransferStat getStat(String path) {
+        path = normalize(path);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(path);
+            if (entry == null || entry.stat == null) return null;
+            if (now - entry.statExpires >= 0) {
+                entry.stat = null;
+                dropIfEmpty(path, entry);
+                return null;
+            }
+            return entry.stat;
+        }
+    }
+
+    public void putStat(String path, FileTransferStat stat) {
+        path = normalize(path);
+        long ttl = timeToLive;
+        if (ttl <= 0) return;
+        synchronized (entries) {
+            Entry entry = entries.computeIfAbsent(path, p -> new Entry());
+            entry.stat = stat;
+            entry.statExpires = System.nanoTime() + ttl;
+        }
+    }
+
+    /**
+     * Returns a copy of the cached children of the directory, or null if they are unknown or expired.
+     */
+    public FileTransferHandle[] getListing(String path) {
+        path = normalize(path);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(path);
+            if (entry == null || entry.listing == null) return null;
+            if (now - entry.listingExpires >= 0) {
+                entry.listing = null;
+                dropIfEmpty(path, entry);
+                return null;
+            }
+            return entry.listing.clone();
+        }
+    }
+
+    /**
+     * Caches the children of the directory, the directory exists.
+     */
+    public void putListing(String path, FileTransferHandle[] children) {
+        path = normalize(path);
+        long ttl = timeToLive;
+        if (ttl <= 0) return;
+        synchronized (entries) {
+            Entry entry = entries.computeIfAbsent(path, p -> new Entry());
+            entry.listing = children.clone();
+            entry.listingExpires = System.nanoTime() + ttl;
+        }
+    }
+
+    /**
+     * Clears the stat and listing of the path and the listing of its parent directory, after the path was
+     * written, created or deleted.
+     */
+    public void invalidate(String path) {
+        path = normalize(path);
+        synchronized (entries) {
+            entries.remove(path);
+            Entry parent = entries.get(parentPath(path));
+            if (parent != null) parent.listing = null;
+        }
+    }
+
+    /**
+     * Clears the path, all paths below it and the listing of its parent directory, after a directory was
+     * deleted or moved.
+     */
+    public void invalidateTree(String path) {
+        path = normalize(path);
+        String prefix = path.equals("/") ? path : path + "/";
+        synchronized (entries) {
+            entries.keySet().removeIf(p -> p.startsWith(prefix));
+            invalidate(path);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void dropIfEmpty(String path, Entry entry) {
+        if (entry.stat == null && entry.listing == null) entries.remove(path);
+    }
+
+    /**
+     * Handles build child paths by appending "/" + name, so "", "/" and "dir/" are the same directory.
+     */
+    static String normalize(String path) {
+        if (path.indexOf("//") >= 0) path = path.replaceAll("/{2,}", "/");
+        if (path.length() > 1 && path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return path.isEmpty() ? "/" : path;
+    }
+
+    /**
+     * Returns the parent of a normalized path.
+     */
+    static String parentPath(String path) {
+        int index = path.lastIndexOf('/');
+        if (index <= 0) return "/";
+        return path.substring(0, index);
+    }
+}
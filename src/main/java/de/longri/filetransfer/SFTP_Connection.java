@@ -18,28 +18,40 @@
  */
 package de.longri.filetransfer;
 
-import com.jcraft.jsch.Channel;
-import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
-import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * SFTP connection backed by a {@link SFTP_ConnectionPool}, so parallel operations of the handles of this
+ * connection run on several channels and sessions instead of queueing behind one channel.
+ */
 public class SFTP_Connection implements Connection {
 
+    /**
+     * An operation on a pooled channel.
+     */
+    @FunctionalInterface
+    public interface SftpAction<R> {
+        R run(ChannelSftp channel) throws SftpException;
+    }
+
     private final Credentials CRED;
 
     private String rootPath = "";
 
-    JSch jsch = new JSch();
-    Session session = null;
-    Channel channel = null;
+    private SFTP_ConnectionPool pool;
+    private int maxSessions = SFTP_ConnectionPool.DEFAULT_MAX_SESSIONS;
+    private int maxChannelsPerSession = SFTP_ConnectionPool.DEFAULT_MAX_CHANNELS_PER_SESSION;
+    private final MetadataCache metadataCache = new MetadataCache();
 
     public SFTP_Connection(String address, String port, String user, String password) {
         try {
@@ -59,35 +71,36 @@ public class SFTP_Connection implements Connection {
 
     private final AtomicInteger connectionCount = new AtomicInteger(0);
 
+    /**
+     * Sets the size of the pool, takes effect with the next pool of this connection.
+     */
+    public SFTP_Connection setPoolSize(int maxSessions, int maxChannelsPerSession) {
+        this.maxSessions = maxSessions;
+        this.maxChannelsPerSession = maxChannelsPerSession;
+        return this;
+    }
+
+    /**
+     * Returns the pool of this connection, it is created with the first use.
+     */
+    public SFTP_ConnectionPool getPool() {
+        synchronized (connectionCount) {
+            if (pool == null) pool = new SFTP_ConnectionPool(CRED, maxSessions, maxChannelsPerSession);
+            return pool;
+        }
+    }
 
     /**
      * connect
+     * <p/>
+     * Keeps the pool of this connection open until the matching {@link #disconnect()}.
+     * Without connect the pooled sessions are closed after the idle timeout.
      */
     @Override
     public void connect() {
-//        jsch.addIdentity(privateKeyFile);
-//        jsch.setKnownHosts(knownHostsFile);
         synchronized (connectionCount) {
-            if (connectionCount.get() > 0) {
-                connectionCount.incrementAndGet();
-                return;
-            }
             connectionCount.incrementAndGet();
-            try {
-                session = jsch.getSession(CRED.USER, CRED.ADDRESS, Integer.parseInt(CRED.PORT));
-
-                session.setPassword(CRED.getPassword());
-                session.setConfig("StrictHostKeyChecking", "no");
-                session.setTimeout(20 * 1000);
-                session.connect();
-
-                channel = session.openChannel("sftp");
-                channel.connect();
-                ChannelSftp channelSftp = (ChannelSftp) channel;
-
-            } catch (JSchException e) {
-                e.printStackTrace();
-            }
+            getPool();
         }
     }
 
@@ -98,19 +111,93 @@ public class SFTP_Connection implements Connection {
     public void disconnect() {
         synchronized (connectionCount) {
             if (connectionCount.decrementAndGet() <= 0) {
+                connectionCount.set(0);
                 // logs out and disconnects from server
-                if (channel != null) {
-                    channel.disconnect();
-                    channel = null;
+                if (pool != null) {
+                    pool.close();
+                    pool = null;
                 }
-                if (session != null) {
-                    session.disconnect();
-                    session = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the cache of the stats and listings of the handles of this connection.
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Runs the action on a pooled channel. A channel which lost its connection is dropped from the pool.
+     */
+    public <R> R execute(SftpAction<R> action) throws IOException {
+        SFTP_ConnectionPool pool = getPool();
+        ChannelSftp channel = borrow(pool);
+        boolean broken = true;
+        try {
+            R result = action.run(channel);
+            broken = false;
+            return result;
+        } catch (SftpException e) {
+            broken = isConnectionLost(e, channel);
+            throw new IOException(e);
+        } finally {
+            if (broken) {
+                pool.invalidate(channel);
+            } else {
+                pool.release(channel);
+            }
+        }
+    }
+
+    /**
+     * Opens the file for reading, the channel stays borrowed until the stream is closed.
+     */
+    public InputStream read(String path) throws IOException {
+        SFTP_ConnectionPool pool = getPool();
+        ChannelSftp channel = borrow(pool);
+        InputStream stream;
+        try {
+            stream = channel.get(path);
+        } catch (SftpException e) {
+            if (isConnectionLost(e, channel)) {
+                pool.invalidate(channel);
+            } else {
+                pool.release(channel);
+            }
+            throw new IOException(e);
+        } catch (RuntimeException e) {
+            pool.invalidate(channel);
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilterInputStream(stream) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) pool.release(channel);
                 }
             }
+        };
+    }
+
+    private static ChannelSftp borrow(SFTP_ConnectionPool pool) throws IOException {
+        try {
+            return pool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a SFTP channel");
         }
     }
 
+    private static boolean isConnectionLost(SftpException e, ChannelSftp channel) {
+        return e.id == ChannelSftp.SSH_FX_CONNECTION_LOST || e.id == ChannelSftp.SSH_FX_NO_CONNECTION
+                || !channel.isConnected();
+    }
+
     /**
      * return the root FileTransferHandle of this connection
      *
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+import java.io.IOException;
+
+/**
+ * Pool of JSch sessions with several {@link ChannelSftp} channels per session.
+ * <p/>
+ * Sessions send a keep-alive message every {@link #setKeepAliveInterval(int)} milliseconds, so firewalls don't
+ * drop idle pooled sessions. Channels idle for longer than the validate time are checked with a
+ * {@code realpath} round trip before they are handed out.
+ */
+public class SFTP_ConnectionPool extends SessionPool<Session, ChannelSftp> {
+
+    public static final int DEFAULT_MAX_SESSIONS = 4;
+    // OpenSSH allows 10 sessions (channels) per connection by default
+    public static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 8;
+    public static final int DEFAULT_KEEP_ALIVE_INTERVAL = 15_000;
+    public static final int CONNECT_TIMEOUT = 20 * 1000;
+
+    private final Credentials CRED;
+    private final JSch jsch = new JSch();
+    private volatile int keepAliveInterval = DEFAULT_KEEP_ALIVE_INTERVAL;
+
+    public SFTP_ConnectionPool(Credentials credentials) {
+        this(credentials, DEFAULT_MAX_SESSIONS, DEFAULT_MAX_CHANNELS_PER_SESSION);
+    }
+
+    public SFTP_ConnectionPool(Credentials credentials, int maxSessions, int maxChannelsPerSession) {
+        super(maxSessions, maxChannelsPerSession);
+        this.CRED = credentials;
+    }
+
+    /**
+     * Keep-alive interval in milliseconds for new sessions, 0 disables the keep-alive.
+     */
+    public void setKeepAliveInterval(int millis) {
+        this.keepAliveInterval = millis;
+    }
+
+    @Override
+    protected Session openSession() throws IOException {
+        try {
+            Session session = jsch.getSession(CRED.USER, CRED.ADDRESS, Integer.parseInt(CRED.PORT));
+            session.setPassword(CRED.getPassword());
+            session.setConfig("StrictHostKeyChecking", "no");
+            session.setTimeout(CONNECT_TIMEOUT);
+            session.connect(CONNECT_TIMEOUT);
+            if (keepAliveInterval > 0) {
+                session.setServerAliveInterval(keepAliveInterval);
+                session.setServerAliveCountMax(3);
+            }
+            return session;
+        } catch (JSchException e) {
+            throw new IOException("can't open SFTP session to " + CRED.ADDRESS + ":" + CRED.PORT, e);
+        }
+    }
+
+    @Override
+    protected ChannelSftp openChannel(Session session) throws IOException {
+        try {
+            ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect(CONNECT_TIMEOUT);
+            return channel;
+        } catch (JSchException e) {
+            throw new IOException("can't open SFTP channel", e);
+        }
+    }
+
+    @Override
+    protected boolean isAlive(Session session) {
+        return session.isConnected();
+    }
+
+    @Override
+    protected boolean isChannelAlive(ChannelSftp channel) {
+        return channel.isConnected() && !channel.isClosed();
+    }
+
+    @Override
+    protected boolean validate(ChannelSftp channel) {
+        try {
+            channel.realpath(".");
+            return true;
+        } catch (SftpException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void closeChannel(ChannelSftp channel) {
+        channel.disconnect();
+    }
+
+    @Override
+    protected void closeSession(Session session) {
+        session.disconnect();
+    }
+}
@@ -35,7 +35,9 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
 
     private final SFTP_Connection connection;
     private final String PATH;
-    private SftpATTRS attrs;
+    // snapshot of the listing entry, null if unknown
+    private volatile FileTransferStat stat;
+    private volatile boolean useMetadataCache = true;
 
     public SFTP_FileTransferHandle(Credentials credentials) {
         this.connection = new SFTP_Connection(credentials);
@@ -50,7 +52,7 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
     public SFTP_FileTransferHandle(SFTP_Connection sftp_connection, String path, SftpATTRS attrs) {
         this.connection = sftp_connection;
         this.PATH = path;
-        this.attrs = attrs;
+        if (attrs != null) this.stat = toStat(attrs);
     }
 
     public SFTP_FileTransferHandle(StoreBase store) throws NotImplementedException {
@@ -60,6 +62,20 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
         PATH = path;
     }
 
+    /**
+     * Switches the metadata cache of the connection on or off for this handle and the children listed by it.
+     * The cache only serves lookups across handles, listed children keep the stat of their listing entry with
+     * and without the cache.
+     */
+    public SFTP_FileTransferHandle setUseMetadataCache(boolean use) {
+        this.useMetadataCache = use;
+        return this;
+    }
+
+    private MetadataCache metadataCache() {
+        return useMetadataCache ? connection.getMetadataCache() : null;
+    }
+
     public Credentials getCredentials() {
         return connection.getCredentials();
     }
@@ -124,15 +140,7 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public InputStream read() throws IOException {
-        this.connection.connect();
-        InputStream stream = null;
-        try {
-            stream = ((ChannelSftp) this.connection.channel).get(this.PATH);
-        } catch (SftpException e) {
-            throw new IOException(e);
-        }
-        this.connection.disconnect();
-        return stream;
+        return this.connection.read(this.PATH);
     }
 
     /**
@@ -153,17 +161,15 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public String readString(String charset) throws IOException {
-        this.connection.connect();
         ByteArrayOutputStream result = new ByteArrayOutputStream();
         byte[] buffer = new byte[4096];
         int read = 0;
-        InputStream inputStream = read();
-        while ((read = inputStream.read(buffer)) != -1) {
-            result.write(buffer, 0, read);
-            if (read < buffer.length) break;
+        // the stream gives the pooled channel back when it is closed
+        try (InputStream inputStream = read()) {
+            while ((read = inputStream.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
         }
-        inputStream.close();
-        this.connection.disconnect();
         return result.toString(charset);
     }
 
@@ -209,22 +215,7 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public FileTransferHandle[] list() {
-        this.connection.connect();
-        ChannelSftp c = (ChannelSftp) this.connection.channel;
-        List<FileTransferHandle> list = new ArrayList<>();
-        try {
-            Vector<LsEntry> files = c.ls(this.PATH);
-            for (LsEntry file : files) {
-                String fileName = file.getFilename();
-                if (fileName.startsWith(".")) continue;// don't list hidden files
-                String filePath = this.PATH + "/" + fileName;
-                list.add(new SFTP_FileTransferHandle(this.connection, filePath, file.getAttrs()));
-            }
-        } catch (SftpException e) {
-            e.printStackTrace();
-        }
-        this.connection.disconnect();
-        return list.toArray(new FileTransferHandle[0]);
+        return listChildren();
     }
 
     /**
@@ -235,26 +226,43 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public FileTransferHandle[] list(FileTransferHandleFilter filter) {
-        this.connection.connect();
-        ChannelSftp c = (ChannelSftp) this.connection.channel;
+        List<FileTransferHandle> list = new ArrayList<>();
+        for (FileTransferHandle handle : listChildren()) {
+            // ask filter
+            if (filter.accept(handle))
+                list.add(handle);
+        }
+        return list.toArray(new FileTransferHandle[0]);
+    }
+
+    /**
+     * Returns the children from the metadata cache, or lists them with one round trip and caches them.
+     * A failed listing throws an {@link UncheckedIOException}.
+     */
+    private FileTransferHandle[] listChildren() {
+        MetadataCache cache = metadataCache();
+        if (cache != null) {
+            FileTransferHandle[] cached = cache.getListing(this.PATH);
+            if (cached != null) return cached;
+        }
         List<FileTransferHandle> list = new ArrayList<>();
         try {
-            Vector<LsEntry> files = c.ls(this.PATH);
+            Vector<LsEntry> files = ls(this.PATH);
             for (LsEntry file : files) {
                 String fileName = file.getFilename();
                 if (fileName.startsWith(".")) continue;// don't list hidden files
                 String filePath = this.PATH + "/" + fileName;
-                FileTransferHandle handle = new SFTP_FileTransferHandle(this.connection, filePath, file.getAttrs());
-
-                // ask filter
-                if (filter.accept(handle))
-                    list.add(handle);
+                SFTP_FileTransferHandle handle = new SFTP_FileTransferHandle(this.connection, filePath, file.getAttrs());
+                handle.useMetadataCache = this.useMetadataCache;
+                if (cache != null) cache.putStat(filePath, handle.stat);
+                list.add(handle);
             }
-        } catch (SftpException e) {
-            e.printStackTrace();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        this.connection.disconnect();
-        return list.toArray(new FileTransferHandle[0]);
+        FileTransferHandle[] children = list.toArray(new FileTransferHandle[0]);
+        if (cache != null) cache.putListing(this.PATH, children);
+        return children;
     }
 
     /**
@@ -284,13 +292,7 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean isDirectory() {
-        if (this.attrs == null) {
-            if (!this.exists()) return false;
-        }
-        if (this.attrs == null) {
-            return false;
-        }
-        return this.attrs.isDir();
+        return stat().isDirectory();
     }
 
     /**
@@ -300,7 +302,9 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public FileTransferHandle child(String name) {
-        return new SFTP_FileTransferHandle(this.connection, this.PATH + "/" + name, null);
+        SFTP_FileTransferHandle child = new SFTP_FileTransferHandle(this.connection, this.PATH + "/" + name, null);
+        child.useMetadataCache = this.useMetadataCache;
+        return child;
     }
 
     /**
@@ -321,26 +325,42 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean exists() {
-        ChannelSftp c = (ChannelSftp) this.connection.channel;
+        return stat().exists();
+    }
+
+    /**
+     * Returns the snapshot of the listing this handle comes from, the cached stat, or asks the server with one
+     * {@code stat} round trip. Only a "no such file" reply maps to {@link FileTransferStat#MISSING}, any other failure
+     * throws an {@link UncheckedIOException}.
+     */
+    FileTransferStat stat() {
+        FileTransferStat stat = this.stat;
+        if (stat != null) return stat;
+        MetadataCache cache = metadataCache();
+        if (cache != null && (stat = cache.getStat(PATH)) != null) return stat;
         try {
-            Vector<LsEntry> files = c.ls(getParentPath());
-            String thisFileName = this.name();
-            for (LsEntry file : files) {
-                if (file.getFilename().equals(thisFileName)) {
-                    //set attributes
-                    this.attrs = file.getAttrs();
-                    return true;
-                }
+            stat = toStat(this.connection.execute(c -> c.stat(PATH)));
+        } catch (IOException e) {
+            if (!(e.getCause() instanceof SftpException)
+                    || ((SftpException) e.getCause()).id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw new UncheckedIOException(e);
             }
-        } catch (SftpException e) {
-            e.printStackTrace();
+            stat = FileTransferStat.MISSING;
         }
-        return false;
+        if (cache != null) cache.putStat(PATH, stat);
+        return stat;
+    }
+
+    private static FileTransferStat toStat(SftpATTRS attrs) {
+        // SFTP sends the modification time in seconds
+        long lastModified = (attrs.getMTime() & 0xFFFFFFFFL) * 1000L;
+        if (attrs.isDir()) return FileTransferStat.directory(lastModified);
+        return FileTransferStat.file(attrs.getSize(), lastModified);
     }
 
-    private String getParentPath() {
-        int index = PATH.lastIndexOf("/");
-        return PATH.substring(0, index);
+    @SuppressWarnings("unchecked")
+    private Vector<LsEntry> ls(String path) throws IOException {
+        return (Vector<LsEntry>) this.connection.execute(c -> c.ls(path));
     }
 
     /**
@@ -397,7 +417,7 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public long lastModified() {
-        return attrs.getMTime();
+        return stat().lastModified();
     }
 
     /**
@@ -432,7 +452,8 @@ public class SFTP_FileTransferHandle implements FileTransferHandle {
         return list(new FileTransferHandleFilter() {
             @Override
             public boolean accept(FileTransferHandle fth) {
-                return fth.exists() && fth.isDirectory();
+                // listed children carry their stat, no round trip per child
+                return fth.isDirectory();
             }
         });
     }
@@ -18,14 +18,16 @@
  */
 package de.longri.filetransfer;
 
+import com.hierynomus.mserref.NtStatus;
 import com.hierynomus.msdtyp.AccessMask;
+import com.hierynomus.msfscc.FileAttributes;
+import com.hierynomus.msfscc.fileinformation.FileAllInformation;
 import com.hierynomus.msfscc.fileinformation.FileIdBothDirectoryInformation;
 import com.hierynomus.mssmb2.SMB2CreateDisposition;
 import com.hierynomus.mssmb2.SMB2CreateOptions;
 import com.hierynomus.mssmb2.SMB2ShareAccess;
-import com.hierynomus.smbj.SMBClient;
-import com.hierynomus.smbj.auth.AuthenticationContext;
-import com.hierynomus.smbj.session.Session;
+import com.hierynomus.mssmb2.SMBApiException;
+import com.hierynomus.smbj.common.SMBRuntimeException;
 import com.hierynomus.smbj.share.DiskShare;
 import de.longri.serializable.NotImplementedException;
 import org.slf4j.Logger;
@@ -51,40 +53,132 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      final Credentials CRED;
      final String PATH;
      final String NAME;
-    private final Session session;
+
+    // snapshot of the listing entry, null if unknown or changed by this handle
+    private volatile FileTransferStat stat;
+    private volatile boolean useMetadataCache = true;
+
+    /**
+     * An operation on the cached share of this handle.
+     */
+    private interface ShareAction<R> {
+        R run(DiskShare share) throws IOException;
+    }
 
     public SMB_FileTransferHandle(Credentials cred, String path) throws IOException {
         this(cred, path, null);
     }
 
-    private SMB_FileTransferHandle(SMB_FileTransferHandle other, FileIdBothDirectoryInformation f) throws IOException {
+    /**
+     * Child handle of a listing, it uses the cached session of its parent.
+     */
+    private SMB_FileTransferHandle(SMB_FileTransferHandle other, FileIdBothDirectoryInformation f) {
         CRED = other.CRED;
-        PATH = other.PATH;
+        PATH = other.path();
         NAME = f.getFileName();
-        SMBClient client = new SMBClient();
-        com.hierynomus.smbj.connection.Connection connection = client.connect(CRED.getAddress());
-
-        AuthenticationContext ac = new AuthenticationContext(CRED.getUser(), CRED.getPassword().toCharArray(), CRED.getDomain());
-        session = connection.authenticate(ac);
+        useMetadataCache = other.useMetadataCache;
+        long lastModified = f.getLastWriteTime().toEpochMillis();
+        stat = (f.getFileAttributes() & FileAttributes.FILE_ATTRIBUTE_DIRECTORY.getValue()) != 0
+                ? FileTransferStat.directory(lastModified)
+                : FileTransferStat.file(f.getEndOfFile(), lastModified);
     }
 
+    /**
+     * The session is taken from the {@link SMB_SessionCache}, it is connected with the first operation.
+     */
     public SMB_FileTransferHandle(Credentials cred, String path, String name) throws IOException {
         CRED = cred;
         PATH = path;
         NAME = name;
-        SMBClient client = new SMBClient();
-        com.hierynomus.smbj.connection.Connection connection = client.connect(CRED.getAddress());
+    }
+
+    /**
+     * Runs the action on the cached share, a connection failure reconnects the session and retries once.
+     */
+    private <R> R withShare(ShareAction<R> action) throws IOException {
+        SMB_SessionCache cache = SMB_SessionCache.getShared();
+        for (int attempt = 0; ; attempt++) {
+            DiskShare share = cache.acquire(CRED);
+            try {
+                return action.run(share);
+            } catch (SMBApiException e) {
+                // a status of the server, the connection is fine
+                throw e;
+            } catch (SMBRuntimeException e) {
+                cache.invalidate(CRED);
+                if (attempt > 0) throw e;
+                log.debug("SMB connection lost, reconnecting", e);
+            } finally {
+                cache.release(CRED);
+            }
+        }
+    }
+
+    private <R> R withShareUnchecked(ShareAction<R> action) {
+        try {
+            return withShare(action);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Switches the metadata cache of the share on or off for this handle and the children listed by it.
+     * The cache only serves lookups across handles, listed children keep the stat of their listing entry with
+     * and without the cache.
+     */
+    public SMB_FileTransferHandle setUseMetadataCache(boolean use) {
+        this.useMetadataCache = use;
+        return this;
+    }
 
-        AuthenticationContext ac = new AuthenticationContext(CRED.getUser(), CRED.getPassword().toCharArray(), CRED.getDomain());
-        session = connection.authenticate(ac);
+    private MetadataCache metadataCache() {
+        return useMetadataCache ? SMB_SessionCache.getShared().getMetadataCache(CRED) : null;
+    }
+
+    /**
+     * Forgets the stat of this handle and the cached metadata of a path written or deleted by this handle,
+     * with all paths below it if {@code tree} is set.
+     */
+    private void changed(String path, boolean tree) {
+        stat = null;
+        MetadataCache cache = SMB_SessionCache.getShared().getMetadataCache(CRED);
+        if (tree) {
+            cache.invalidateTree(path);
+        } else {
+            cache.invalidate(path);
+        }
     }
 
-    private DiskShare getShare() {
-        return (DiskShare) session.connectShare(CRED.getShareName());
+    /**
+     * Returns the snapshot of the listing this handle comes from, the cached stat, or asks the server with one round trip.
+     */
+    FileTransferStat stat() {
+        FileTransferStat stat = this.stat;
+        if (stat != null) return stat;
+        String path = path();
+        MetadataCache cache = metadataCache();
+        if (cache != null && (stat = cache.getStat(path)) != null) return stat;
+        try {
+            stat = withShareUnchecked(share -> {
+                FileAllInformation info = share.getFileInformation(path);
+                long lastModified = info.getBasicInformation().getLastWriteTime().toEpochMillis();
+                return info.getStandardInformation().isDirectory()
+                        ? FileTransferStat.directory(lastModified)
+                        : FileTransferStat.file(info.getStandardInformation().getEndOfFile(), lastModified);
+            });
+        } catch (SMBApiException e) {
+            if (e.getStatus() != NtStatus.STATUS_OBJECT_NAME_NOT_FOUND
+                    && e.getStatus() != NtStatus.STATUS_OBJECT_PATH_NOT_FOUND
+                    && e.getStatus() != NtStatus.STATUS_NO_SUCH_FILE) throw e;
+            stat = FileTransferStat.MISSING;
+        }
+        if (cache != null) cache.putStat(path, stat);
+        return stat;
     }
 
-    private com.hierynomus.smbj.share.File getFile() {
-        return getShare().openFile(PATH + "/" + NAME,
+    private com.hierynomus.smbj.share.File openFile(DiskShare share) {
+        return share.openFile(PATH + "/" + NAME,
                 EnumSet.of(AccessMask.FILE_READ_DATA, AccessMask.FILE_WRITE_DATA, AccessMask.FILE_APPEND_DATA),
                 null,
                 SMB2ShareAccess.ALL,
@@ -150,7 +244,29 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public InputStream read() throws IOException, GeneralSecurityException {
-        return getFile().getInputStream();
+        SMB_SessionCache cache = SMB_SessionCache.getShared();
+        DiskShare share = cache.acquire(CRED);
+        try {
+            com.hierynomus.smbj.share.File file = openFile(share);
+            return new FilterInputStream(file.getInputStream()) {
+                boolean isOpen = true;
+
+                @Override
+                public void close() throws IOException {
+                    if (!isOpen) return;
+                    isOpen = false;
+                    try {
+                        super.close();
+                        file.close();
+                    } finally {
+                        cache.release(CRED);
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            cache.release(CRED);
+            throw e;
+        }
     }
 
     /**
@@ -171,7 +287,9 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public String readString(String charset) throws IOException, GeneralSecurityException {
-        return new String(read().readAllBytes(), Charset.forName(charset));
+        try (InputStream in = read()) {
+            return new String(in.readAllBytes(), Charset.forName(charset));
+        }
     }
 
     /**
@@ -182,7 +300,54 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public OutputStream write(boolean append) {
-        return getFile().getOutputStream(append);
+        SMB_SessionCache cache = SMB_SessionCache.getShared();
+        DiskShare share;
+        try {
+            share = cache.acquire(CRED);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        changed(path(), false);
+        try {
+            com.hierynomus.smbj.share.File file = openFile(share);
+            return new ReleasingOutputStream(file.getOutputStream(append), file, path());
+        } catch (RuntimeException e) {
+            cache.release(CRED);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the file and ends the use of the cached session with the stream.
+     */
+    private final class ReleasingOutputStream extends FilterOutputStream {
+        private final com.hierynomus.smbj.share.File file;
+        private final String path;
+        private boolean isOpen = true;
+
+        ReleasingOutputStream(OutputStream out, com.hierynomus.smbj.share.File file, String path) {
+            super(out);
+            this.file = file;
+            this.path = path;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isOpen) return;
+            isOpen = false;
+            try {
+                super.close();
+                file.close();
+            } finally {
+                changed(path, false);
+                SMB_SessionCache.getShared().release(CRED);
+            }
+        }
     }
 
     /**
@@ -216,7 +381,7 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
             createFile(path());
         }
 
-        try (Writer w = new OutputStreamWriter(getFile().getOutputStream(append), "UTF-8")) {
+        try (Writer w = new OutputStreamWriter(write(append), "UTF-8")) {
             w.write(string);
             w.flush();
             w.close();
@@ -228,23 +393,17 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
         Set<SMB2CreateOptions> createOptions = new HashSet<SMB2CreateOptions>(
                 EnumSet.of(SMB2CreateOptions.FILE_NON_DIRECTORY_FILE, SMB2CreateOptions.FILE_WRITE_THROUGH));
 
-        final com.hierynomus.smbj.share.File file = getShare().openFile(f, accessMask, null, SMB2ShareAccess.ALL,
-                SMB2CreateDisposition.FILE_OVERWRITE_IF, createOptions);
-        OutputStream out = file.getOutputStream();
-        FilterOutputStream fos = new FilterOutputStream(out) {
-
-            boolean isOpen = true;
-
-            @Override
-            public void close() throws IOException {
-                if (isOpen) {
-                    super.close();
-                    isOpen = false;
-                }
-                file.close();
-            }
-        };
-        return fos;
+        SMB_SessionCache cache = SMB_SessionCache.getShared();
+        DiskShare share = cache.acquire(CRED);
+        changed(f, false);
+        try {
+            final com.hierynomus.smbj.share.File file = share.openFile(f, accessMask, null, SMB2ShareAccess.ALL,
+                    SMB2CreateDisposition.FILE_OVERWRITE_IF, createOptions);
+            return new ReleasingOutputStream(file.getOutputStream(), file, f);
+        } catch (RuntimeException e) {
+            cache.release(CRED);
+            throw e;
+        }
     }
 
 
@@ -265,17 +424,8 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public FileTransferHandle[] list(FileTransferHandleFilter filter) {
-        DiskShare share = getShare();
         ArrayList<FileTransferHandle> retList = new ArrayList<>();
-        List<FileIdBothDirectoryInformation> list = share.list(path());
-        for (FileIdBothDirectoryInformation f : list) {
-            if (f.getFileName().equals(".") || f.getFileName().equals("..")) continue;
-            SMB_FileTransferHandle lf = null;
-            try {
-                lf = new SMB_FileTransferHandle(this, f);
-            } catch (IOException e) {
-                log.error("can't create SMB_FileHandle instanz", e);
-            }
+        for (FileTransferHandle lf : listChildren()) {
             //ask filter if exist
             if (filter == null || filter.accept(lf)) retList.add(lf);
         }
@@ -283,6 +433,29 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
         return retList.toArray(ret);
     }
 
+    /**
+     * Returns the children from the metadata cache, or lists them with one round trip and caches them.
+     */
+    private FileTransferHandle[] listChildren() {
+        String path = path();
+        MetadataCache cache = metadataCache();
+        if (cache != null) {
+            FileTransferHandle[] cached = cache.getListing(path);
+            if (cached != null) return cached;
+        }
+        ArrayList<FileTransferHandle> children = new ArrayList<>();
+        List<FileIdBothDirectoryInformation> list = withShareUnchecked(share -> share.list(path));
+        for (FileIdBothDirectoryInformation f : list) {
+            if (f.getFileName().equals(".") || f.getFileName().equals("..")) continue;
+            SMB_FileTransferHandle lf = new SMB_FileTransferHandle(this, f);
+            if (cache != null) cache.putStat(lf.path(), lf.stat);
+            children.add(lf);
+        }
+        FileTransferHandle[] ret = children.toArray(new FileTransferHandle[0]);
+        if (cache != null) cache.putListing(path, ret);
+        return ret;
+    }
+
     /**
      * Returns the paths to the children of this directory that satisfy the specified filter. Returns an empty list if this file
      * handle represents a file and not a directory.
@@ -319,7 +492,7 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean isDirectory() {
-        return getShare().folderExists(path());
+        return stat().isDirectory();
     }
 
     /**
@@ -331,7 +504,7 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
     public FileTransferHandle child(String name) {
         if (NAME != null) throw new RuntimeException("Can't create child from File");
         try {
-            return new SMB_FileTransferHandle(CRED, PATH, name);
+            return new SMB_FileTransferHandle(CRED, PATH, name).setUseMetadataCache(useMetadataCache);
         } catch (IOException e) {
             log.error("can't create SMB_FileHandle instanz", e);
         }
@@ -355,19 +528,21 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
 
     @Override
     public void mkdirs() {
-        DiskShare share = getShare();
         String DIRS[] = PATH.split("/");
-
-        String dirs = "";
-        String pr = "";
-        for (String p : DIRS) {
-            dirs = dirs + pr + p;
-            if (!share.folderExists(dirs)) {
-                share.mkdir(dirs);
+        stat = null;
+        withShareUnchecked(share -> {
+            String dirs = "";
+            String pr = "";
+            for (String p : DIRS) {
+                dirs = dirs + pr + p;
+                if (!share.folderExists(dirs)) {
+                    share.mkdir(dirs);
+                    changed(dirs, false);
+                }
+                pr = "/";
             }
-            pr = "/";
-        }
-
+            return null;
+        });
     }
 
     /**
@@ -375,7 +550,7 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public boolean exists() {
-        return isDirectory() ? getShare().folderExists(path()) : getShare().fileExists(path());
+        return stat().exists();
     }
 
     /**
@@ -384,28 +559,21 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
     @Override
     public boolean delete() {
         String path = path();
-        DiskShare share = getShare();
-
-        if (isDirectory()) {
-            if (!share.folderExists(path)) return false;
-            share.rmdir(path, true);
-            try {
-                share.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            share = getShare();
-            return !share.folderExists(path);
-        } else {
-            if (!share.fileExists(path)) return false;
-            share.rm(path);
-            try {
-                share.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            share = getShare();
-            return !share.fileExists(path);
+        boolean directory = isDirectory();
+        try {
+            return withShareUnchecked(share -> {
+                if (directory) {
+                    if (!share.folderExists(path)) return false;
+                    share.rmdir(path, true);
+                    return !share.folderExists(path);
+                } else {
+                    if (!share.fileExists(path)) return false;
+                    share.rm(path);
+                    return !share.fileExists(path);
+                }
+            });
+        } finally {
+            changed(path, directory);
         }
     }
 
@@ -455,7 +623,7 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
      */
     @Override
     public long lastModified() {
-        return 0;
+        return stat().lastModified();
     }
 
     /**
@@ -490,7 +658,8 @@ public class SMB_FileTransferHandle implements FileTransferHandle {
         return list(new FileTransferHandleFilter() {
             @Override
             public boolean accept(FileTransferHandle fth) {
-                return fth.exists() && fth.isDirectory();
+                // listed children carry their stat, no round trip per child
+                return fth.isDirectory();
             }
         });
     }
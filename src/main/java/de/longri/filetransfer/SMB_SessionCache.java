@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import com.hierynomus.smbj.SMBClient;
+import com.hierynomus.smbj.auth.AuthenticationContext;
+import com.hierynomus.smbj.common.SMBRuntimeException;
+import com.hierynomus.smbj.session.Session;
+import com.hierynomus.smbj.share.DiskShare;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of authenticated SMB sessions and their connected shares, keyed by {@link Credentials}.
+ * <p/>
+ * All {@link SMB_FileTransferHandle}s with the same address, user, domain and password share one session, and
+ * one {@link DiskShare} per share name, see {@link SessionCache}. smbj sessions and shares can be used by several
+ * threads.
+ */
+public final class SMB_SessionCache extends SessionCache<Session, DiskShare> {
+
+    private static final Logger log = LoggerFactory.getLogger(SMB_SessionCache.class);
+
+    private static final SMB_SessionCache SHARED = new SMB_SessionCache(new SMBClient());
+
+    private final SMBClient client;
+    private final Map<String, MetadataCache> metadataCaches = new ConcurrentHashMap<>();
+
+    public SMB_SessionCache(SMBClient client) {
+        this.client = client;
+    }
+
+    /**
+     * The cache used by the {@link SMB_FileTransferHandle}s.
+     */
+    public static SMB_SessionCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the cache of the stats and listings of the share of the credentials, it outlives idle sessions.
+     */
+    public MetadataCache getMetadataCache(Credentials cred) {
+        return metadataCaches.computeIfAbsent(key(cred) + '|' + cred.getShareName(), k -> new MetadataCache());
+    }
+
+    @Override
+    protected Session openSession(Credentials cred) throws IOException {
+        try {
+            com.hierynomus.smbj.connection.Connection connection = client.connect(cred.getAddress());
+            AuthenticationContext ac = new AuthenticationContext(cred.getUser(), cred.getPassword().toCharArray(), cred.getDomain());
+            return connection.authenticate(ac);
+        } catch (SMBRuntimeException e) {
+            throw new IOException("can't authenticate on " + cred.getAddress(), e);
+        }
+    }
+
+    @Override
+    protected DiskShare openShare(Session session, String shareName) throws IOException {
+        try {
+            return (DiskShare) session.connectShare(shareName);
+        } catch (SMBRuntimeException e) {
+            throw new IOException("can't connect share " + shareName, e);
+        }
+    }
+
+    @Override
+    protected boolean isAlive(Session session) {
+        return session.getConnection().isConnected();
+    }
+
+    @Override
+    protected boolean isShareAlive(DiskShare share) {
+        return share.isConnected();
+    }
+
+    @Override
+    protected void closeShare(DiskShare share) {
+        try {
+            share.close();
+        } catch (IOException e) {
+            log.debug("can't close SMB share", e);
+        }
+    }
+
+    @Override
+    protected void closeSession(Session session) {
+        try {
+            session.close();
+        } catch (IOException e) {
+            log.debug("can't close SMB session", e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of authenticated sessions and their connected shares, keyed by {@link Credentials}.
+ * <p/>
+ * All users with the same address, user, domain and password share one session, and one share per share name.
+ * {@link #acquire(Credentials)} counts the users of a session, a session without users is closed after the idle
+ * timeout by a background sweep. A share or session which lost its connection is reconnected by the next acquire,
+ * {@link #invalidate(Credentials)} forces that after a failure. The cache is thread safe, the sessions and shares
+ * of the implementation must be usable by several threads.
+ *
+ * @param <S> the session type
+ * @param <H> the share type
+ */
+public abstract class SessionCache<S, H> {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionCache.class);
+
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SessionCache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final class Entry {
+        final Credentials cred;
+        S session;
+        final Map<String, H> shares = new HashMap<>();
+        int refCount;
+        long lastUsed;
+
+        Entry(Credentials cred) {
+            this.cred = cred;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private ScheduledFuture<?> sweep;
+
+    /*---------- session and share handling of the implementation --------------*/
+
+    protected abstract S openSession(Credentials cred) throws IOException;
+
+    protected abstract H openShare(S session, String shareName) throws IOException;
+
+    protected abstract boolean isAlive(S session);
+
+    protected abstract boolean isShareAlive(H share);
+
+    protected abstract void closeShare(H share);
+
+    protected abstract void closeSession(S session);
+
+    /*---------- cache --------------*/
+
+    /**
+     * Sessions without users are closed after the given time in milliseconds.
+     */
+    public void setIdleTimeout(long millis) {
+        this.idleTimeout = millis;
+    }
+
+    static String key(Credentials cred) {
+        return cred.getAddress() + '|' + cred.getPort() + '|' + cred.getDomain() + '|' + cred.getUser() + '|'
+                + cred.PASSWORD_ENCRYPTED;
+    }
+
+    /**
+     * Returns the connected share of the credentials and counts a user of its session, every acquire must be
+     * followed by a {@link #release(Credentials)}. Connects and authenticates only if there is no live session.
+     */
+    public H acquire(Credentials cred) throws IOException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.computeIfAbsent(key(cred), k -> new Entry(cred));
+            entry.refCount++;
+            scheduleSweep();
+        }
+        try {
+            synchronized (entry) {
+                return share(entry, cred.getShareName());
+            }
+        } catch (IOException | RuntimeException e) {
+            release(cred);
+            throw e;
+        }
+    }
+
+    /**
+     * Ends a use started with {@link #acquire(Credentials)}.
+     */
+    public void release(Credentials cred) {
+        synchronized (entries) {
+            Entry entry = entries.get(key(cred));
+            if (entry == null || entry.refCount == 0) throw new IllegalStateException("Session not acquired: " + cred.getAddress());
+            entry.refCount--;
+            entry.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Closes the session of the credentials after a failure, the next acquire reconnects.
+     * Users still holding the session get the failure of a closed session and acquire it again.
+     */
+    public void invalidate(Credentials cred) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(cred));
+        }
+        if (entry == null) return;
+        synchronized (entry) {
+            close(entry);
+        }
+    }
+
+    /**
+     * Closes the sessions which have no users for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        long limit = System.currentTimeMillis() - idleTimeout;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.refCount == 0 && entry.lastUsed <= limit) {
+                    iterator.remove();
+                    evicted.add(entry);
+                }
+            }
+            if (entries.isEmpty() && sweep != null) {
+                sweep.cancel(false);
+                sweep = null;
+            }
+        }
+        for (Entry entry : evicted) {
+            synchronized (entry) {
+                close(entry);
+            }
+        }
+    }
+
+    /**
+     * The number of cached sessions.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /*---------- internal --------------*/
+
+    private H share(Entry entry, String shareName) throws IOException {
+        H share = entry.shares.get(shareName);
+        if (share != null && isShareAlive(share) && entry.session != null && isAlive(entry.session)) return share;
+        if (share != null) {
+            entry.shares.remove(shareName);
+            closeShareQuietly(share);
+        }
+        if (entry.session == null || !isAlive(entry.session)) {
+            close(entry);
+            entry.session = openSession(entry.cred);
+        }
+        try {
+            share = openShare(entry.session, shareName);
+        } catch (IOException | RuntimeException e) {
+            close(entry);
+            throw e;
+        }
+        entry.shares.put(shareName, share);
+        return share;
+    }
+
+    private void close(Entry entry) {
+        for (H share : entry.shares.values()) closeShareQuietly(share);
+        entry.shares.clear();
+        if (entry.session != null) {
+            try {
+                closeSession(entry.session);
+            } catch (RuntimeException e) {
+                log.debug("can't close session", e);
+            }
+            entry.session = null;
+        }
+    }
+
+    private void closeShareQuietly(H share) {
+        try {
+            closeShare(share);
+        } catch (RuntimeException e) {
+            log.debug("can't close share", e);
+        }
+    }
+
+    private void scheduleSweep() {
+        if (sweep != null) return;
+        long period = Math.max(1000, idleTimeout / 2);
+        sweep = SWEEPER.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+}
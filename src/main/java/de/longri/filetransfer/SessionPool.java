@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of server sessions, each multiplexing several channels.
+ * <p/>
+ * {@link #borrow()} hands out an idle channel, opens a new channel on a session with free capacity or opens a new
+ * session, and waits up to the borrow timeout if the pool is exhausted. Idle channels are health checked before
+ * they are handed out, channels and sessions idle for longer than the idle timeout are closed by a background
+ * sweep. Sessions and channels are opened, validated and closed outside the pool lock, so a slow server doesn't
+ * block other borrowers.
+ * <p/>
+ * Every borrowed channel must be given back with {@link #release(Object)}, or with {@link #invalidate(Object)}
+ * if it failed. The pool is thread safe.
+ *
+ * @param <S> the session type
+ * @param <C> the channel type
+ */
+public abstract class SessionPool<S, C> implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPool.class);
+
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+    public static final long DEFAULT_BORROW_TIMEOUT = 30_000;
+    public static final long DEFAULT_VALIDATE_AFTER = 5_000;
+
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SessionPool-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final class SessionEntry {
+        S session; // null while the session is opened
+        final ArrayDeque<ChannelEntry> idle = new ArrayDeque<>();
+        int channelCount; // open and reserved channels
+        boolean broken;
+    }
+
+    private final class ChannelEntry {
+        final C channel;
+        final SessionEntry owner;
+        long idleSince;
+
+        ChannelEntry(C channel, SessionEntry owner) {
+            this.channel = channel;
+            this.owner = owner;
+        }
+    }
+
+    private final int maxSessions;
+    private final int maxChannelsPerSession;
+    private final Object lock = new Object();
+    private final List<SessionEntry> sessions = new ArrayList<>();
+    private final Map<C, ChannelEntry> leased = new IdentityHashMap<>();
+    private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private volatile long borrowTimeout = DEFAULT_BORROW_TIMEOUT;
+    private volatile long validateAfter = DEFAULT_VALIDATE_AFTER;
+    private ScheduledFuture<?> sweep;
+    private boolean closed;
+    // channels and sessions to close, collected under the lock and closed outside of it
+    private final List<Runnable> pendingClose = new ArrayList<>();
+
+    protected SessionPool(int maxSessions, int maxChannelsPerSession) {
+        if (maxSessions < 1 || maxChannelsPerSession < 1)
+            throw new IllegalArgumentException("maxSessions and maxChannelsPerSession must be positive");
+        this.maxSessions = maxSessions;
+        this.maxChannelsPerSession = maxChannelsPerSession;
+    }
+
+    /*---------- session and channel handling of the implementation --------------*/
+
+    protected abstract S openSession() throws IOException;
+
+    protected abstract C openChannel(S session) throws IOException;
+
+    protected abstract boolean isAlive(S session);
+
+    protected abstract boolean isChannelAlive(C channel);
+
+    protected abstract void closeChannel(C channel);
+
+    protected abstract void closeSession(S session);
+
+    /**
+     * Checks a channel which was idle for longer than {@link #setValidateAfter(long)} with a round trip to
+     * the server. The default relies on {@link #isChannelAlive(Object)}.
+     */
+    protected boolean validate(C channel) {
+        return true;
+    }
+
+    /**
+     * Returns true if an invalidated channel takes its session down even if the session looks alive, for
+     * protocols where the channel is the session itself. The default keeps a live session for other channels.
+     */
+    protected boolean invalidatesSession(C channel) {
+        return false;
+    }
+
+    /*---------- settings --------------*/
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getMaxChannelsPerSession() {
+        return maxChannelsPerSession;
+    }
+
+    /**
+     * Idle channels and sessions are closed after the given time in milliseconds.
+     */
+    public void setIdleTimeout(long millis) {
+        this.idleTimeout = millis;
+        synchronized (lock) {
+            if (sweep != null) {
+                sweep.cancel(false);
+                sweep = null;
+                scheduleSweep();
+            }
+        }
+    }
+
+    /**
+     * {@link #borrow()} fails if no channel gets available within the given time in milliseconds.
+     */
+    public void setBorrowTimeout(long millis) {
+        this.borrowTimeout = millis;
+    }
+
+    /**
+     * Channels idle for longer than the given time in milliseconds are validated with a round trip before
+     * they are handed out.
+     */
+    public void setValidateAfter(long millis) {
+        this.validateAfter = millis;
+    }
+
+    /*---------- pool --------------*/
+
+    /**
+     * Returns a channel for exclusive use until it is given back with {@link #release(Object)} or
+     * {@link #invalidate(Object)}.
+     *
+     * @throws IOException if no session or channel could be opened, or the pool is exhausted for the borrow timeout
+     */
+    public C borrow() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeout);
+        while (true) {
+            ChannelEntry candidate = null;
+            SessionEntry target = null;
+            boolean newSession = false;
+            try {
+                synchronized (lock) {
+                    while (true) {
+                        if (closed) throw new IOException("The pool is closed");
+                        candidate = pollIdle();
+                        if (candidate != null) break;
+
+                        target = sessionWithCapacity();
+                        if (target != null) break;
+                        if (sessions.size() < maxSessions) {
+                            target = new SessionEntry();
+                            sessions.add(target);
+                            newSession = true;
+                            break;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new IOException("No channel available within " + borrowTimeout + " ms, "
+                                    + leased.size() + " channels in use");
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                    // reserve the channel
+                    if (candidate == null) target.channelCount++;
+                }
+            } finally {
+                closePending();
+            }
+            if (candidate == null) return open(target, newSession);
+
+            // the candidate is leased already, so the round trip doesn't hold the lock
+            if (System.currentTimeMillis() - candidate.idleSince < validateAfter || validateQuietly(candidate.channel)) {
+                return candidate.channel;
+            }
+            invalidate(candidate.channel);
+        }
+    }
+
+    private boolean validateQuietly(C channel) {
+        try {
+            return validate(channel);
+        } catch (RuntimeException e) {
+            log.debug("channel validation failed", e);
+            return false;
+        }
+    }
+
+    private C open(SessionEntry target, boolean newSession) throws IOException {
+        C channel = null;
+        try {
+            if (newSession) {
+                S session = openSession();
+                synchronized (lock) {
+                    target.session = session;
+                }
+            }
+            channel = openChannel(target.session);
+        } catch (IOException | RuntimeException e) {
+            synchronized (lock) {
+                target.channelCount--;
+                if (target.session == null || !isAlive(target.session)) target.broken = true;
+                dropIfUnused(target);
+                lock.notifyAll();
+            }
+            closePending();
+            throw e;
+        }
+        synchronized (lock) {
+            leased.put(channel, new ChannelEntry(channel, target));
+            scheduleSweep();
+        }
+        return channel;
+    }
+
+    /**
+     * Gives a borrowed channel back to the pool for the next borrower.
+     */
+    public void release(C channel) {
+        synchronized (lock) {
+            ChannelEntry entry = leased.remove(channel);
+            if (entry == null) throw new IllegalArgumentException("The channel is not borrowed from this pool");
+            if (closed || entry.owner.broken || !isAlive(entry.owner.session) || !isChannelAlive(channel)) {
+                destroy(entry);
+            } else {
+                entry.idleSince = System.currentTimeMillis();
+                entry.owner.idle.addLast(entry);
+            }
+            lock.notifyAll();
+        }
+        closePending();
+    }
+
+    /**
+     * Gives back a borrowed channel which failed, the channel is closed and its session too if it is dead or
+     * {@link #invalidatesSession(Object)}.
+     */
+    public void invalidate(C channel) {
+        synchronized (lock) {
+            ChannelEntry entry = leased.remove(channel);
+            if (entry == null) throw new IllegalArgumentException("The channel is not borrowed from this pool");
+            if (invalidatesSession(channel) || !isAlive(entry.owner.session)) entry.owner.broken = true;
+            destroy(entry);
+            lock.notifyAll();
+        }
+        closePending();
+    }
+
+    /**
+     * Closes the channels and sessions which are idle for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        long limit = System.currentTimeMillis() - idleTimeout;
+        synchronized (lock) {
+            for (SessionEntry session : new ArrayList<>(sessions)) {
+                Iterator<ChannelEntry> iterator = session.idle.iterator();
+                while (iterator.hasNext()) {
+                    ChannelEntry entry = iterator.next();
+                    if (entry.idleSince <= limit) {
+                        iterator.remove();
+                        destroy(entry);
+                    }
+                }
+                if (session.channelCount == 0) {
+                    // no channel left, the session is idle too
+                    session.broken = true;
+                    dropIfUnused(session);
+                }
+            }
+            if (sessions.isEmpty() && sweep != null) {
+                sweep.cancel(false);
+                sweep = null;
+            }
+            lock.notifyAll();
+        }
+        closePending();
+    }
+
+    public int getSessionCount() {
+        synchronized (lock) {
+            return sessions.size();
+        }
+    }
+
+    public int getLeasedCount() {
+        synchronized (lock) {
+            return leased.size();
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (lock) {
+            int count = 0;
+            for (SessionEntry session : sessions) count += session.idle.size();
+            return count;
+        }
+    }
+
+    /**
+     * Closes all idle channels and sessions, borrowed channels are closed when they are given back.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            for (SessionEntry session : new ArrayList<>(sessions)) {
+                session.broken = true;
+                while (!session.idle.isEmpty()) destroy(session.idle.pollLast());
+                dropIfUnused(session);
+            }
+            if (sweep != null) {
+                sweep.cancel(false);
+                sweep = null;
+            }
+            lock.notifyAll();
+        }
+        closePending();
+    }
+
+    /**
+     * Closes the channels and sessions dropped under the lock, called without the lock.
+     */
+    private void closePending() {
+        List<Runnable> closers;
+        synchronized (lock) {
+            if (pendingClose.isEmpty()) return;
+            closers = new ArrayList<>(pendingClose);
+            pendingClose.clear();
+        }
+        for (Runnable closer : closers) closer.run();
+    }
+
+    /*---------- internal, called with the lock held --------------*/
+
+    /**
+     * Leases the most recently used idle channel which passes the local health checks, so surplus channels age
+     * out. The caller validates it with a round trip if it was idle for too long.
+     */
+    private ChannelEntry pollIdle() {
+        for (SessionEntry session : sessions) {
+            ChannelEntry entry;
+            while ((entry = session.idle.pollLast()) != null) {
+                if (!session.broken && isAlive(session.session) && isChannelAlive(entry.channel)) {
+                    leased.put(entry.channel, entry);
+                    return entry;
+                }
+                if (!isAlive(session.session)) session.broken = true;
+                destroy(entry);
+            }
+        }
+        return null;
+    }
+
+    private SessionEntry sessionWithCapacity() {
+        for (SessionEntry session : sessions) {
+            if (session.session != null && !session.broken && session.channelCount < maxChannelsPerSession
+                    && isAlive(session.session)) return session;
+        }
+        return null;
+    }
+
+    private void destroy(ChannelEntry entry) {
+        C channel = entry.channel;
+        pendingClose.add(() -> {
+            try {
+                closeChannel(channel);
+            } catch (RuntimeException e) {
+                log.debug("can't close channel", e);
+            }
+        });
+        entry.owner.channelCount--;
+        if (closed) entry.owner.broken = true;
+        dropIfUnused(entry.owner);
+    }
+
+    private void dropIfUnused(SessionEntry session) {
+        if (session.channelCount > 0 || !session.broken) return;
+        sessions.remove(session);
+        S toClose = session.session;
+        if (toClose != null) {
+            pendingClose.add(() -> {
+                try {
+                    closeSession(toClose);
+                } catch (RuntimeException e) {
+                    log.debug("can't close session", e);
+                }
+            });
+        }
+    }
+
+    private void scheduleSweep() {
+        if (sweep != null || closed) return;
+        long period = Math.max(1000, idleTimeout / 2);
+        sweep = SWEEPER.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+}
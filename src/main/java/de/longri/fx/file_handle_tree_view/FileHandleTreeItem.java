@@ -48,10 +48,10 @@ public class FileHandleTreeItem extends TreeItem<String> {
     private FileHandleTreeItem(FileTransferHandle fileTransferHandle, boolean expand) {
         super(getName(fileTransferHandle));
         fth = fileTransferHandle;
-        isDir = fth.isDirectory();
+        isDir = isDirectory(fth);
 
         if (isDir) {
-            if (fth.list(DIR_FILTER).length > 0) {
+            if (listDirs(fth).length > 0) {
                 setGraphic(DirectoryIcons.CLOSED_PLUS.get(16));
             } else {
                 setGraphic(DirectoryIcons.CLOSED.get(16));
@@ -64,17 +64,17 @@ public class FileHandleTreeItem extends TreeItem<String> {
                 setGraphic(DirectoryIcons.OPEN.get(16));
                 //load tree items from file transfer handle (only folder's)
                 FileHandleTreeItem.this.getChildren().clear(); // remove first! don't add double
-                FileTransferHandle[] ls = fth.list(DIR_FILTER);
+                FileTransferHandle[] ls = listDirs(fth);
                 //creat for each fth a treeItem and add as child
                 for (FileTransferHandle d : ls) {
                     FileHandleTreeItem treeItem = new FileHandleTreeItem(d, false);
-                    String lstr = treeItem.fth.isDirectory() ? "is Directory" : "is File";
+                    String lstr = treeItem.isDir ? "is Directory" : "is File";
                     log.debug("add fileTreeItem: {} [{}] ", treeItem, lstr);
                     FileHandleTreeItem.this.getChildren().add(treeItem);
 
                     if (treeItem.isDir) {
                         log.debug("   >Tree Item is directory, so read child's");
-                        FileTransferHandle[] dirs = treeItem.fth.list(DIR_FILTER);
+                        FileTransferHandle[] dirs = listDirs(treeItem.fth);
                         for (FileTransferHandle di : dirs) {
                             log.debug("      >add fileTreeItem: {}", di);
                             treeItem.getChildren().add(new FileHandleTreeItem(di, false));
@@ -90,6 +90,30 @@ public class FileHandleTreeItem extends TreeItem<String> {
         if (expand) Platform.runLater(() -> expandedProperty().set(true));
     }
 
+    /**
+     * A handle which can't be stated, e.g. after a network error, shows as a file.
+     */
+    private static boolean isDirectory(FileTransferHandle handle) {
+        try {
+            return handle.isDirectory();
+        } catch (RuntimeException e) {
+            log.warn("can't stat {}", handle, e);
+            return false;
+        }
+    }
+
+    /**
+     * Lists the sub directories, a directory which can't be listed, e.g. after a network error, shows no children.
+     */
+    private FileTransferHandle[] listDirs(FileTransferHandle handle) {
+        try {
+            return handle.list(DIR_FILTER);
+        } catch (RuntimeException e) {
+            log.warn("can't list {}", handle, e);
+            return new FileTransferHandle[0];
+        }
+    }
+
     @Override
     public String toString() {
         return "TreeItem: " + fth;
@@ -27,6 +27,7 @@ import de.longri.filetransfer.*;
 import de.longri.serializable.BitStore;
 import de.longri.serializable.NotImplementedException;
 import de.longri.serializable.StoreBase;
+import de.longri.serializable.StorePool;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -569,14 +570,16 @@ public class FileTransferChooser extends SelfLoading_Controller implements Initi
                 cred = new Credentials(servername, "", sharename, username, domain, password);
 
                 if (fxCheckBoxRemember.isSelected() && PREF != null) {
-                    StoreBase storeBase = new BitStore();
+                    BitStore storeBase = StorePool.BIT.borrow();
                     try {
                         cred.store(storeBase);
+                        String credStoreString = storeBase.getBase64String();
+                        PREF.put(KEY_SMB_CREDENTIAL_STORE, credStoreString);
                     } catch (NotImplementedException ex) {
                         throw new RuntimeException(ex);
+                    } finally {
+                        StorePool.BIT.release(storeBase);
                     }
-                    String credStoreString = storeBase.getBase64String();
-                    PREF.put(KEY_SMB_CREDENTIAL_STORE, credStoreString);
                 }
 
                 actFTH = new SMB_FileTransferHandle(cred, "/");
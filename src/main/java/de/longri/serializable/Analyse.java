@@ -20,7 +20,11 @@ package de.longri.serializable;
 
 /**
  * Created by Hoepfner on 16.11.2015.
+ *
+ * @deprecated single cold runs measured with {@link System#currentTimeMillis()} don't show regressions,
+ * use the JMH benchmarks in src/jmh ({@code gradle jmh}) instead.
  */
+@Deprecated
 public class Analyse {
 
     private final Serializable seri;
@@ -38,6 +42,34 @@ public class Analyse {
         printTime("ZippedBitStore          = ", this.seri, new ZippedBitStore());
         printTime("BitStoreZippedString    = ", this.seri, new BitStoreZippedString());
         printTime("ZippedVariableByteStore = ", this.seri, new ZippedVariableByteStore());
+        printCodecAnalyse();
+    }
+
+    /**
+     * Prints size, encode and decode time of every registered codec on the payload of the uncompressed stores.
+     */
+    public void printCodecAnalyse() {
+        StoreBase[] stores = {new NormalStore(), new VariableByteStore(), new BitStore()};
+        for (StoreBase store : stores) {
+            try {
+                seri.serialize(store);
+                byte[] payload = store.getArray();
+                String storeName = store.getClass().getSimpleName();
+                for (Codec codec : Codecs.values()) {
+                    long start = System.nanoTime();
+                    byte[] encoded = codec.encode(payload, 0, payload.length);
+                    long encodeNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    codec.decode(encoded, 0, encoded.length);
+                    long decodeNanos = System.nanoTime() - start;
+                    System.out.println(String.format("%-24s= %d bytes at %d ms (decode %d ms)",
+                            storeName + " + " + codec.getName(), encoded.length,
+                            encodeNanos / 1000000, decodeNanos / 1000000));
+                }
+            } catch (NotImplementedException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     public void printTime(String name, Serializable seri, StoreBase store) {
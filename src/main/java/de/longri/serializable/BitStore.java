@@ -19,8 +19,16 @@
 package de.longri.serializable;
 
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Created by Longri on 05.11.15.
+ * <p/>
+ * Bits are written MSB first. The writer collects them in a 64-bit accumulator and flushes whole words to the buffer,
+ * the reader extracts any bit field of up to 64 bits with one word load.
  */
 public class BitStore extends StoreBase {
 
@@ -29,6 +37,8 @@ public class BitStore extends StoreBase {
     final static Number SHORT = new Number(true, 4, 16, Short.MIN_VALUE);
     final static int ADDITIONAL_STRING_VALUE = 32;
 
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     public enum Bitmask {
         BIT_0((byte) (1 << 0)), BIT_1((byte) (1 << 1)), BIT_2((byte) (1 << 2)), BIT_3((byte) (1 << 3)),
         BIT_4((byte) (1 << 4)), BIT_5((byte) (1 << 5)), BIT_6((byte) (1 << 6)), BIT_7((byte) (1 << 7));
@@ -39,33 +49,33 @@ public class BitStore extends StoreBase {
         }
     }
 
-    private class Pointer {
-        int _Byte = 0;
-        int _Bit = 0;
-
-        @Override
-        public String toString() {
-            return "" + _Byte + " | " + _Bit;
-        }
-    }
+    // write position: bits not yet flushed, left aligned, and the byte index of the first accumulator byte
+    private long accumulator;
+    private int accumulatorBits;
+    private int wordIndex;
 
-    private final Pointer pointer = new Pointer();
+    // read position in bits
+    private long readPointer;
 
+    /**
+     * Moves the write position by the given count of zero bits.
+     */
     protected void movePointer(int i) {
-        if (pointer._Bit + i > 7) {
-            long allBit = pointer._Byte * 8 + pointer._Bit + i;
-            pointer._Byte = (int) (allBit / 8);
-            pointer._Bit = (int) (allBit % 8);
-        } else {
-            pointer._Bit += i;
+        while (i > 0) {
+            int n = Math.min(i, 64);
+            writeBits(0, n);
+            i -= n;
         }
-        size = pointer._Byte + 1;
     }
 
     public BitStore(byte[] array) {
         super(array);
     }
 
+    protected BitStore(byte[] values, int length) {
+        super(values, length);
+    }
+
     public BitStore() {
         super();
     }
@@ -75,123 +85,148 @@ public class BitStore extends StoreBase {
     }
 
     @Override
-    protected void _write(boolean b) throws NotImplementedException {
-        if (b) {
-            buffer[pointer._Byte] |= getBitmask().value;
+    public void reset() {
+        super.reset();
+        accumulator = 0;
+        accumulatorBits = 0;
+        wordIndex = 0;
+        readPointer = 0;
+    }
+
+    /**
+     * Appends the lowest n bits (1..64) of the given value.
+     */
+    private void writeBits(long value, int n) {
+        if (n < 64) value &= (1L << n) - 1;
+        int free = 64 - accumulatorBits;
+        if (n < free) {
+            accumulator |= value << (free - n);
+            accumulatorBits += n;
         } else {
-            buffer[pointer._Byte] &= ~getBitmask().value;
+            int rest = n - free;
+            accumulator |= value >>> rest;
+            LONG_VIEW.set(buffer, wordIndex, accumulator);
+            wordIndex += 8;
+            accumulator = rest == 0 ? 0 : value << (64 - rest);
+            accumulatorBits = rest;
         }
-        movePointer(1);
+        size = wordIndex + (accumulatorBits >>> 3) + 1;
     }
 
+    /**
+     * Reads the next n bits (1..64).
+     */
+    private long readBits(int n) {
+        int byteIndex = (int) (readPointer >>> 3);
+        int shift = (int) (readPointer & 7);
+        // reading the own writes, the last bits are still in the accumulator
+        if (accumulatorBits != 0 && byteIndex + 9 > wordIndex) flushAccumulator();
+        long word = readWord(byteIndex) << shift;
+        if (shift + n > 64) word |= (getBufferByte(byteIndex + 8) & 0xffL) >>> (8 - shift);
+        readPointer += n;
+        return word >>> (64 - n);
+    }
 
-    @Override
-    protected void _write(Byte b) throws NotImplementedException {
+    private long readWord(int byteIndex) {
+        if (byteIndex + 8 <= buffer.length) return (long) LONG_VIEW.get(buffer, byteIndex);
+        long word = 0;
+        for (int i = 0; i < 8; i++) {
+            word = word << 8 | (getBufferByte(byteIndex + i) & 0xffL);
+        }
+        return word;
+    }
 
-        boolean state = b > 15 || b < 0;
-        if (state) write(true);
-        else write(false);
+    /**
+     * Writes the accumulator bytes to the buffer, without moving the write position.
+     */
+    private void flushAccumulator() {
+        if (buffer == null) return;
+        for (int i = 0, n = Math.min(8, buffer.length - wordIndex); i < n; i++) {
+            buffer[wordIndex + i] = (byte) (accumulator >>> (56 - 8 * i));
+        }
+    }
 
+    @Override
+    protected void ensureCapacity(int additionalCapacity) {
+        // reserve room for a full accumulator word
+        super.ensureCapacity(additionalCapacity + 8);
+    }
 
-        if (state) write((b & Bitmask.BIT_7.value) == Bitmask.BIT_7.value);
-        if (state) write((b & Bitmask.BIT_6.value) == Bitmask.BIT_6.value);
-        if (state) write((b & Bitmask.BIT_5.value) == Bitmask.BIT_5.value);
-        if (state) write((b & Bitmask.BIT_4.value) == Bitmask.BIT_4.value);
-        write((b & Bitmask.BIT_3.value) == Bitmask.BIT_3.value);
-        write((b & Bitmask.BIT_2.value) == Bitmask.BIT_2.value);
-        write((b & Bitmask.BIT_1.value) == Bitmask.BIT_1.value);
-        write((b & Bitmask.BIT_0.value) == Bitmask.BIT_0.value);
+    @Override
+    protected void trimToSize() {
+        flushAccumulator();
+        super.trimToSize();
     }
 
+    @Override
+    protected ByteBuffer payload() throws NotImplementedException {
+        flushAccumulator();
+        return super.payload();
+    }
 
     @Override
-    protected void _write(Short s) throws NotImplementedException {
-        boolean negative = false;
-        if (s < 0) {
-            negative = true;
-            if (s == Short.MIN_VALUE) s = 0;
-            else
-                s = (short) -s;
-        }
-        byte[] bytes = new byte[]{0, (byte) (s >> 8), (byte) (s >> 0)};
-        writeValue(negative, bytes, SHORT);
+    protected ByteBuffer detachContent() throws NotImplementedException {
+        flushAccumulator();
+        return super.detachContent();
     }
 
     @Override
-    protected void _write(Integer i) throws NotImplementedException {
-        boolean negative = false;
-        if (i < 0) {
-            negative = true;
-            if (i == Integer.MIN_VALUE) i = 0;
-            else
-                i = -i;
-        }
-        byte[] bytes = new byte[]{0, (byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) (i >> 0)};
-        writeValue(negative, bytes, INTEGER);
+    protected SealedStore.ReaderFactory readerFactory() throws NotImplementedException {
+        return (content, offset) -> {
+            BitStore reader = new BitStore(content.array(), content.limit());
+            reader.readPointer = offset * 8L;
+            return reader;
+        };
     }
 
+    /**
+     * Moves the read position to the given bit.
+     */
+    void setReadPointer(long bit) {
+        readPointer = bit;
+    }
 
     @Override
-    protected void _write(Long l) throws NotImplementedException {
-        boolean negative = false;
-        if (l < 0) {
-            negative = true;
-            if (l == Long.MIN_VALUE) l = 0L;
-            else
-                l = -l;
-        }
+    protected void _write(boolean b) throws NotImplementedException {
+        writeBits(b ? 1 : 0, 1);
+    }
 
-        byte[] bytes = new byte[]{0, (byte) (l >> 56), (byte) (l >> 48), (byte) (l >> 40),
-                (byte) (l >> 32), (byte) (l >> 24), (byte) (l >> 16), (byte) (l >> 8), (byte) (l >> 0)};
 
-        writeValue(negative, bytes, LONG);
+    @Override
+    protected void _write(byte b) throws NotImplementedException {
+        // one state bit, followed by all eight bits or only the lower four bits for values 0..15
+        if (b > 15 || b < 0) writeBits(0x100 | (b & 0xff), 9);
+        else writeBits(b, 5);
     }
 
-    private void writeValue(boolean negative, byte[] bytes, Number numberType) throws NotImplementedException {
-        // write one bit vor negative/positive value
-        if (numberType.writeNegative) write(negative);
-        ByteArray nineBytes = new ByteArray(bytes);
 
-        byte count = (byte) nineBytes.bitLength();
-        if (count == 0) count = 1;
-        if (count >= numberType.bitCount) {
-            //don't write, only move Pointer
-            movePointer(numberType.pointerMove);
-        } else {
-            //write count bits
-            if (numberType.pointerMove > 5) write((count & Bitmask.BIT_5.value) == Bitmask.BIT_5.value);
-            if (numberType.pointerMove > 4) write((count & Bitmask.BIT_4.value) == Bitmask.BIT_4.value);
-            if (numberType.pointerMove > 3) write((count & Bitmask.BIT_3.value) == Bitmask.BIT_3.value);
-            write((count & Bitmask.BIT_2.value) == Bitmask.BIT_2.value);
-            write((count & Bitmask.BIT_1.value) == Bitmask.BIT_1.value);
-            write((count & Bitmask.BIT_0.value) == Bitmask.BIT_0.value);
-        }
+    @Override
+    protected void _write(short s) throws NotImplementedException {
+        writeValue(s, SHORT);
+    }
 
+    @Override
+    protected void _write(int i) throws NotImplementedException {
+        writeValue(i, INTEGER);
+    }
 
-        if (nineBytes.longValue() == 0) {
-            // we must nothing write, move only Pointer
-        } else {
-            //shift to the right pointer
-            nineBytes.shiftLeft(((numberType.bitCount + 8) - count) - pointer._Bit);
 
-            int byteLengthToWriteBack = (nineBytes.bitLength() / 8) + 1;
-            byte[] readBuffer = new byte[byteLengthToWriteBack];
-            for (int i = 0; i < byteLengthToWriteBack; i++) {
-                readBuffer[i] = getBufferByte(pointer._Byte + i);
-            }
-            ByteArray bufferValueByteArray = new ByteArray(readBuffer);
-            bufferValueByteArray.or(nineBytes);
+    @Override
+    protected void _write(long l) throws NotImplementedException {
+        writeValue(l, LONG);
+    }
 
-            byte[] b = bufferValueByteArray.toByteArray();
+    private void writeValue(long value, Number numberType) {
+        // one bit for negative/positive value, the MIN_VALUE is stored as negative zero
+        boolean negative = value < 0;
+        long magnitude = negative ? (value == numberType.minValue ? 0 : -value) : value;
 
-            //write back to Buffer
-            for (int i = 0; i < b.length; i++) {
-                setBufferByte(pointer._Byte + i, b[i]);
-            }
-        }
+        int count = 64 - Long.numberOfLeadingZeros(magnitude);
+        if (count == 0) count = 1;
 
-        //move Pointer
-        movePointer(count);
+        // sign bit and bit count in one go, followed by count bits of the value
+        writeBits((negative ? 1L << numberType.pointerMove : 0) | count, numberType.pointerMove + 1);
+        writeBits(magnitude, count);
     }
 
 
@@ -199,98 +234,49 @@ public class BitStore extends StoreBase {
     protected void _write(String s) throws NotImplementedException {
 
         if (s == null) {
-            write(true); // is short
-            write(true); // is int
-            // both are null string
+            // both flags set is a null string
+            writeBits(3, 2);
             return;
         }
 
         int length = s.length();
-        char[] cars = new char[length];
-        s.getChars(0, length, cars, 0);
-
-        int[] casAsInt = new int[length];
-
-        int index = 0;
-        for (char c : cars) {
-            casAsInt[index++] = (int) c;
-        }
 
         //Check store as Byte, Short or Integer
         boolean mustInt = false;
         boolean mustShort = false;
-        for (int i : casAsInt) {
-            if (i > Byte.MAX_VALUE) mustShort = true;
-            if (i > Short.MAX_VALUE) mustInt = true;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c > Byte.MAX_VALUE) mustShort = true;
+            if (c > Short.MAX_VALUE) mustInt = true;
         }
 
-        write(mustInt);
-        write(mustShort);
-        //write(ADDITIONAL_STRING_VALUE);
-        write(length);
+        // a char needs at most 37 bits as int value
+        ensureCapacity(length * 5 + 8);
+
+        writeBits(mustInt ? 1 : 0, 1);
+        writeBits(mustShort ? 1 : 0, 1);
+        writeValue(length, INTEGER);
 
-        for (int i : casAsInt) {
+        for (int i = 0; i < length; i++) {
+            int c = s.charAt(i);
             if (mustInt) {
-                write(i - ADDITIONAL_STRING_VALUE);
+                writeValue(c - ADDITIONAL_STRING_VALUE, INTEGER);
             } else if (mustShort) {
-                write((short) (i - ADDITIONAL_STRING_VALUE));
+                writeValue((short) (c - ADDITIONAL_STRING_VALUE), SHORT);
             } else {
-                write((byte) (i - ADDITIONAL_STRING_VALUE));
+                _write((byte) (c - ADDITIONAL_STRING_VALUE));
             }
         }
-
-        //System.out.print("Additional Value = " + ADDITIONAL_STRING_VALUE);
-
     }
 
     @Override
     public boolean readBool() throws NotImplementedException {
-        Bitmask bit = getBitmask();
-        boolean ret = (buffer[pointer._Byte] & bit.value) == bit.value;
-        movePointer(1);
-        return ret;
+        return readBits(1) != 0;
     }
 
     @Override
     public byte readByte() throws NotImplementedException {
-
-        boolean state = readBool();
-
-
-        byte b = 0;
-        if (state) {
-            if (readBool()) b |= Bitmask.BIT_7.value;
-            else b &= ~Bitmask.BIT_7.value;
-        }
-
-        if (state) {
-            if (readBool()) b |= Bitmask.BIT_6.value;
-            else b &= ~Bitmask.BIT_6.value;
-        }
-
-        if (state) {
-            if (readBool()) b |= Bitmask.BIT_5.value;
-            else b &= ~Bitmask.BIT_5.value;
-        }
-
-        if (state) {
-            if (readBool()) b |= Bitmask.BIT_4.value;
-            else b &= ~Bitmask.BIT_4.value;
-        }
-
-        if (readBool()) b |= Bitmask.BIT_3.value;
-        else b &= ~Bitmask.BIT_3.value;
-
-        if (readBool()) b |= Bitmask.BIT_2.value;
-        else b &= ~Bitmask.BIT_2.value;
-
-        if (readBool()) b |= Bitmask.BIT_1.value;
-        else b &= ~Bitmask.BIT_1.value;
-
-        if (readBool()) b |= Bitmask.BIT_0.value;
-        else b &= ~Bitmask.BIT_0.value;
-
-        return b;
+        return (byte) (readBits(1) != 0 ? readBits(8) : readBits(4));
     }
 
     @Override
@@ -308,73 +294,23 @@ public class BitStore extends StoreBase {
         return readValue(LONG);
     }
 
-    private long readValue(Number numberType) throws NotImplementedException {
-        // read if Negative value
-        boolean isNegative = numberType.writeNegative ? readBool() : false;
-
-        //read count
-        byte count = 0;
-
-        int byteBegin = pointer._Byte;
-        int bitBegin = pointer._Bit;
-
-        if (numberType.pointerMove > 5) {
-            if (readBool()) count |= Bitmask.BIT_5.value;
-            else count &= ~Bitmask.BIT_5.value;
-        }
-
-        if (numberType.pointerMove > 4) {
-            if (readBool()) count |= Bitmask.BIT_4.value;
-            else count &= ~Bitmask.BIT_4.value;
-        }
-
-        if (numberType.pointerMove > 3) {
-            if (readBool()) count |= Bitmask.BIT_3.value;
-            else count &= ~Bitmask.BIT_3.value;
-        }
-
-        if (readBool()) count |= Bitmask.BIT_2.value;
-        else count &= ~Bitmask.BIT_2.value;
-
-        if (readBool()) count |= Bitmask.BIT_1.value;
-        else count &= ~Bitmask.BIT_1.value;
-
-        if (readBool()) count |= Bitmask.BIT_0.value;
-        else count &= ~Bitmask.BIT_0.value;
-
-
-//        if (count == 0) count = (byte) numberType.bitCount;
+    private long readValue(Number numberType) {
+        long header = readBits(numberType.pointerMove + 1);
+        boolean isNegative = (header >>> numberType.pointerMove) != 0;
+        int count = (int) (header & ((1 << numberType.pointerMove) - 1));
         if (count == 0) count = 1;
 
-
-        int readByteArrayLength = ((count + numberType.pointerMove) / 8) + 2;
-        byte[] ba = new byte[readByteArrayLength];
-
-        for (int i = 0; i < readByteArrayLength; i++) {
-            ba[i] = getBufferByte(byteBegin + i);
-        }
-
-        ByteArray bufferValueByteArray = new ByteArray(ba);
-
-//shift left for pointer
-        bufferValueByteArray.shiftLeft(bitBegin + numberType.pointerMove);
-
-//shift right to the first pos
-        bufferValueByteArray.shiftRight(readByteArrayLength * 8 - (count));
-
-        long retValue = bufferValueByteArray.longValue();
+        long retValue = readBits(count);
         if (isNegative) {
             if (retValue == 0) retValue = numberType.minValue;
             else
-                retValue = (long) -retValue;
+                retValue = -retValue;
         }
-        //move Pointer
-        movePointer(count);
         return retValue;
     }
 
     @Override
-    public String readString() throws NotImplementedException {
+    protected String _readString() throws NotImplementedException {
         boolean mustInt = readBool();
         boolean mustShort = readBool();
 
@@ -383,55 +319,20 @@ public class BitStore extends StoreBase {
             return null;
         }
 
-
         int length = readInt();
 
         char[] cars = new char[length];
 
         for (int i = 0; i < length; i++) {
             if (mustInt) {
-                cars[i] = (char) (readInt() + ADDITIONAL_STRING_VALUE);
+                cars[i] = (char) ((int) readValue(INTEGER) + ADDITIONAL_STRING_VALUE);
             } else if (mustShort) {
-                cars[i] = (char) (readShort() + ADDITIONAL_STRING_VALUE);
+                cars[i] = (char) ((short) readValue(SHORT) + ADDITIONAL_STRING_VALUE);
             } else {
-                byte b = readByte();
-                cars[i] = (char) (b + ADDITIONAL_STRING_VALUE);
+                cars[i] = (char) (readByte() + ADDITIONAL_STRING_VALUE);
             }
         }
-        String ret = String.copyValueOf(cars);
-
-        return ret;
-    }
-
-    private Bitmask getBitmask() {
-        Bitmask bit = Bitmask.BIT_7;
-        switch (pointer._Bit) {
-            case 0:
-                bit = Bitmask.BIT_7;
-                break;
-            case 1:
-                bit = Bitmask.BIT_6;
-                break;
-            case 2:
-                bit = Bitmask.BIT_5;
-                break;
-            case 3:
-                bit = Bitmask.BIT_4;
-                break;
-            case 4:
-                bit = Bitmask.BIT_3;
-                break;
-            case 5:
-                bit = Bitmask.BIT_2;
-                break;
-            case 6:
-                bit = Bitmask.BIT_1;
-                break;
-            case 7:
-                bit = Bitmask.BIT_0;
-                break;
-        }
-        return bit;
+        return String.valueOf(cars);
     }
 
     private byte getBufferByte(int byteIndex) {
@@ -439,11 +340,6 @@ public class BitStore extends StoreBase {
         return buffer[byteIndex];
     }
 
-    private void setBufferByte(int byteIndex, byte _byte) {
-        if (byteIndex >= buffer.length) return;
-        buffer[byteIndex] = _byte;
-    }
-
     private static class Number {
         final int pointerMove;
         final int bitCount;
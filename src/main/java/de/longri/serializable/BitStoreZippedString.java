@@ -18,55 +18,73 @@
  */
 package de.longri.serializable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 /**
  * Created by Longri on 15.11.15.
  */
 public class BitStoreZippedString extends BitStore {
 
+    // no header per string, reader and writer must use the same codec
+    private final Codec codec;
 
     public BitStoreZippedString(byte[] array) {
+        this(array, Codecs.DEFLATE);
+    }
+
+    public BitStoreZippedString(byte[] array, Codec codec) {
         super(array);
+        this.codec = codec;
     }
 
     public BitStoreZippedString() {
+        this(Codecs.DEFLATE);
+    }
+
+    public BitStoreZippedString(Codec codec) {
         super();
+        this.codec = codec;
+    }
+
+    private BitStoreZippedString(byte[] values, int length, Codec codec) {
+        super(values, length);
+        this.codec = codec;
     }
 
     public BitStoreZippedString(String base64) {
         super(base64);
+        this.codec = Codecs.DEFLATE;
+    }
+
+    @Override
+    protected SealedStore.ReaderFactory readerFactory() {
+        Codec codec = this.codec;
+        return (content, offset) -> {
+            BitStoreZippedString reader = new BitStoreZippedString(content.array(), content.limit(), codec);
+            reader.setReadPointer(offset * 8L);
+            return reader;
+        };
     }
 
     @Override
     protected void _write(String s) throws NotImplementedException {
 
-        byte[] bytes = compress(s.getBytes(UTF8_CHARSET));
+        byte[] utf8 = s.getBytes(UTF8_CHARSET);
+        byte[] bytes = codec.encode(utf8, 0, utf8.length);
         _write(bytes.length);
-
-        for (byte b : bytes) {
-            write(b);
-        }
+        write(bytes, 0, bytes.length);
     }
 
     @Override
-    public String readString() throws NotImplementedException {
+    protected String _readString() throws NotImplementedException {
 
         int length = readInt();
 
         byte[] bytes = new byte[length];
+        readBytes(bytes, 0, length);
 
-        for (int i = 0; i < length; i++) {
-            bytes[i] = readByte();
-        }
-
-        byte[] stringBytes = decompress(bytes);
+        byte[] stringBytes = codec.decode(bytes, 0, length);
 
         return new String(stringBytes, 0, stringBytes.length, StandardCharsets.UTF_8);
 
@@ -74,52 +92,10 @@ public class BitStoreZippedString extends BitStore {
     }
 
     public static byte[] compress(byte[] data) {
-        Deflater deflater = new Deflater();
-        deflater.setInput(data);
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-
-        deflater.finish();
-        byte[] buffer = new byte[1024];
-        while (!deflater.finished()) {
-            int count = deflater.deflate(buffer); // returns the generated code... index
-            outputStream.write(buffer, 0, count);
-        }
-        try {
-            outputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        byte[] output = outputStream.toByteArray();
-
-        deflater.end();
-
-        return output;
+        return ZipStage.compress(data, 0, data.length, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
     }
 
     public static byte[] decompress(byte[] data) {
-        Inflater inflater = new Inflater();
-        inflater.setInput(data);
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] buffer = new byte[1024];
-        while (!inflater.finished()) {
-            int count = 0;
-            try {
-                count = inflater.inflate(buffer);
-            } catch (DataFormatException e) {
-                e.printStackTrace();
-            }
-            outputStream.write(buffer, 0, count);
-        }
-        try {
-            outputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        byte[] output = outputStream.toByteArray();
-
-        inflater.end();
-        return output;
+        return ZipStage.decompress(data);
     }
 }
@@ -18,6 +18,9 @@
  */
 package de.longri.serializable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -29,6 +32,8 @@ public class ByteArray {
         or, and
     }
 
+    private static final VarHandle WORD = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     private final int fixByteCount;
 
     private byte[] bytes;
@@ -95,28 +100,10 @@ public class ByteArray {
     }
 
     public int bitLength() {
-        int length = 0;
-        int index = 0;
-        int lastNonZero = 0;
-
-        for (int i = this.fixByteCount - 1; i > -1; i--) {
-            if (this.bytes[i] != 0) {
-                lastNonZero = index;
-            }
-            index++;
-        }
-
-
-        length = 8 * lastNonZero;
-
-        //count last bit's
-        int count = 0;
-        byte v = this.bytes[this.fixByteCount - lastNonZero - 1];
-        while (v != 0) {
-            count++;
-            v = (byte) ((v & 0xff) >>> 1);
-        }
-        return length + count;
+        int i = 0;
+        while (i + 8 < fixByteCount && (long) WORD.get(bytes, i) == 0) i += 8;
+        while (i < fixByteCount - 1 && bytes[i] == 0) i++;
+        return 8 * (fixByteCount - i - 1) + 32 - Integer.numberOfLeadingZeros(bytes[i] & 0xff);
     }
 
     public void or(ByteArray other) {
@@ -127,22 +114,41 @@ public class ByteArray {
         bitOperation(operator.and, other);
     }
 
+    /**
+     * The arrays are aligned at index 0, if the other array is longer, the last fixByteCount bytes of the result are kept.
+     * Works in place on this array, eight bytes per step.
+     */
     private void bitOperation(operator op, ByteArray other) {
-        byte[] result = new byte[Math.max(this.bytes.length, other.bytes.length)];
-        for (int i = 0; i < result.length; i++) {
-            byte b1 = this.bytes.length > i ? this.bytes[i] : 0;
-            byte b2 = other.bytes.length > i ? other.bytes[i] : 0;
-            if (op == operator.or) result[i] = (byte) (b1 | b2);
-            if (op == operator.and) result[i] = (byte) (b1 & b2);
+        byte[] o = other.bytes;
+        if (o.length > fixByteCount) {
+            // the last bytes of a longer result, reads are never below the written index
+            int offset = o.length - fixByteCount;
+            for (int i = 0; i < fixByteCount; i++) {
+                int j = offset + i;
+                byte b = j < fixByteCount ? bytes[j] : 0;
+                bytes[i] = (byte) (op == operator.or ? b | o[j] : b & o[j]);
+            }
+            return;
         }
-
-        if (result.length > this.fixByteCount) {
-            this.bytes = Arrays.copyOfRange(result, result.length - this.fixByteCount, result.length);
+        int common = o.length;
+        int i = 0;
+        if (op == operator.or) {
+            for (; i + 8 <= common; i += 8) {
+                WORD.set(bytes, i, (long) WORD.get(bytes, i) | (long) WORD.get(o, i));
+            }
+            for (; i < common; i++) bytes[i] |= o[i];
         } else {
-            this.bytes = result;
+            for (; i + 8 <= common; i += 8) {
+                WORD.set(bytes, i, (long) WORD.get(bytes, i) & (long) WORD.get(o, i));
+            }
+            for (; i < common; i++) bytes[i] &= o[i];
+            Arrays.fill(bytes, common, fixByteCount, (byte) 0);
         }
     }
 
+    /**
+     * Shifts the whole array n bits towards index 0, in place and eight bytes per step.
+     */
     public void shiftLeft(int n) {
 
         int nb = n / 8;
@@ -153,33 +159,27 @@ public class ByteArray {
             return;
         }
 
-        int n1 = (n % 8);
-        int n2 = 8 - n1;
-
-        byte[] overflow = Arrays.copyOf(Arrays.copyOfRange(this.bytes, 1, this.fixByteCount), this.fixByteCount);
+        int bits = n % 8;
+        int length = fixByteCount - nb;
         int i = 0;
-        for (byte b : overflow) {
-            overflow[i++] = (byte) ((b & 0xff) >>> n2);
+        // the source index is never below the target index, so ascending steps only read unchanged bytes
+        for (; i + 8 < length; i += 8) {
+            long word = (long) WORD.get(bytes, i + nb);
+            if (bits != 0) word = word << bits | (bytes[i + nb + 8] & 0xff) >>> (8 - bits);
+            WORD.set(bytes, i, word);
         }
-        i = 0;
-        for (byte b : this.bytes) {
-            this.bytes[i++] = (byte) ((b & 0xff) << n1);
+        for (; i < length; i++) {
+            int value = (bytes[i + nb] & 0xff) << bits;
+            if (bits != 0 && i + nb + 1 < fixByteCount) value |= (bytes[i + nb + 1] & 0xff) >>> (8 - bits);
+            bytes[i] = (byte) value;
         }
-        or(new ByteArray(overflow));
-
-        if (nb == 0) return;
-
-        //Byte Shift
-        System.arraycopy(this.bytes, nb, this.bytes, 0, this.bytes.length - nb);
         //fill zero bytes
-        for (i = this.fixByteCount - 1; i > this.fixByteCount - nb - 1; i--)
-            this.bytes[i] = 0;
-
-
-        System.out.print("");
-
+        Arrays.fill(bytes, length, fixByteCount, (byte) 0);
     }
 
+    /**
+     * Shifts the whole array n bits towards the last index, in place and eight bytes per step.
+     */
     public void shiftRight(int n) {
 
         int nb = n / 8;
@@ -189,100 +189,65 @@ public class ByteArray {
             return;
         }
 
-        int n1 = (n % 8);
-        int n2 = 8 - n1;
-
-        byte[] o = Arrays.copyOfRange(this.bytes, 0, this.fixByteCount - 1);
-        byte[] overflow = new byte[o.length + 1];
-        int i = 1;
-        for (byte b : o) overflow[i++] = b;
-
-        i = 0;
-        for (byte b : overflow) {
-            overflow[i++] = (byte) ((b & 0xff) << n2);
+        int bits = n % 8;
+        int i = fixByteCount - 1;
+        // the source index is never above the target index, so descending steps only read unchanged bytes
+        for (; i - 8 >= nb; i -= 8) {
+            long word = (long) WORD.get(bytes, i - nb - 7);
+            if (bits != 0) word = word >>> bits | (long) bytes[i - nb - 8] << (64 - bits);
+            WORD.set(bytes, i - 7, word);
         }
-        i = 0;
-        for (byte b : this.bytes) {
-            this.bytes[i++] = (byte) ((b & 0xff) >>> n1);
+        for (; i >= nb; i--) {
+            int value = (bytes[i - nb] & 0xff) >>> bits;
+            if (bits != 0 && i - nb > 0) value |= bytes[i - nb - 1] << (8 - bits);
+            bytes[i] = (byte) value;
         }
-        or(new ByteArray(overflow));
-
-        if (nb == 0) return;
-
-        //Byte Shift
-        System.arraycopy(this.bytes, 0, this.bytes, nb, this.bytes.length - nb);
         //fill zero bytes
-        for (i = 0; i < nb; i++)
-            this.bytes[i] = 0;
-
-
+        Arrays.fill(bytes, 0, nb, (byte) 0);
     }
 
 // Return Number values
 
     public long longValue() {
-        byte[] fb;
-
-        if (this.fixByteCount == 8) fb = this.bytes;
-        else if (this.fixByteCount < 8) fb = groveUp(this.bytes, 8);
-        else fb = Arrays.copyOfRange(bytes, bytes.length - 8, bytes.length);
-        int i = 0;
-        return (fb[i++] & 0xffL) << 56 | (fb[i++] & 0xffL) << 48 | (fb[i++] & 0xffL) << 40 | (fb[i++] & 0xffL) << 32
-                | (fb[i++] & 0xffL) << 24 | (fb[i++] & 0xffL) << 16 | (fb[i++] & 0xffL) << 8 | (fb[i++] & 0xffL);
+        long value = 0;
+        for (int i = Math.max(0, fixByteCount - 8); i < fixByteCount; i++) value = value << 8 | (bytes[i] & 0xffL);
+        return value;
     }
 
     public int intValue() {
-        byte[] fb;
-        if (this.fixByteCount == 4) fb = this.bytes;
-        else if (this.fixByteCount < 4) fb = groveUp(this.bytes, 4);
-        else fb = Arrays.copyOfRange(bytes, bytes.length - 4, bytes.length);
-        int i = 0;
-        return fb[i++] << 24 | (fb[i++] & 0xff) << 16 | (fb[i++] & 0xff) << 8 | (fb[i++] & 0xff);
+        int value = 0;
+        for (int i = Math.max(0, fixByteCount - 4); i < fixByteCount; i++) value = value << 8 | (bytes[i] & 0xff);
+        return value;
     }
 
     public short shortValue() {
-        byte[] fb;
-        if (this.fixByteCount == 2) fb = this.bytes;
-        else if (this.fixByteCount < 2) fb = groveUp(this.bytes, 2);
-        else fb = Arrays.copyOfRange(bytes, bytes.length - 2, bytes.length);
-        int i = 0;
-        return (short) ((fb[i++] & 0xff) << 8 | (fb[i++] & 0xff));
+        int value = 0;
+        for (int i = Math.max(0, fixByteCount - 2); i < fixByteCount; i++) value = value << 8 | (bytes[i] & 0xff);
+        return (short) value;
     }
 
     public short byteValue() {
         return this.bytes[this.fixByteCount - 1];
     }
 
-    private static byte[] groveUp(byte[] array, int newSize) {
-        byte[] retVal = new byte[newSize];
-
-        int index = newSize - array.length;
-        for (byte b : array) {
-            retVal[index++] = b;
-        }
-        return retVal;
-    }
-
 
 // to String
 
-    private static final byte[] TO_STRING_MASK = {-128, 64, 32, 16, 8, 4, 2, 1};
+    private static final String[] TO_STRING_BITS = new String[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            String bits = Integer.toBinaryString(b | 0x100);
+            TO_STRING_BITS[b] = bits.substring(1, 5) + ' ' + bits.substring(5);
+        }
+    }
 
     public String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append(this.bytes.length + " bytes :");
-        int writtenByte = 0;
-        for (byte write : this.bytes) {
-            int index = 0;
-            for (short m : TO_STRING_MASK) {
-                if (index++ == 4) builder.append(' ');
-                if ((write & m) == m) {
-                    builder.append('1');
-                } else {
-                    builder.append('0');
-                }
-            }
-            if (writtenByte++ < this.bytes.length - 1) builder.append(" | ");
+        StringBuilder builder = new StringBuilder(12 + this.bytes.length * 12);
+        builder.append(this.bytes.length).append(" bytes :");
+        for (int i = 0; i < this.bytes.length; i++) {
+            if (i > 0) builder.append(" | ");
+            builder.append(TO_STRING_BITS[this.bytes[i] & 0xff]);
         }
         return builder.toString();
     }
@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link StoreBase} backed by a {@link ByteBuffer} instead of a growing byte[].
+ * <p/>
+ * The buffer can be a heap buffer, a direct (off-heap) buffer or a {@link MappedByteBuffer} over a file.
+ * The wire format is the same as {@link NormalStore}, so both stores can read the data of each other.
+ * <p/>
+ * {@link #getByteBuffer()} hands out a read-only slice of the written bytes, which can be passed to a
+ * {@link FileChannel} or socket without any copy. See {@link #writeTo(WritableByteChannel)}.
+ */
+public class ByteBufferStore extends StoreBase implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 30000;
+
+    private ByteBuffer byteBuffer;
+    private final boolean direct;
+
+    // only set for stores mapped with read/write access
+    private final FileChannel channel;
+    private final long mapPosition;
+
+    private byte[] stringBuffer;
+
+    int readIndex = 0;
+
+    /**
+     * Creates a store backed by a heap ByteBuffer.
+     */
+    public ByteBufferStore() {
+        this(INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Creates a store backed by a heap or a direct (off-heap) ByteBuffer with the given initial capacity.
+     */
+    public ByteBufferStore(int initialCapacity, boolean direct) {
+        super(0);
+        this.direct = direct;
+        this.channel = null;
+        this.mapPosition = 0;
+        this.byteBuffer = allocate(Math.max(initialCapacity, 1), direct);
+    }
+
+    /**
+     * Creates a store for reading the remaining bytes of the given buffer. The content is not copied.
+     */
+    public ByteBufferStore(ByteBuffer values) {
+        super(0);
+        this.direct = values.isDirect();
+        this.channel = null;
+        this.mapPosition = 0;
+        this.byteBuffer = values.slice().order(ByteOrder.BIG_ENDIAN);
+        this.size = this.byteBuffer.remaining();
+    }
+
+    public ByteBufferStore(byte[] values) {
+        this(ByteBuffer.wrap(values));
+    }
+
+    private ByteBufferStore(FileChannel channel, long position, MappedByteBuffer mapped) {
+        super(0);
+        this.direct = true;
+        this.channel = channel;
+        this.mapPosition = position;
+        this.byteBuffer = mapped;
+    }
+
+    /**
+     * Creates a store which writes into the given file via a memory mapped buffer.
+     * The mapping grows if the initial capacity is exceeded. {@link #close()} truncates the file to the
+     * written size and closes the file.
+     */
+    public static ByteBufferStore map(Path file, long initialCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new ByteBufferStore(channel, 0, channel.map(FileChannel.MapMode.READ_WRITE, 0, initialCapacity));
+    }
+
+    /**
+     * Creates a store for reading the given file via a read-only memory mapped buffer.
+     */
+    public static ByteBufferStore mapReadOnly(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ByteBufferStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public boolean isMapped() {
+        return byteBuffer instanceof MappedByteBuffer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        readIndex = 0;
+    }
+
+    @Override
+    int capacity() {
+        return byteBuffer.capacity();
+    }
+
+    /**
+     * Returns a read-only slice of the written bytes. Nothing is copied.
+     * The view is only valid until the next write to this store.
+     */
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return payload().asReadOnlyBuffer();
+    }
+
+    @Override
+    protected ByteBuffer payload() {
+        return byteBuffer.slice(0, size);
+    }
+
+    /**
+     * Writes all written bytes to the given channel without copying them.
+     *
+     * @return the number of written bytes
+     */
+    public int writeTo(WritableByteChannel target) throws IOException {
+        ByteBuffer view = payload();
+        while (view.hasRemaining()) {
+            target.write(view);
+        }
+        return size;
+    }
+
+    /**
+     * Returns a copy of the written bytes, use {@link #getByteBuffer()} for a view without copy.
+     */
+    @Override
+    public byte[] getArray() {
+        byte[] array = new byte[size];
+        byteBuffer.get(0, array);
+        return array;
+    }
+
+    @Override
+    protected void trimToSize() {
+        // the ByteBuffer is never trimmed
+    }
+
+    @Override
+    protected void ensureCapacity(int additionalCapacity) {
+        checkWritable();
+        int sizeNeeded = size + additionalCapacity;
+        if (sizeNeeded <= byteBuffer.capacity()) return;
+        int newCapacity = Math.max(byteBuffer.capacity() * 2, sizeNeeded);
+        if (channel != null) {
+            try {
+                byteBuffer = channel.map(FileChannel.MapMode.READ_WRITE, mapPosition, newCapacity);
+            } catch (IOException e) {
+                throw new IllegalStateException("can't grow mapped buffer", e);
+            }
+        } else {
+            ByteBuffer newBuffer = allocate(newCapacity, direct);
+            newBuffer.put(0, byteBuffer, 0, size);
+            byteBuffer = newBuffer;
+        }
+    }
+
+    /**
+     * Forces a mapped store to disk and truncates the file to the written size.
+     * Does nothing for heap and direct stores.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null || !channel.isOpen()) return;
+        ((MappedByteBuffer) byteBuffer).force();
+        channel.truncate(mapPosition + size);
+        channel.close();
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    @Override
+    protected void _write(boolean b) {
+        byteBuffer.put(size++, (byte) (b ? 1 : 0));
+    }
+
+    @Override
+    protected void _write(byte b) {
+        byteBuffer.put(size++, b);
+    }
+
+    @Override
+    protected void _write(short s) {
+        byteBuffer.putShort(size, s);
+        size += 2;
+    }
+
+    @Override
+    protected void _write(int i) {
+        byteBuffer.putInt(size, i);
+        size += 4;
+    }
+
+    @Override
+    protected void _write(long l) {
+        byteBuffer.putLong(size, l);
+        size += 8;
+    }
+
+    @Override
+    protected void _write(String s) {
+        byte[] bytes = s.getBytes(UTF8_CHARSET);
+        ensureCapacity(bytes.length + 4);
+        _write(bytes.length);
+        _write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected void _write(byte[] bytes, int off, int len) {
+        byteBuffer.put(size, bytes, off, len);
+        size += len;
+    }
+
+    @Override
+    public boolean readBool() {
+        return byteBuffer.get(readIndex++) == 1;
+    }
+
+    @Override
+    public byte readByte() {
+        return byteBuffer.get(readIndex++);
+    }
+
+    @Override
+    public short readShort() {
+        short s = byteBuffer.getShort(readIndex);
+        readIndex += 2;
+        return s;
+    }
+
+    @Override
+    public int readInt() {
+        int i = byteBuffer.getInt(readIndex);
+        readIndex += 4;
+        return i;
+    }
+
+    @Override
+    public long readLong() {
+        long l = byteBuffer.getLong(readIndex);
+        readIndex += 8;
+        return l;
+    }
+
+    @Override
+    public void readBytes(byte[] bytes, int off, int len) {
+        byteBuffer.get(readIndex, bytes, off, len);
+        readIndex += len;
+    }
+
+    /**
+     * The content keeps the current ByteBuffer, the store continues with a new one. Stores writing into a
+     * mapped file can't hand over their mapping.
+     */
+    @Override
+    protected ByteBuffer detachContent() throws NotImplementedException {
+        if (channel != null) throw new NotImplementedException("A store writing a mapped file can't be sealed");
+        ByteBuffer content = byteBuffer.slice(0, size);
+        byteBuffer = allocate(INITIAL_CAPACITY, direct);
+        size = 0;
+        return content;
+    }
+
+    @Override
+    protected SealedStore.ReaderFactory readerFactory() {
+        return (content, offset) -> {
+            ByteBufferStore reader = new ByteBufferStore(content);
+            reader.readIndex = offset;
+            return reader;
+        };
+    }
+
+    @Override
+    protected Utf8View _readStringView() {
+        int stringLength = readInt();
+        if (stringLength > 0 && readIndex + stringLength <= byteBuffer.limit()) {
+            Utf8View view;
+            if (byteBuffer.hasArray()) {
+                view = Utf8View.wrap(byteBuffer.array(), byteBuffer.arrayOffset() + readIndex, stringLength);
+            } else {
+                byte[] bytes = new byte[stringLength];
+                byteBuffer.get(readIndex, bytes, 0, stringLength);
+                view = Utf8View.wrap(bytes, 0, stringLength);
+            }
+            readIndex += stringLength;
+            return view;
+        }
+        return Utf8View.EMPTY;
+    }
+
+    @Override
+    protected String _readString() {
+        int stringLength = readInt();
+        if (stringLength > 0 && readIndex + stringLength <= byteBuffer.limit()) {
+            String s;
+            if (byteBuffer.hasArray()) {
+                s = new String(byteBuffer.array(), byteBuffer.arrayOffset() + readIndex, stringLength, UTF8_CHARSET);
+            } else {
+                if (stringBuffer == null || stringBuffer.length < stringLength)
+                    stringBuffer = new byte[Math.max(stringLength, 256)];
+                byteBuffer.get(readIndex, stringBuffer, 0, stringLength);
+                s = new String(stringBuffer, 0, stringLength, UTF8_CHARSET);
+            }
+            readIndex += stringLength;
+            return s;
+        }
+        return "";
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits a list into chunks which are serialized and compressed in parallel on a {@link ForkJoinPool}.
+ * <p/>
+ * Every chunk is written into its own store of the given {@link StoreType} and encoded with the given
+ * {@link Codec}. The chunks are joined behind a directory, so the reading side can decode them in parallel too.
+ * Layout, all numbers big-endian:
+ * <pre>
+ * header    magic (int), version (byte), store type (byte), codec id (byte), chunk count (int), element count (int)
+ * directory element count (int) and encoded length (int) of every chunk
+ * chunks    the encoded chunks
+ * </pre>
+ */
+public final class ChunkedSerializer {
+
+    static final int MAGIC = 0x4C535043; // "LSPC"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 15;
+
+    /**
+     * Minimal number of elements per chunk used by {@link #getChunkSize(int, ForkJoinPool)}.
+     */
+    public static final int MIN_CHUNK_SIZE = 256;
+
+    private ChunkedSerializer() {
+    }
+
+    /**
+     * Chunk size with about four chunks per worker, so uneven chunks still keep all workers busy.
+     */
+    public static int getChunkSize(int elementCount, ForkJoinPool pool) {
+        return Math.max(MIN_CHUNK_SIZE, elementCount / (pool.getParallelism() * 4) + 1);
+    }
+
+    public static <T extends Serializable> byte[] serialize(List<T> list, StoreType storeType, Codec codec) throws NotImplementedException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return serialize(list, storeType, codec, getChunkSize(list.size(), pool), pool);
+    }
+
+    public static <T extends Serializable> byte[] serialize(List<T> list, StoreType storeType, Codec codec, int chunkSize,
+                                                            ForkJoinPool pool) throws NotImplementedException {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        int count = list.size();
+        int chunkCount = (count + chunkSize - 1) / chunkSize;
+
+        List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(chunkCount);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            List<T> part = list.subList(chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize));
+            tasks.add(pool.submit(() -> {
+                StoreBase store = storeType.createWriter();
+                for (T t : part) {
+                    t.serialize(store);
+                }
+                ByteBuffer payload = store.payload();
+                if (payload.hasArray()) {
+                    return codec.encode(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                }
+                byte[] bytes = store.getArray();
+                return codec.encode(bytes, 0, bytes.length);
+            }));
+        }
+
+        byte[][] chunks = new byte[chunkCount][];
+        long total = HEADER_SIZE + 8L * chunkCount;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunks[chunk] = join(tasks.get(chunk));
+            total += chunks[chunk].length;
+        }
+        if (total > Integer.MAX_VALUE - 8) throw new IllegalStateException("Serialized list exceeds 2 GB: " + total);
+
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        out.putInt(MAGIC).put(VERSION).put(storeType.getId()).put(codec.getId()).putInt(chunkCount).putInt(count);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            out.putInt(Math.min(chunkSize, count - chunk * chunkSize)).putInt(chunks[chunk].length);
+        }
+        for (byte[] bytes : chunks) {
+            out.put(bytes);
+        }
+        return out.array();
+    }
+
+    public static <T extends Serializable> ArrayList<T> deserialize(byte[] data, Class<T> tClass) throws NotImplementedException, IOException {
+        return deserialize(data, tClass, ForkJoinPool.commonPool());
+    }
+
+    public static <T extends Serializable> ArrayList<T> deserialize(byte[] data, Class<T> tClass, ForkJoinPool pool)
+            throws NotImplementedException, IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || in.getInt() != MAGIC) throw new IOException("Not a chunked list");
+        byte version = in.get();
+        if (version != VERSION) throw new IOException("Unsupported version: " + version);
+        StoreType storeType = StoreType.fromId(in.get());
+        Codec codec = Codecs.get(in.get());
+        int chunkCount = in.getInt();
+        int count = in.getInt();
+        if (chunkCount < 0 || count < 0 || (long) chunkCount * 8 > in.remaining()) {
+            throw new IOException("Corrupt chunk directory");
+        }
+
+        SerializableCodec<T> factory = SerializableCodecs.get(tClass);
+        Object[] elements = new Object[count];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunkCount);
+        int first = 0;
+        long offset = HEADER_SIZE + 8L * chunkCount;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int elementCount = in.getInt();
+            int length = in.getInt();
+            if (elementCount < 0 || length < 0 || first + (long) elementCount > count || offset + length > data.length) {
+                throw new IOException("Corrupt chunk directory entry " + chunk);
+            }
+            int start = first;
+            int position = (int) offset;
+            tasks.add(pool.submit(() -> {
+                StoreBase store = storeType.createReader(codec.decode(data, position, length));
+                for (int i = start, n = start + elementCount; i < n; i++) {
+                    T t = factory.newInstance();
+                    t.deserialize(store);
+                    elements[i] = t;
+                }
+                return null;
+            }));
+            first += elementCount;
+            offset += length;
+        }
+        if (first != count) throw new IOException("Chunk directory holds " + first + " of " + count + " elements");
+
+        for (ForkJoinTask<?> task : tasks) {
+            join(task);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) (List<?>) Arrays.asList(elements);
+        return new ArrayList<>(list);
+    }
+
+    private static <V> V join(ForkJoinTask<V> task) throws NotImplementedException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NotImplementedException) throw (NotImplementedException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
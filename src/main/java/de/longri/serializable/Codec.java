@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+/**
+ * A compression codec for the payload of a store.
+ * <p/>
+ * Codecs are registered in {@link Codecs} with a unique id, which is written as header byte in front of the encoded
+ * payload, so a reader can detect the codec with {@link Codecs#unpack(byte[])}.
+ */
+public interface Codec {
+
+    /**
+     * The unique id of this codec, written as header byte.
+     */
+    byte getId();
+
+    String getName();
+
+    byte[] encode(byte[] data, int off, int len);
+
+    byte[] decode(byte[] data, int off, int len);
+}
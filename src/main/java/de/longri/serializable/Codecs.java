@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registry of the known {@link Codec}s and the header byte format.
+ * <p/>
+ * A packed payload is one header byte with the codec id, followed by the encoded data.
+ */
+public final class Codecs {
+
+    public static final Codec NONE = new NoCompressionCodec();
+    public static final Codec DEFLATE = new DeflateCodec();
+    public static final Codec LZ4 = new Lz4Codec();
+
+    private static final Codec[] CODECS = new Codec[256];
+
+    static {
+        register(NONE);
+        register(DEFLATE);
+        register(LZ4);
+    }
+
+    private Codecs() {
+    }
+
+    /**
+     * Registers a codec, the id must not be used by another codec.
+     */
+    public static synchronized void register(Codec codec) {
+        int index = codec.getId() & 0xff;
+        Codec registered = CODECS[index];
+        if (registered != null && registered != codec) {
+            throw new IllegalArgumentException("codec id " + index + " is already used by " + registered.getName());
+        }
+        CODECS[index] = codec;
+    }
+
+    public static Codec get(byte id) {
+        Codec codec = CODECS[id & 0xff];
+        if (codec == null) throw new IllegalArgumentException("unknown codec id: " + (id & 0xff));
+        return codec;
+    }
+
+    public static List<Codec> values() {
+        List<Codec> list = new ArrayList<>();
+        for (Codec codec : CODECS) {
+            if (codec != null) list.add(codec);
+        }
+        return list;
+    }
+
+    /**
+     * Encodes the data with the given codec and puts the codec id as header byte in front.
+     */
+    public static byte[] pack(Codec codec, byte[] data, int off, int len) {
+        byte[] encoded = codec.encode(data, off, len);
+        byte[] packed = new byte[encoded.length + 1];
+        packed[0] = codec.getId();
+        System.arraycopy(encoded, 0, packed, 1, encoded.length);
+        return packed;
+    }
+
+    /**
+     * Detects the codec by the header byte and decodes the data.
+     */
+    public static byte[] unpack(byte[] packed) {
+        if (packed.length == 0) throw new IllegalArgumentException("missing codec header");
+        return get(packed[0]).decode(packed, 1, packed.length - 1);
+    }
+
+    /**
+     * Returns the codec of a packed payload.
+     */
+    public static Codec detect(byte[] packed) {
+        if (packed.length == 0) throw new IllegalArgumentException("missing codec header");
+        return get(packed[0]);
+    }
+
+    static final class NoCompressionCodec implements Codec {
+
+        @Override
+        public byte getId() {
+            return 0;
+        }
+
+        @Override
+        public String getName() {
+            return "none";
+        }
+
+        @Override
+        public byte[] encode(byte[] data, int off, int len) {
+            return Arrays.copyOfRange(data, off, off + len);
+        }
+
+        @Override
+        public byte[] decode(byte[] data, int off, int len) {
+            return Arrays.copyOfRange(data, off, off + len);
+        }
+    }
+}
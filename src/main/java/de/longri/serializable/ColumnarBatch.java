@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static de.longri.serializable.SerializableCodecs.*;
+
+/**
+ * Column oriented encoding for lists of records with the same layout.
+ * <p/>
+ * The records are serialized as usual, but every value written by a record is recorded as a column:
+ * the n-th value of each record goes into column n. The columns are written one after the other into a
+ * {@link VariableByteStore}, so equal or slowly changing values end up next to each other:
+ * <ul>
+ * <li>byte, short, int and long columns as zigzag varint of the delta to the previous row</li>
+ * <li>boolean columns run-length encoded</li>
+ * <li>string columns with a short code for null and for a repeat of the previous row</li>
+ * </ul>
+ * All records must write the same sequence of value types, so records with variable length content
+ * (lists, arrays of different size, optional values) can't be encoded and throw an {@link IllegalArgumentException}.
+ * Decoding replays the columns into the normal {@link Serializable#deserialize(StoreBase)}.
+ */
+public final class ColumnarBatch {
+
+    static final byte VERSION = 1;
+
+    private static final int STRING_NULL = 0;
+    private static final int STRING_REPEAT = 1;
+    private static final int STRING_LENGTH_OFFSET = 2;
+
+    private ColumnarBatch() {
+    }
+
+    public static <T extends Serializable> byte[] encode(List<T> list) throws NotImplementedException {
+        RecordingStore recorder = new RecordingStore(list.size());
+        for (T t : list) {
+            recorder.startRecord();
+            t.serialize(recorder);
+            recorder.endRecord();
+        }
+
+        VariableByteStore out = new VariableByteStore();
+        out.write(VERSION);
+        out.writeUnsignedInt(list.size());
+        out.writeUnsignedInt(recorder.columns.size());
+        for (Column column : recorder.columns) {
+            out.write(column.type);
+        }
+        for (Column column : recorder.columns) {
+            column.write(out, list.size());
+        }
+        return out.getArray();
+    }
+
+    public static <T extends Serializable> ArrayList<T> decode(byte[] data, Class<T> tClass) throws NotImplementedException {
+        VariableByteStore in = new VariableByteStore(data);
+        byte version = in.readByte();
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported columnar version: " + version);
+        int rows = in.readUnsignedInt();
+        int columnCount = in.readUnsignedInt();
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = new Column(in.readByte(), rows);
+        }
+        for (Column column : columns) {
+            column.read(in, rows);
+        }
+
+        SerializableCodec<T> factory = SerializableCodecs.get(tClass);
+        ReplayStore replay = new ReplayStore(columns);
+        ArrayList<T> list = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            replay.startRecord(row);
+            T t = factory.newInstance();
+            t.deserialize(replay);
+            replay.endRecord();
+            list.add(t);
+        }
+        return list;
+    }
+
+    private static final class Column {
+        final byte type;
+        final int[] ints;
+        final long[] longs;
+        final String[] strings;
+
+        Column(byte type, int rows) {
+            this.type = type;
+            this.ints = type == WIRE_BOOL || type == WIRE_BYTE || type == WIRE_SHORT || type == WIRE_INT ? new int[rows] : null;
+            this.longs = type == WIRE_LONG ? new long[rows] : null;
+            this.strings = type == WIRE_STRING ? new String[rows] : null;
+            if (ints == null && longs == null && strings == null) {
+                throw new IllegalArgumentException("Unknown column type: " + type);
+            }
+        }
+
+        void write(VariableByteStore out, int rows) throws NotImplementedException {
+            switch (type) {
+                case WIRE_BOOL:
+                    // first value, then the length of every run of equal values
+                    out.writeUnsignedInt(rows == 0 ? 0 : ints[0]);
+                    for (int row = 0; row < rows; ) {
+                        int start = row;
+                        while (row < rows && ints[row] == ints[start]) row++;
+                        out.writeUnsignedInt(row - start);
+                    }
+                    break;
+                case WIRE_LONG:
+                    long previousLong = 0;
+                    for (int row = 0; row < rows; row++) {
+                        out.writeZigZagLong(longs[row] - previousLong);
+                        previousLong = longs[row];
+                    }
+                    break;
+                case WIRE_STRING:
+                    for (int row = 0; row < rows; row++) {
+                        String s = strings[row];
+                        if (s == null) {
+                            out.writeUnsignedInt(STRING_NULL);
+                        } else if (row > 0 && s.equals(strings[row - 1])) {
+                            out.writeUnsignedInt(STRING_REPEAT);
+                        } else {
+                            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                            out.writeUnsignedInt(bytes.length + STRING_LENGTH_OFFSET);
+                            out.write(bytes, 0, bytes.length);
+                        }
+                    }
+                    break;
+                default:
+                    long previous = 0;
+                    for (int row = 0; row < rows; row++) {
+                        out.writeZigZagLong(ints[row] - previous);
+                        previous = ints[row];
+                    }
+            }
+        }
+
+        void read(VariableByteStore in, int rows) throws NotImplementedException {
+            switch (type) {
+                case WIRE_BOOL:
+                    int value = in.readUnsignedInt();
+                    for (int row = 0; row < rows; ) {
+                        int end = row + in.readUnsignedInt();
+                        if (end <= row || end > rows) throw new IllegalArgumentException("Corrupt boolean column");
+                        Arrays.fill(ints, row, end, value);
+                        row = end;
+                        value ^= 1;
+                    }
+                    break;
+                case WIRE_LONG:
+                    long previousLong = 0;
+                    for (int row = 0; row < rows; row++) {
+                        previousLong += in.readZigZagLong();
+                        longs[row] = previousLong;
+                    }
+                    break;
+                case WIRE_STRING:
+                    for (int row = 0; row < rows; row++) {
+                        int code = in.readUnsignedInt();
+                        if (code == STRING_NULL) {
+                            strings[row] = null;
+                        } else if (code == STRING_REPEAT) {
+                            if (row == 0) throw new IllegalArgumentException("Corrupt string column");
+                            strings[row] = strings[row - 1];
+                        } else {
+                            byte[] bytes = new byte[code - STRING_LENGTH_OFFSET];
+                            in.readBytes(bytes, 0, bytes.length);
+                            strings[row] = new String(bytes, StandardCharsets.UTF_8);
+                        }
+                    }
+                    break;
+                default:
+                    long previous = 0;
+                    for (int row = 0; row < rows; row++) {
+                        previous += in.readZigZagLong();
+                        ints[row] = (int) previous;
+                    }
+            }
+        }
+    }
+
+    /**
+     * Records the values written by the records into columns.
+     */
+    private static final class RecordingStore extends StoreBase {
+
+        final List<Column> columns = new ArrayList<>();
+        private final int rows;
+        private int row = -1;
+        private int column;
+
+        RecordingStore(int rows) {
+            super(0);
+            this.rows = rows;
+        }
+
+        void startRecord() {
+            row++;
+            column = 0;
+        }
+
+        void endRecord() {
+            if (column != columns.size()) throw layoutMismatch();
+        }
+
+        private Column next(int type) {
+            if (row == 0 && column == columns.size()) columns.add(new Column((byte) type, rows));
+            if (column >= columns.size() || columns.get(column).type != type) throw layoutMismatch();
+            return columns.get(column++);
+        }
+
+        private IllegalArgumentException layoutMismatch() {
+            return new IllegalArgumentException("Record " + row + " doesn't write the same values as the first record");
+        }
+
+        @Override
+        protected void ensureCapacity(int bytesToAdd) {
+            // values go into the columns
+        }
+
+        @Override
+        protected void _write(boolean b) {
+            next(WIRE_BOOL).ints[row] = b ? 1 : 0;
+        }
+
+        @Override
+        protected void _write(byte b) {
+            next(WIRE_BYTE).ints[row] = b;
+        }
+
+        @Override
+        protected void _write(short s) {
+            next(WIRE_SHORT).ints[row] = s;
+        }
+
+        @Override
+        protected void _write(int i) {
+            next(WIRE_INT).ints[row] = i;
+        }
+
+        @Override
+        protected void _write(long l) {
+            next(WIRE_LONG).longs[row] = l;
+        }
+
+        @Override
+        protected void _write(String s) {
+            next(WIRE_STRING).strings[row] = s;
+        }
+
+        @Override
+        protected String _readString() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+
+        @Override
+        public boolean readBool() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+
+        @Override
+        public byte readByte() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+
+        @Override
+        public short readShort() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+
+        @Override
+        public int readInt() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+
+        @Override
+        public long readLong() throws NotImplementedException {
+            throw new NotImplementedException("write only");
+        }
+    }
+
+    /**
+     * Serves the values of one row to {@link Serializable#deserialize(StoreBase)}.
+     */
+    private static final class ReplayStore extends StoreBase {
+
+        private final Column[] columns;
+        private int row;
+        private int column;
+
+        ReplayStore(Column[] columns) {
+            super(0);
+            this.columns = columns;
+        }
+
+        void startRecord(int row) {
+            this.row = row;
+            this.column = 0;
+        }
+
+        void endRecord() {
+            if (column != columns.length) {
+                throw new IllegalArgumentException("Record " + row + " read " + column + " of " + columns.length + " columns");
+            }
+        }
+
+        private Column next(int type) {
+            if (column >= columns.length || columns[column].type != type) {
+                throw new IllegalArgumentException("Record " + row + " doesn't read the columns in the written order");
+            }
+            return columns[column++];
+        }
+
+        @Override
+        public boolean readBool() {
+            return next(WIRE_BOOL).ints[row] != 0;
+        }
+
+        @Override
+        public byte readByte() {
+            return (byte) next(WIRE_BYTE).ints[row];
+        }
+
+        @Override
+        public short readShort() {
+            return (short) next(WIRE_SHORT).ints[row];
+        }
+
+        @Override
+        public int readInt() {
+            return next(WIRE_INT).ints[row];
+        }
+
+        @Override
+        public long readLong() {
+            return next(WIRE_LONG).longs[row];
+        }
+
+        @Override
+        protected String _readString() {
+            return next(WIRE_STRING).strings[row];
+        }
+
+        @Override
+        protected void _write(boolean b) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+
+        @Override
+        protected void _write(byte b) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+
+        @Override
+        protected void _write(short s) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+
+        @Override
+        protected void _write(int i) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+
+        @Override
+        protected void _write(long l) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+
+        @Override
+        protected void _write(String s) throws NotImplementedException {
+            throw new NotImplementedException("read only");
+        }
+    }
+}
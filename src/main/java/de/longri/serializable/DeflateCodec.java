@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Deflate codec based on the pooled {@link ZipStage}, good compression for archival.
+ */
+public class DeflateCodec implements Codec {
+
+    private final int level;
+    private final int strategy;
+
+    public DeflateCodec() {
+        this(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * A codec with other level or strategy writes the same format, so it shares the id of the default codec and
+     * must not be registered.
+     */
+    public DeflateCodec(int level, int strategy) {
+        this.level = level;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public byte[] encode(byte[] data, int off, int len) {
+        return ZipStage.compress(data, off, len, level, strategy);
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int off, int len) {
+        ZipStage.Inflated inflated = ZipStage.inflate(data, off, len);
+        if (inflated.length == inflated.buffer.length) return inflated.buffer;
+        return Arrays.copyOf(inflated.buffer, inflated.length);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to a container written by {@link IndexedListWriter}.
+ * <p/>
+ * Only the header and the trailer are read on open. {@link #get(int)} looks up the position of the element in the
+ * index and decodes just this element, so archives of any size can be browsed without loading them.
+ * <p/>
+ * The file is either memory mapped, in segments of 1 GB so files bigger than 2 GB work too, or read with positional
+ * reads on the {@link FileChannel}. In mapped mode elements of the {@link StoreType#NORMAL} type are decoded
+ * directly from the mapping without a copy.
+ * <p/>
+ * The list is read-only and {@link #get(int)} can be called from several threads.
+ */
+public class IndexedList<T extends Serializable> implements Closeable {
+
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final Class<T> tClass;
+    private final SerializableCodec<T> codec;
+
+    // mapped or in-memory data, segment n starts at n << segmentShift
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+
+    // only set if not mapped
+    private final FileChannel channel;
+
+    private final StoreType storeType;
+    private final int count;
+    private final long indexPosition;
+
+    /**
+     * Opens the given file memory mapped.
+     */
+    public static <T extends Serializable> IndexedList<T> open(Path file, Class<T> tClass) throws IOException {
+        return open(file, tClass, true);
+    }
+
+    /**
+     * Opens the given file, memory mapped or with positional reads on a {@link FileChannel}.
+     */
+    public static <T extends Serializable> IndexedList<T> open(Path file, Class<T> tClass, boolean mapped) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (!mapped) return new IndexedList<>(tClass, null, 0, channel, channel.size());
+
+            long size = channel.size();
+            int segmentCount = (int) ((size + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+            ByteBuffer[] segments = new ByteBuffer[Math.max(segmentCount, 1)];
+            segments[0] = ByteBuffer.allocate(0);
+            for (int i = 0; i < segmentCount; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1L << SEGMENT_SHIFT, size - position));
+            }
+            channel.close();
+            return new IndexedList<>(tClass, segments, SEGMENT_SHIFT, null, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the container from the remaining bytes of the given buffer. The content is not copied.
+     */
+    public IndexedList(ByteBuffer buffer, Class<T> tClass) throws IOException {
+        this(tClass, new ByteBuffer[]{buffer.slice()}, 31, null, buffer.remaining());
+    }
+
+    public IndexedList(byte[] bytes, Class<T> tClass) throws IOException {
+        this(ByteBuffer.wrap(bytes), tClass);
+    }
+
+    private IndexedList(Class<T> tClass, ByteBuffer[] segments, int segmentShift, FileChannel channel, long size) throws IOException {
+        this.tClass = tClass;
+        this.codec = SerializableCodecs.get(tClass);
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.channel = channel;
+        if (segments != null) {
+            for (int i = 0; i < segments.length; i++) segments[i].order(ByteOrder.BIG_ENDIAN);
+        }
+
+        if (size < IndexedListWriter.HEADER_SIZE + IndexedListWriter.TRAILER_SIZE + 8) {
+            throw new IOException("Not an indexed list, size: " + size);
+        }
+        ByteBuffer header = read(0, IndexedListWriter.HEADER_SIZE);
+        if (header.getInt(0) != IndexedListWriter.MAGIC) throw new IOException("Not an indexed list, wrong magic");
+        if (header.get(4) != IndexedListWriter.VERSION) throw new IOException("Unsupported version: " + header.get(4));
+        storeType = StoreType.fromId(header.get(5));
+
+        ByteBuffer trailer = read(size - IndexedListWriter.TRAILER_SIZE, IndexedListWriter.TRAILER_SIZE);
+        indexPosition = trailer.getLong(0);
+        count = trailer.getInt(8);
+        if (trailer.getInt(12) != IndexedListWriter.MAGIC) throw new IOException("Indexed list is truncated, trailer missing");
+        if (count < 0 || indexPosition < IndexedListWriter.HEADER_SIZE
+                || indexPosition + (count + 1L) * 8 != size - IndexedListWriter.TRAILER_SIZE) {
+            throw new IOException("Corrupt index, position: " + indexPosition + " count: " + count);
+        }
+    }
+
+    public Class<T> getElementClass() {
+        return tClass;
+    }
+
+    public StoreType getStoreType() {
+        return storeType;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean isMapped() {
+        return segments != null;
+    }
+
+    /**
+     * Decodes the element at the given index.
+     */
+    public T get(int index) throws IOException, NotImplementedException {
+        T t = codec.newInstance();
+        t.deserialize(getStore(index));
+        return t;
+    }
+
+    /**
+     * Decodes the element at the given index into the given instance, to browse without allocating new elements.
+     */
+    public void get(int index, T into) throws IOException, NotImplementedException {
+        into.deserialize(getStore(index));
+    }
+
+    /**
+     * Returns a store positioned at the start of the element at the given index.
+     */
+    public StoreBase getStore(int index) throws IOException {
+        return storeType.createReader(getBytes(index));
+    }
+
+    /**
+     * Returns the serialized bytes of the element at the given index, a read-only view of the mapping if possible.
+     */
+    public ByteBuffer getBytes(int index) throws IOException {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        ByteBuffer entry = read(indexPosition + 8L * index, 16);
+        long start = entry.getLong(0);
+        long end = entry.getLong(8);
+        if (start < IndexedListWriter.HEADER_SIZE || end < start || end > indexPosition || end - start > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt index entry " + index + ": " + start + " - " + end);
+        }
+        return read(start, (int) (end - start)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (channel != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of indexed list at " + (position + buffer.position()));
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        int segment = (int) (position >>> segmentShift);
+        int offset = (int) (position & ((1L << segmentShift) - 1));
+        if (segment < segments.length && offset + length <= segments[segment].limit()) {
+            return segments[segment].slice(offset, length).order(ByteOrder.BIG_ENDIAN);
+        }
+
+        // crosses the end of a segment
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (segment >= segments.length) throw new EOFException("Unexpected end of indexed list");
+            ByteBuffer part = segments[segment];
+            int n = Math.min(buffer.remaining(), part.limit() - offset);
+            buffer.put(part.slice(offset, n));
+            segment++;
+            offset = 0;
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
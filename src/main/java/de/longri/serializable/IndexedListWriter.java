@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes {@link Serializable} elements into the indexed container format read by {@link IndexedList}.
+ * <p/>
+ * Layout, all numbers big-endian:
+ * <pre>
+ * header   magic (int), version (byte), store type (byte)
+ * elements every element serialized into its own store of the given {@link StoreType}
+ * index    start position of every element and the end position of the last one (long each)
+ * trailer  position of the index (long), element count (int), magic (int)
+ * </pre>
+ * The elements are written as they are added, the index is kept in memory (8 bytes per element) and
+ * appended on {@link #close()}.
+ */
+public class IndexedListWriter<T extends Serializable> implements Closeable {
+
+    static final int MAGIC = 0x4C53494C; // "LSIL"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 6;
+    static final int TRAILER_SIZE = 16;
+
+    private final WritableByteChannel channel;
+    private final StoreType storeType;
+    private final ByteBuffer buffer = ByteBuffer.allocate(StoreStream.DEFAULT_CHUNK_SIZE);
+    // reset for every element, so its buffer is allocated once
+    private final StoreBase elementStore;
+
+    private long[] offsets = new long[1024];
+    private int count;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Creates or overwrites the given file.
+     */
+    public IndexedListWriter(Path file, StoreType storeType) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), storeType);
+    }
+
+    /**
+     * Writes to the given channel, which is closed by {@link #close()}.
+     */
+    public IndexedListWriter(WritableByteChannel channel, StoreType storeType) throws IOException {
+        this.channel = channel;
+        this.storeType = storeType;
+        this.elementStore = storeType.createWriter();
+        buffer.putInt(MAGIC).put(VERSION).put(storeType.getId());
+        position = HEADER_SIZE;
+    }
+
+    public StoreType getStoreType() {
+        return storeType;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void add(T value) throws IOException, NotImplementedException {
+        elementStore.reset();
+        value.serialize(elementStore);
+        // the view is copied to the output before the store is written again
+        add(elementStore.getByteBuffer());
+    }
+
+    /**
+     * Adds an element that is already serialized with the store type of this writer.
+     */
+    public void add(ByteBuffer element) throws IOException {
+        if (closed) throw new IllegalStateException("Writer is closed");
+        if (count == Integer.MAX_VALUE) throw new IllegalStateException("Too many elements");
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+        offsets[count++] = position;
+        position += element.remaining();
+        put(element.duplicate());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            long indexPosition = position;
+            for (int i = 0; i < count; i++) {
+                putLong(offsets[i]);
+            }
+            putLong(position);
+            putLong(indexPosition);
+            if (buffer.remaining() < 8) flushBuffer();
+            buffer.putInt(count).putInt(MAGIC);
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < 8) flushBuffer();
+        buffer.putLong(value);
+    }
+
+    private void put(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            if (!buffer.hasRemaining()) flushBuffer();
+            if (buffer.position() == 0 && src.remaining() >= buffer.capacity()) {
+                // big elements go to the channel without the copy
+                while (src.hasRemaining()) channel.write(src);
+                return;
+            }
+            int n = Math.min(buffer.remaining(), src.remaining());
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + n);
+            buffer.put(part);
+            src.position(src.position() + n);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A fast pure Java LZ codec for latency sensitive paths.
+ * <p/>
+ * The data is written in the LZ4 block format, prefixed with the uncompressed length as unsigned variable byte int.
+ * The compressor uses a single hash probe per position, so it trades ratio for speed like the LZ4 fast mode.
+ */
+public class Lz4Codec implements Codec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final ThreadLocal<int[]> HASH_TABLE = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    public String getName() {
+        return "lz4";
+    }
+
+    public static int maxEncodedLength(int length) {
+        return 5 + length + length / 255 + 16;
+    }
+
+    @Override
+    public byte[] encode(byte[] src, int off, int len) {
+        byte[] dst = new byte[maxEncodedLength(len)];
+        int op = writeVarInt(dst, 0, len);
+
+        int end = off + len;
+        int anchor = off;
+
+        if (len >= MF_LIMIT + 1) {
+            int[] table = HASH_TABLE.get();
+            // positions are stored +1, zero is an empty slot
+            Arrays.fill(table, 0);
+
+            int matchLimit = end - LAST_LITERALS;
+            int limit = end - MF_LIMIT;
+            int ip = off;
+            int searchCount = 1 << SKIP_TRIGGER;
+
+            while (ip < limit) {
+                int sequence = (int) INT_VIEW.get(src, ip);
+                int hash = hash(sequence);
+                int ref = table[hash] - 1;
+                table[hash] = ip + 1;
+
+                if (ref < off || ip - ref > MAX_DISTANCE || (int) INT_VIEW.get(src, ref) != sequence) {
+                    // no match, skip faster through incompressible data
+                    ip += searchCount++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searchCount = 1 << SKIP_TRIGGER;
+
+                // extend the match backwards over the pending literals
+                while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        op = writeLastLiterals(src, anchor, end - anchor, dst, op);
+        return Arrays.copyOf(dst, op);
+    }
+
+    @Override
+    public byte[] decode(byte[] src, int off, int len) {
+        int end = off + len;
+        int ip = off;
+
+        // uncompressed length
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (ip >= end || shift > 28) throw new IllegalArgumentException("invalid lz4 length header");
+            b = src[ip++];
+            length |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        // a byte of lz4 data expands to at most 255 bytes, check before the length is allocated
+        if (length < 0 || length > (long) (end - ip) * 255) {
+            throw new IllegalArgumentException("invalid lz4 length " + length + " for " + (end - ip) + " bytes");
+        }
+
+        byte[] dst = new byte[length];
+        int op = 0;
+
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xff;
+
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int n;
+                    do {
+                        n = src[ip++] & 0xff;
+                        literalLength += n;
+                    } while (n == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= end) break;
+
+                int distance = (src[ip++] & 0xff) | (src[ip++] & 0xff) << 8;
+                int matchLength = token & 0x0f;
+                if (matchLength == 15) {
+                    int n;
+                    do {
+                        n = src[ip++] & 0xff;
+                        matchLength += n;
+                    } while (n == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = op - distance;
+                if (distance == 0 || ref < 0) throw new IllegalArgumentException("invalid lz4 match distance");
+                if (distance >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // overlapping copy repeats the pattern
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated or invalid lz4 data", e);
+        }
+
+        if (op != length) throw new IllegalArgumentException("lz4 length mismatch " + op + " != " + length);
+        return dst;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, byte[] dst, int op,
+                                     int distance, int matchLength) {
+        int tokenIndex = op++;
+        int token;
+        if (literalLength >= 15) {
+            token = 15 << 4;
+            op = writeLength(dst, op, literalLength - 15);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) distance;
+        dst[op++] = (byte) (distance >>> 8);
+
+        int extra = matchLength - MIN_MATCH;
+        if (extra >= 15) {
+            token |= 15;
+            op = writeLength(dst, op, extra - 15);
+        } else {
+            token |= extra;
+        }
+        dst[tokenIndex] = (byte) token;
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalStart, int literalLength, byte[] dst, int op) {
+        if (literalLength >= 15) {
+            dst[op++] = (byte) (15 << 4);
+            op = writeLength(dst, op, literalLength - 15);
+        } else {
+            dst[op++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    private static int writeLength(byte[] dst, int op, int length) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int writeVarInt(byte[] dst, int op, int value) {
+        while ((value & ~0x7f) != 0) {
+            dst[op++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        dst[op++] = (byte) value;
+        return op;
+    }
+}
@@ -34,78 +34,110 @@ public class NormalStore extends StoreBase {
         super(values);
     }
 
+    protected NormalStore(byte[] values, int length) {
+        super(values, length);
+    }
+
     public NormalStore(String base64) {
         super(base64);
     }
 
     int readIndex = 0;
 
+    @Override
+    public void reset() {
+        super.reset();
+        readIndex = 0;
+    }
+
     @Override
     protected void _write(boolean b) {
         buffer[size++] = (byte) (b ? 1 : 0);
     }
 
     @Override
-    protected void _write(Byte b) {
+    protected void _write(byte b) {
         buffer[size++] = b;
     }
 
     @Override
-    protected void _write(Short s) {
-        add(new byte[]{(byte) (s >> 8), (byte) (s >> 0)});
+    protected void _write(short s) {
+        buffer[size++] = (byte) (s >> 8);
+        buffer[size++] = (byte) s;
     }
 
     @Override
-    protected void _write(Integer i) {
-        add(new byte[]{(byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) (i >> 0)});
-
+    protected void _write(int i) {
+        buffer[size++] = (byte) (i >> 24);
+        buffer[size++] = (byte) (i >> 16);
+        buffer[size++] = (byte) (i >> 8);
+        buffer[size++] = (byte) i;
     }
 
     @Override
-    protected void _write(Long l) {
-        add(new byte[]{(byte) (l >> 56), (byte) (l >> 48), (byte) (l >> 40), (byte) (l >> 32),
-                (byte) (l >> 24), (byte) (l >> 16), (byte) (l >> 8), (byte) (l >> 0)});
+    protected void _write(long l) {
+        buffer[size++] = (byte) (l >> 56);
+        buffer[size++] = (byte) (l >> 48);
+        buffer[size++] = (byte) (l >> 40);
+        buffer[size++] = (byte) (l >> 32);
+        buffer[size++] = (byte) (l >> 24);
+        buffer[size++] = (byte) (l >> 16);
+        buffer[size++] = (byte) (l >> 8);
+        buffer[size++] = (byte) l;
     }
 
     @Override
     protected void _write(String s) {
         byte[] bytes = s.getBytes(UTF8_CHARSET);
+        ensureCapacity(bytes.length + 4);
         _write(bytes.length);
         add(bytes);
     }
 
+    @Override
+    protected void _write(byte[] bytes, int off, int len) {
+        System.arraycopy(bytes, off, buffer, size, len);
+        size += len;
+    }
+
     @Override
     public boolean readBool() {
+        ensureAvailable(1);
         return buffer[readIndex++] == 1;
     }
 
     @Override
     public byte readByte() {
+        ensureAvailable(1);
         return buffer[readIndex++];
     }
 
     @Override
     public short readShort() {
+        ensureAvailable(2);
         return (short) (buffer[readIndex++] << 8 | (buffer[readIndex++] & 0xff));
     }
 
     @Override
     public int readInt() {
+        ensureAvailable(4);
         return buffer[readIndex++] << 24 | (buffer[readIndex++] & 0xff) << 16 | (buffer[readIndex++] & 0xff) << 8
                 | (buffer[readIndex++] & 0xff);
     }
 
     @Override
     public long readLong() {
+        ensureAvailable(8);
         return (buffer[readIndex++] & 0xffL) << 56 | (buffer[readIndex++] & 0xffL) << 48 | (buffer[readIndex++] & 0xffL) << 40
                 | (buffer[readIndex++] & 0xffL) << 32 | (buffer[readIndex++] & 0xffL) << 24
                 | (buffer[readIndex++] & 0xffL) << 16 | (buffer[readIndex++] & 0xffL) << 8 | (buffer[readIndex++] & 0xffL);
     }
 
     @Override
-    public String readString() {
+    protected String _readString() {
 
         int stringLength = readInt();
+        ensureAvailable(stringLength);
 
         if (stringLength > 0 && readIndex + stringLength <= buffer.length) {
             readIndex += stringLength;
@@ -118,10 +150,41 @@ public class NormalStore extends StoreBase {
         return "";
     }
 
-    protected void add(byte[] bytes) {
-        for (byte b : bytes) {
-            _write(b);
+    @Override
+    protected SealedStore.ReaderFactory readerFactory() throws NotImplementedException {
+        return (content, offset) -> {
+            NormalStore reader = new NormalStore(content.array(), content.limit());
+            reader.readIndex = offset;
+            return reader;
+        };
+    }
+
+    @Override
+    protected Utf8View _readStringView() {
+        return readStringView(readInt());
+    }
+
+    /**
+     * Returns a view of the next length bytes of the buffer, the view counterpart of the String decoding.
+     */
+    protected Utf8View readStringView(int length) {
+        ensureAvailable(length);
+        if (length > 0 && readIndex + length <= buffer.length) {
+            readIndex += length;
+            return Utf8View.wrap(buffer, readIndex - length, length);
         }
+        return Utf8View.EMPTY;
+    }
+
+    @Override
+    public void readBytes(byte[] bytes, int off, int len) {
+        ensureAvailable(len);
+        System.arraycopy(buffer, readIndex, bytes, off, len);
+        readIndex += len;
+    }
+
+    protected void add(byte[] bytes) {
+        _write(bytes, 0, bytes.length);
     }
 
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * The immutable content of a store, created by {@link StoreBase#seal()}, which hands out independent reader cursors.
+ * <p/>
+ * Every call of {@link #newReader()} returns a new store of the sealed store's kind which reads the shared content
+ * without copying it, so several threads can decode different sections of one buffer in parallel. A reader is
+ * a normal store with its own read position, it can't be written and is used by one thread at a time.
+ * The content of a store written in dictionary mode can only be read from the start, with a new dictionary.
+ * <pre>
+ * SealedStore sealed = store.seal();
+ * pool.submit(() -> decode(sealed.newReader(0)));
+ * pool.submit(() -> decode(sealed.newReader(secondSectionOffset)));
+ * </pre>
+ */
+public final class SealedStore {
+
+    /**
+     * Creates a reader of the given content, starting at the given byte offset.
+     */
+    @FunctionalInterface
+    public interface ReaderFactory {
+        StoreBase create(ByteBuffer content, int offset) throws NotImplementedException;
+    }
+
+    private final ByteBuffer content;
+    private final ReaderFactory factory;
+    // the temporal modes of the writer, the wire format doesn't carry them
+    private final LocalDateTime temporalBase;
+    private final ZoneId zone;
+
+    SealedStore(ByteBuffer content, ReaderFactory factory, LocalDateTime temporalBase, ZoneId zone) {
+        this.content = content;
+        this.factory = factory;
+        this.temporalBase = temporalBase;
+        this.zone = zone;
+    }
+
+    /**
+     * The number of content bytes.
+     */
+    public int size() {
+        return content.remaining();
+    }
+
+    /**
+     * Returns a read-only view of the content.
+     */
+    public ByteBuffer getByteBuffer() {
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a new reader at the start of the content.
+     */
+    public StoreBase newReader() throws NotImplementedException {
+        return newReader(0);
+    }
+
+    /**
+     * Returns a new reader starting at the given byte offset, for example an element offset recorded while writing.
+     * The reader has the temporal base and zone the sealed store was written with.
+     * For a {@link BitStore} the offset must be the byte position of a value written at a byte boundary.
+     */
+    public StoreBase newReader(int offset) throws NotImplementedException {
+        if (offset < 0 || offset > content.remaining())
+            throw new IndexOutOfBoundsException("offset " + offset + ", size " + content.remaining());
+        StoreBase reader = factory.create(content.duplicate(), offset);
+        reader.setTemporalBase(temporalBase);
+        reader.berlinZone = zone;
+        reader.readOnly = true;
+        return reader;
+    }
+}
@@ -19,6 +19,8 @@
 package de.longri.serializable;
 
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 /**
@@ -35,20 +37,11 @@ public class SerializableArrayList<T extends Serializable> implements Serializab
 
 
     @Override
-    public void serialize(StoreBase writer) {
-
-        try {
-            writer.write(list.size());
-            ArrayList<Byte> byteArrayList = new ArrayList<Byte>();
-
-            for (T t : list) {
-                t.serialize(writer);
-            }
-        } catch (NotImplementedException e) {
-            e.printStackTrace();
+    public void serialize(StoreBase writer) throws NotImplementedException {
+        writer.write(list.size());
+        for (T t : list) {
+            t.serialize(writer);
         }
-
-
     }
 
     @Override
@@ -56,6 +49,48 @@ public class SerializableArrayList<T extends Serializable> implements Serializab
         list = reader.readList(tClass);
     }
 
+    /**
+     * Serializes the list in chunks in parallel on the common {@link java.util.concurrent.ForkJoinPool},
+     * see {@link ChunkedSerializer}.
+     */
+    public byte[] serializeParallel(StoreType storeType, Codec codec) throws NotImplementedException {
+        return ChunkedSerializer.serialize(list, storeType, codec);
+    }
+
+    /**
+     * Replaces the content with the elements of data written by {@link #serializeParallel(StoreType, Codec)},
+     * the chunks are decoded in parallel.
+     */
+    public void deserializeParallel(byte[] data) throws NotImplementedException, IOException {
+        list = ChunkedSerializer.deserialize(data, tClass);
+    }
+
+    /**
+     * Serializes the list column by column, see {@link ColumnarBatch}. All elements must write the same
+     * sequence of value types.
+     */
+    public byte[] serializeColumnar() throws NotImplementedException {
+        return ColumnarBatch.encode(list);
+    }
+
+    /**
+     * Replaces the content with the elements of data written by {@link #serializeColumnar()}.
+     */
+    public void deserializeColumnar(byte[] data) throws NotImplementedException {
+        list = ColumnarBatch.decode(data, tClass);
+    }
+
+    /**
+     * Writes all elements into the given file in the indexed container format, see {@link IndexedList}.
+     */
+    public void writeIndexed(Path file, StoreType storeType) throws IOException, NotImplementedException {
+        try (IndexedListWriter<T> writer = new IndexedListWriter<>(file, storeType)) {
+            for (T t : list) {
+                writer.add(t);
+            }
+        }
+    }
+
     public void add(T object) {
         list.add(object);
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+/**
+ * Writes and reads the fields of an object to and from a {@link StoreBase}.
+ * <p>
+ * Implementations are generated for classes annotated with {@link Serialized}, or created by
+ * {@link SerializableCodecs#get(Class)} for hand written {@link Serializable} classes.
+ */
+public interface SerializableCodec<T> {
+
+    /**
+     * Creates a new instance without reflection.
+     */
+    T newInstance();
+
+    void write(T value, StoreBase writer) throws NotImplementedException;
+
+    void read(T value, StoreBase reader) throws NotImplementedException;
+
+}
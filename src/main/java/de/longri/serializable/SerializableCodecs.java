@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Lookup of the {@link SerializableCodec} of a class and the wire format helpers of the generated codecs.
+ * <p>
+ * A generated codec writes every field as key followed by the value, where the key is
+ * {@code tag << 3 | wireType}. The field list ends with the key {@link #END}. Unknown keys are skipped
+ * with {@link #skip(StoreBase, int)}, so a reader only needs to know the wire type to step over a field.
+ */
+public final class SerializableCodecs {
+
+    public static final int END = 0;
+
+    public static final int WIRE_BOOL = 0;
+    public static final int WIRE_BYTE = 1;
+    public static final int WIRE_SHORT = 2;
+    public static final int WIRE_INT = 3;
+    public static final int WIRE_LONG = 4;
+    public static final int WIRE_STRING = 5;
+    public static final int WIRE_BYTES = 6;
+    public static final int WIRE_OBJECT = 7;
+
+    public static final String CODEC_SUFFIX = "_Codec";
+
+    private static final ClassValue<SerializableCodec<?>> CODECS = new ClassValue<SerializableCodec<?>>() {
+        @Override
+        protected SerializableCodec<?> computeValue(Class<?> type) {
+            return createCodec(type);
+        }
+    };
+
+    private SerializableCodecs() {
+    }
+
+    /**
+     * Returns the codec of the given class. The generated codec is used if one exists,
+     * otherwise a codec calling {@link Serializable#serialize(StoreBase)} and
+     * {@link Serializable#deserialize(StoreBase)} with a cached constructor.
+     * The lookup is done once per class.
+     *
+     * @throws IllegalArgumentException if no generated codec exists and the class isn't instantiable
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SerializableCodec<T> get(Class<T> type) {
+        return (SerializableCodec<T>) CODECS.get(type);
+    }
+
+    /**
+     * Returns the simple name of the generated codec for the given class.
+     */
+    public static String getCodecName(Class<?> type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Class<?> enclosing = type.getEnclosingClass(); enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            sb.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return sb.append(CODEC_SUFFIX).toString();
+    }
+
+    public static int key(int tag, int wireType) {
+        return tag << 3 | wireType;
+    }
+
+    /**
+     * Writes the {@link #WIRE_STRING} value, a presence flag followed by the string,
+     * as not every store can write null strings.
+     */
+    public static void writeString(StoreBase writer, String value) throws NotImplementedException {
+        writer.write(value != null);
+        if (value != null) writer.write(value);
+    }
+
+    public static String readString(StoreBase reader) throws NotImplementedException {
+        return reader.readBool() ? reader.readString() : null;
+    }
+
+    /**
+     * Writes the {@link #WIRE_BYTES} value, a length prefix of -1 for null.
+     */
+    public static void writeBytes(StoreBase writer, byte[] bytes) throws NotImplementedException {
+        if (bytes == null) {
+            writer.write(-1);
+        } else {
+            writer.write(bytes.length);
+            writer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    public static byte[] readBytes(StoreBase reader) throws NotImplementedException {
+        int length = reader.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        reader.readBytes(bytes, 0, length);
+        return bytes;
+    }
+
+    /**
+     * Reads and drops a value of the given wire type.
+     */
+    public static void skip(StoreBase reader, int wireType) throws NotImplementedException {
+        switch (wireType) {
+            case WIRE_BOOL:
+                reader.readBool();
+                break;
+            case WIRE_BYTE:
+                reader.readByte();
+                break;
+            case WIRE_SHORT:
+                reader.readShort();
+                break;
+            case WIRE_INT:
+                reader.readInt();
+                break;
+            case WIRE_LONG:
+                reader.readLong();
+                break;
+            case WIRE_STRING:
+                readString(reader);
+                break;
+            case WIRE_BYTES:
+                readBytes(reader);
+                break;
+            case WIRE_OBJECT:
+                if (reader.readBool()) skipFields(reader);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown wire type: " + wireType);
+        }
+    }
+
+    /**
+     * Skips all fields up to and including the {@link #END} key.
+     */
+    public static void skipFields(StoreBase reader) throws NotImplementedException {
+        for (int key = reader.readInt(); key != END; key = reader.readInt()) {
+            skip(reader, key & 7);
+        }
+    }
+
+    private static SerializableCodec<?> createCodec(Class<?> type) {
+        String name = type.getPackageName().isEmpty() ? getCodecName(type)
+                : type.getPackageName() + "." + getCodecName(type);
+        try {
+            Class<?> codecClass = Class.forName(name, true, type.getClassLoader());
+            if (SerializableCodec.class.isAssignableFrom(codecClass)) {
+                return (SerializableCodec<?>) codecClass.getDeclaredConstructor().newInstance();
+            }
+        } catch (ClassNotFoundException e) {
+            // no generated codec, use the hand written serialize/deserialize
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create codec " + name, e);
+        }
+
+        if (!Serializable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getName() + " is neither Serializable nor annotated with @Serialized");
+        }
+        return new SerializableFallbackCodec<>(type.asSubclass(Serializable.class));
+    }
+
+    private static final class SerializableFallbackCodec<T extends Serializable> implements SerializableCodec<T> {
+
+        private final MethodHandle constructor;
+
+        SerializableFallbackCodec(Class<T> type) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Serializable.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException(type.getName() + " needs an accessible no-arg constructor", e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance() {
+            try {
+                return (T) (Serializable) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(T value, StoreBase writer) throws NotImplementedException {
+            value.serialize(writer);
+        }
+
+        @Override
+        public void read(T value, StoreBase reader) throws NotImplementedException {
+            value.deserialize(reader);
+        }
+    }
+}
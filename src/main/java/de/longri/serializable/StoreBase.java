@@ -18,7 +18,8 @@
  */
 package de.longri.serializable;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.*;
@@ -39,41 +40,118 @@ public abstract class StoreBase {
     protected int size;
 
     public StoreBase() {
-        buffer = this.createNewItems(INITIAL_SIZE);
+        this(INITIAL_SIZE);
+    }
+
+    /**
+     * Creates a store with the given initial capacity of the byte[] buffer.
+     * A capacity <= 0 leaves the buffer unallocated, for stores with a different backing storage.
+     */
+    protected StoreBase(int initialSize) {
+        buffer = this.createNewItems(initialSize);
     }
 
     public StoreBase(byte[] values) {
         size = values.length - 1;
         buffer = values;
     }
+
+    /**
+     * Takes the given array as buffer, only the first length bytes are content.
+     */
+    protected StoreBase(byte[] values, int length) {
+        size = length;
+        buffer = values;
+    }
     /*---------- String constructor and getter based on Base64 --------------*/
 
+    /**
+     * Reads the given Base64 string, the basic and the URL-safe alphabet are accepted.
+     */
     public StoreBase(String base64) {
-        this(Base64.getDecoder().decode(base64));
+        this(TransportEncoding.decodeBase64(base64));
     }
 
     public String getBase64String() {
         try {
-            return Base64.getEncoder().encodeToString(getArray());
+            ByteBuffer encoded = Base64.getEncoder().encode(payload());
+            return new String(encoded.array(), 0, encoded.remaining(), StandardCharsets.ISO_8859_1);
         } catch (NotImplementedException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Appends the Base64 encoded content straight from the buffer to out, without a String in between.
+     */
+    public void writeBase64(Appendable out) throws IOException, NotImplementedException {
+        TransportEncoding.encodeBase64(payload(), out, false);
+    }
+
+    /**
+     * Appends the Base64 encoded content straight from the buffer to out.
+     * The URL-safe mode uses the alphabet of RFC 4648 section 5 without padding.
+     */
+    public void writeBase64(Appendable out, boolean urlSafe) throws IOException, NotImplementedException {
+        TransportEncoding.encodeBase64(payload(), out, urlSafe);
+    }
+
+    /**
+     * Puts the Base64 encoded content as US-ASCII bytes into dst.
+     */
+    public void writeBase64(ByteBuffer dst, boolean urlSafe) throws NotImplementedException {
+        TransportEncoding.encodeBase64(payload(), dst, urlSafe);
+    }
+
+    /**
+     * Returns the number of chars written by {@link #writeBase64(Appendable, boolean)}.
+     */
+    public int getBase64Length(boolean urlSafe) throws NotImplementedException {
+        return TransportEncoding.base64Length(payload().remaining(), urlSafe);
+    }
+
+    public String getHexString() {
+        try {
+            StringBuilder sb = new StringBuilder(payload().remaining() * 2);
+            writeHex(sb);
+            return sb.toString();
+        } catch (NotImplementedException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Appends the content as lower case hex straight from the buffer to out.
+     */
+    public void writeHex(Appendable out) throws IOException, NotImplementedException {
+        TransportEncoding.encodeHex(payload(), out);
+    }
+
     /*---------- abstract method's --------------*/
 
     protected abstract void _write(boolean b) throws NotImplementedException;
 
-    protected abstract void _write(Byte b) throws NotImplementedException;
+    protected abstract void _write(byte b) throws NotImplementedException;
 
-    protected abstract void _write(Short s) throws NotImplementedException;
+    protected abstract void _write(short s) throws NotImplementedException;
 
-    protected abstract void _write(Integer i) throws NotImplementedException;
+    protected abstract void _write(int i) throws NotImplementedException;
 
-    protected abstract void _write(Long l) throws NotImplementedException;
+    protected abstract void _write(long l) throws NotImplementedException;
 
     protected abstract void _write(String s) throws NotImplementedException;
 
+    protected abstract String _readString() throws NotImplementedException;
+
+    /**
+     * Writes len bytes of the given array, stores with a raw byte layout overwrite this with a bulk copy.
+     */
+    protected void _write(byte[] bytes, int off, int len) throws NotImplementedException {
+        for (int i = off, n = off + len; i < n; i++) {
+            _write(bytes[i]);
+        }
+    }
+
     public abstract boolean readBool() throws NotImplementedException;
 
     public abstract byte readByte() throws NotImplementedException;
@@ -84,7 +162,54 @@ public abstract class StoreBase {
 
     public abstract long readLong() throws NotImplementedException;
 
-    public abstract String readString() throws NotImplementedException;
+    public final String readString() throws NotImplementedException {
+        if (stringDictionary != null) return readDictionaryString();
+        return _readString();
+    }
+
+    /**
+     * Reads the next string as {@link Utf8View}, the counterpart of {@link #readString()}.
+     * Stores which keep the UTF-8 bytes in their buffer return a view of the buffer without decoding,
+     * the view is valid until the store is reset or written again.
+     */
+    public final Utf8View readStringView() throws NotImplementedException {
+        if (stringDictionary != null) return Utf8View.of(readDictionaryString());
+        return _readStringView();
+    }
+
+    /**
+     * Reads a string as view, the default decodes with {@link #_readString()}.
+     */
+    protected Utf8View _readStringView() throws NotImplementedException {
+        return Utf8View.of(_readString());
+    }
+
+    /**
+     * Reads len bytes into the given array, the counterpart of {@link #write(byte[], int, int)}.
+     */
+    public void readBytes(byte[] bytes, int off, int len) throws NotImplementedException {
+        for (int i = off, n = off + len; i < n; i++) {
+            bytes[i] = readByte();
+        }
+    }
+
+    /**
+     * Fills the given array with int values, the counterpart of {@link #write(int[])}.
+     */
+    public void readInts(int[] values) throws NotImplementedException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readInt();
+        }
+    }
+
+    /**
+     * Fills the given array with long values, the counterpart of {@link #write(long[])}.
+     */
+    public void readLongs(long[] values) throws NotImplementedException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readLong();
+        }
+    }
 
 
 
@@ -130,6 +255,10 @@ public abstract class StoreBase {
     }
 
     public final void write(String s) throws NotImplementedException {
+        if (stringDictionary != null) {
+            writeDictionaryString(s);
+            return;
+        }
         if (s == null) {
             ensureCapacity(2);
             _write(s);
@@ -141,64 +270,243 @@ public abstract class StoreBase {
 
     }
 
-    public ZoneId berlinZone = ZoneId.of("Europe/Berlin");
+    /**
+     * Writes len bytes of the given array without a length prefix.
+     */
+    public final void write(byte[] bytes, int off, int len) throws NotImplementedException {
+        ensureCapacity(len * 2 + 4);
+        _write(bytes, off, len);
+    }
+
+    /**
+     * Writes all values of the given array without a length prefix, with a single capacity check.
+     */
+    public final void write(int[] values) throws NotImplementedException {
+        ensureCapacity(values.length * 5 + 16);
+        for (int value : values) {
+            _write(value);
+        }
+    }
+
+    /**
+     * Writes all values of the given array without a length prefix, with a single capacity check.
+     */
+    public final void write(long[] values) throws NotImplementedException {
+        ensureCapacity(values.length * 9 + 32);
+        for (long value : values) {
+            _write(value);
+        }
+    }
+
+    /*---------- string dictionary --------------*/
+
+    private static final int DICTIONARY_NULL = -1;
+    private static final int DICTIONARY_LITERAL = 0;
+
+    private StringDictionary stringDictionary;
+
+    /**
+     * Switches this store to the dictionary mode, or back to plain strings with null.
+     * <p>
+     * In dictionary mode every string is written as int code: {@code -1} for null, {@code 0} followed by
+     * the string for the first occurrence and {@code index + 1} as back-reference for every further occurrence.
+     * Writer and reader must both use the dictionary mode, each with its own {@link StringDictionary}.
+     */
+    public void setStringDictionary(StringDictionary stringDictionary) {
+        this.stringDictionary = stringDictionary;
+    }
+
+    public StringDictionary getStringDictionary() {
+        return stringDictionary;
+    }
+
+    private void writeDictionaryString(String s) throws NotImplementedException {
+        ensureCapacity(16);
+        if (s == null) {
+            _write(DICTIONARY_NULL);
+            return;
+        }
+        int index = stringDictionary.indexOfOrAdd(s);
+        if (index >= 0) {
+            _write(index + 1);
+        } else {
+            _write(DICTIONARY_LITERAL);
+            ensureCapacity(s.length() * 2);
+            _write(s);
+        }
+    }
+
+    private String readDictionaryString() throws NotImplementedException {
+        int code = readInt();
+        if (code == DICTIONARY_NULL) return null;
+        if (code == DICTIONARY_LITERAL) {
+            String s = _readString();
+            stringDictionary.add(s);
+            return s;
+        }
+        return stringDictionary.get(code - 1);
+    }
+
+    /*---------- LocalDate / LocalDateTime --------------*/
+
+    private static final ZoneId BERLIN_ZONE = ZoneId.of("Europe/Berlin");
+    private static final long NULL_TIMESTAMP = -1L;
+    private static final long COMPACT_NULL = 0L;
+
+    /**
+     * Zone of the millisecond timestamps written for LocalDate and LocalDateTime, if no temporal base is set.
+     */
+    public ZoneId berlinZone = BERLIN_ZONE;
+
+    private ZoneOffsetCache zoneOffsetCache;
+
+    private boolean compactTemporal;
+    private long temporalBaseSecond;
+    private long temporalBaseDay;
+
+    /**
+     * Switches to the compact temporal encoding, or back to millisecond timestamps with null.
+     * <p>
+     * In compact mode a LocalDateTime is written as the difference in seconds to the given base, a LocalDate as
+     * difference in days to the date of the base, both with {@link #writeCompactLong(long)}. The values are local
+     * times, so no zone is involved. Fractions of a second are dropped, like in the millisecond format.
+     * Writer and reader must use the same base.
+     */
+    public void setTemporalBase(LocalDateTime base) {
+        compactTemporal = base != null;
+        if (base != null) {
+            temporalBaseSecond = base.toEpochSecond(ZoneOffset.UTC);
+            temporalBaseDay = base.toLocalDate().toEpochDay();
+        }
+    }
+
+    public LocalDateTime getTemporalBase() {
+        return compactTemporal ? LocalDateTime.ofEpochSecond(temporalBaseSecond, 0, ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Writes a long which is small in most cases. The default writes a normal long,
+     * stores with a variable length encoding overwrite this.
+     */
+    protected void writeCompactLong(long value) throws NotImplementedException {
+        write(value);
+    }
+
+    protected long readCompactLong() throws NotImplementedException {
+        return readLong();
+    }
 
     public final void write(LocalDate localDate) throws NotImplementedException {
-        if (localDate == null) {
-            long l = -1L;
-            write(l);
+        if (compactTemporal) {
+            writeCompactTemporal(localDate == null, localDate == null ? 0 : localDate.toEpochDay() - temporalBaseDay);
+        } else if (localDate == null) {
+            write(NULL_TIMESTAMP);
         } else {
-            long unixTimestamp = localDate.atStartOfDay(berlinZone).toEpochSecond() * 1000;
-            write(unixTimestamp);
+            long localSecond = localDate.toEpochDay() * 86400;
+            write(zoneOffsetCache().startOfDayToEpochSecond(localSecond) * 1000);
         }
     }
 
     public LocalDate readLocalDate() throws NotImplementedException {
+        if (compactTemporal) {
+            long code = readCompactLong();
+            return code == COMPACT_NULL ? null : LocalDate.ofEpochDay(temporalBaseDay + decodeCompactTemporal(code));
+        }
         long unixTimestamp = readLong();
-        if (unixTimestamp == -1L) return null;
-        Instant instant = Instant.ofEpochMilli(unixTimestamp);
-        return instant.atZone(berlinZone).toLocalDate();
+        if (unixTimestamp == NULL_TIMESTAMP) return null;
+        long localSecond = zoneOffsetCache().toLocalSecond(Math.floorDiv(unixTimestamp, 1000));
+        return LocalDate.ofEpochDay(Math.floorDiv(localSecond, 86400));
     }
 
-
     public final void write(LocalDateTime localDateTime) throws NotImplementedException {
-        long unixTimestamp;
-        if (localDateTime == null) {
-            unixTimestamp = -1;
+        if (compactTemporal) {
+            writeCompactTemporal(localDateTime == null,
+                    localDateTime == null ? 0 : localDateTime.toEpochSecond(ZoneOffset.UTC) - temporalBaseSecond);
+        } else if (localDateTime == null) {
+            write(NULL_TIMESTAMP);
         } else {
-            unixTimestamp = localDateTime.atZone(berlinZone).toEpochSecond() * 1000;
+            write(zoneOffsetCache().toEpochSecond(localDateTime.toEpochSecond(ZoneOffset.UTC)) * 1000);
         }
-        write(unixTimestamp);
-
     }
 
     public final LocalDateTime readLocalDateTime() throws NotImplementedException {
+        if (compactTemporal) {
+            long code = readCompactLong();
+            if (code == COMPACT_NULL) return null;
+            return LocalDateTime.ofEpochSecond(temporalBaseSecond + decodeCompactTemporal(code), 0, ZoneOffset.UTC);
+        }
         long unixTimestamp = readLong();
-        if (unixTimestamp == -1) return null;
-        Instant instant = Instant.ofEpochMilli(unixTimestamp);
-        return instant.atZone(berlinZone).toLocalDateTime();
+        if (unixTimestamp == NULL_TIMESTAMP) return null;
+        long epochSecond = Math.floorDiv(unixTimestamp, 1000);
+        int nanos = Math.floorMod(unixTimestamp, 1000) * 1000000;
+        return LocalDateTime.ofEpochSecond(epochSecond, nanos, zoneOffsetCache().getOffset(epochSecond));
+    }
+
+    // null is 0, so the deltas >= 0 are shifted by one
+    private void writeCompactTemporal(boolean isNull, long delta) throws NotImplementedException {
+        writeCompactLong(isNull ? COMPACT_NULL : delta >= 0 ? delta + 1 : delta);
+    }
+
+    private static long decodeCompactTemporal(long code) {
+        return code > 0 ? code - 1 : code;
+    }
+
+    private ZoneOffsetCache zoneOffsetCache() {
+        if (zoneOffsetCache == null || zoneOffsetCache.zone != berlinZone) {
+            zoneOffsetCache = new ZoneOffsetCache(berlinZone);
+        }
+        return zoneOffsetCache;
     }
 
     public byte[] getArray() throws NotImplementedException {
         trimToSize();
+        bufferShared = true;
         return buffer;
     }
 
+    /**
+     * Returns a read-only view of the written bytes without trimming or copying the buffer.
+     * The view is only valid until the next write to this store.
+     */
+    public ByteBuffer getByteBuffer() throws NotImplementedException {
+        return payload().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the written bytes as buffer without copy, the base of {@link #getByteBuffer()} and
+     * {@link #getArray(Codec)}. Stores with a different payload, like the zipped stores, overwrite this.
+     */
+    protected ByteBuffer payload() throws NotImplementedException {
+        if (buffer == null) return ByteBuffer.allocate(0);
+        return ByteBuffer.wrap(buffer, 0, size).slice();
+    }
+
+    /**
+     * Returns the written bytes encoded with the given codec, with the codec id as header byte.
+     * A reader gets the bytes back with {@link Codecs#unpack(byte[])}.
+     */
+    public byte[] getArray(Codec codec) throws NotImplementedException {
+        ByteBuffer payload = payload();
+        if (payload.hasArray()) {
+            return Codecs.pack(codec, payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return Codecs.pack(codec, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads a list written by {@link SerializableArrayList}. The elements are created with the
+     * cached factory of {@link SerializableCodecs#get(Class)}.
+     */
     public <T extends Serializable> ArrayList<T> readList(Class<T> tClass) throws NotImplementedException {
-        ArrayList<T> list = new ArrayList<T>();
+        SerializableCodec<T> codec = SerializableCodecs.get(tClass);
         int size = readInt();
+        ArrayList<T> list = new ArrayList<T>(Math.max(0, Math.min(size, 1024)));
         for (int i = 0; i < size; i++) {
-
-            try {
-                T t = tClass.getDeclaredConstructor().newInstance();
-                t.deserialize(this);
-                list.add(t);
-            } catch (InstantiationException | IllegalAccessException | NotImplementedException e) {
-                e.printStackTrace();
-            } catch (InvocationTargetException | NoSuchMethodException e) {
-                throw new RuntimeException(e);
-            }
-
+            T t = codec.newInstance();
+            t.deserialize(this);
+            list.add(t);
         }
         return list;
     }
@@ -214,9 +522,22 @@ public abstract class StoreBase {
      * Increases the size of the backing array to acommodate the specified number of additional buffer. Useful before adding many buffer to
      * avoid multiple backing array resizes.
      */
-    private void ensureCapacity(int additionalCapacity) {
+    protected void ensureCapacity(int additionalCapacity) {
+        checkWritable();
         int sizeNeeded = size + additionalCapacity;
-        if (sizeNeeded > getItemLength()) resize(Math.max(INITIAL_SIZE, sizeNeeded));
+        // grow by 1.5 to keep the copies amortized for big payloads
+        if (sizeNeeded > getItemLength()) resize(Math.max(sizeNeeded, getItemLength() + (getItemLength() >> 1)));
+    }
+
+    final void checkWritable() {
+        if (readOnly) throw new IllegalStateException("The reader of a SealedStore can't be written");
+    }
+
+    /**
+     * Called by readers before they access count bytes of the buffer. Stores that read incrementally from a stream
+     * overwrite this to refill the buffer, the default does nothing since the whole payload is already there.
+     */
+    protected void ensureAvailable(int count) {
     }
 
     private void resize(int newSize) {
@@ -228,6 +549,76 @@ public abstract class StoreBase {
         }
     }
 
+    // set if getArray() handed out the buffer itself
+    private boolean bufferShared;
+
+    /**
+     * Rewinds the write and the read position, so the store can be written again without a new buffer.
+     * The buffer and the modes (string dictionary, temporal base, zone) are kept. A buffer returned by
+     * {@link #getArray()} is not reused, results taken with {@link #getByteBuffer()}, {@link #getBase64String()}
+     * or {@link #getArray(Codec)} keep the reset allocation free.
+     */
+    public void reset() {
+        size = 0;
+        if (bufferShared) {
+            // the caller of getArray() owns the buffer now
+            buffer = null;
+            bufferShared = false;
+        }
+    }
+
+    // set for the readers of a SealedStore
+    boolean readOnly;
+
+    /**
+     * Hands the written content over to an immutable {@link SealedStore} without copying it. The store itself is
+     * reset and continues with a new buffer, the modes (string dictionary, temporal base, zone) are kept.
+     * The readers of the sealed store use the temporal base and zone of this store.
+     */
+    public SealedStore seal() throws NotImplementedException {
+        SealedStore.ReaderFactory factory = readerFactory();
+        LocalDateTime temporalBase = getTemporalBase();
+        ZoneId zone = berlinZone;
+        ByteBuffer content = detachContent();
+        reset();
+        return new SealedStore(content, factory, temporalBase, zone);
+    }
+
+    /**
+     * Returns the factory for the reader cursors of a {@link SealedStore}, stores which can't be sealed throw.
+     */
+    protected SealedStore.ReaderFactory readerFactory() throws NotImplementedException {
+        throw new NotImplementedException(getClass().getSimpleName() + " can't be sealed");
+    }
+
+    /**
+     * Returns the written content without copy and drops it from this store, the next write allocates a new buffer.
+     */
+    protected ByteBuffer detachContent() throws NotImplementedException {
+        ByteBuffer content = buffer == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(buffer, 0, size).slice();
+        buffer = null;
+        size = 0;
+        bufferShared = false;
+        return content;
+    }
+
+    /**
+     * Resets the store and switches back to the modes of a new store. The buffer is kept for the next use.
+     */
+    public void clear() {
+        reset();
+        stringDictionary = null;
+        compactTemporal = false;
+        berlinZone = BERLIN_ZONE;
+    }
+
+    /**
+     * Returns the capacity of the write buffer.
+     */
+    int capacity() {
+        return getItemLength();
+    }
+
     /**
      * Reduces the size of the array to the specified size. If the array is already smaller than the specified size, no action is taken.
      */
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Optional frame format for stores sent over the network or written to disk.
+ * <p/>
+ * Every frame carries the store payload behind a fixed header, all numbers big-endian:
+ * <pre>
+ * magic (int), payload length (int), CRC32C of magic and length (int), CRC32C of the payload (int), payload
+ * </pre>
+ * The checksums are computed with {@link CRC32C}, which the JIT replaces by the hardware instruction.
+ * A {@link Reader} validates every frame before it hands out the payload. The header checksum is validated before
+ * the payload is read, so a damaged length never makes the reader wait for or buffer a payload that doesn't exist.
+ * Frames with a wrong magic, a header checksum mismatch, an implausible length or a payload checksum mismatch are
+ * skipped and the reader resyncs on the next magic, so a concatenated stream with damaged or truncated frames still
+ * delivers all intact frames without decoding the damaged ones.
+ */
+public final class StoreFrames {
+
+    public static final int MAGIC = 0x4C534652; // "LSFR"
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * The default upper bound for a payload length, longer frames are treated as corrupt.
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private StoreFrames() {
+    }
+
+    /**
+     * Returns the content of the store as one frame.
+     */
+    public static byte[] frame(StoreBase store) throws NotImplementedException {
+        ByteBuffer payload = store.payload();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+        putFrame(payload, frame);
+        return frame.array();
+    }
+
+    /**
+     * Puts the remaining bytes of payload as one frame into dst, the position of payload is not changed.
+     */
+    public static void putFrame(ByteBuffer payload, ByteBuffer dst) {
+        int length = payload.remaining();
+        dst.putInt(MAGIC).putInt(length).putInt(headerChecksum(length)).putInt(checksum(payload.duplicate()))
+                .put(payload.duplicate());
+    }
+
+    /**
+     * Writes the content of the store as one frame to out, the payload is written straight from the store buffer.
+     */
+    public static void writeFrame(StoreBase store, OutputStream out) throws IOException, NotImplementedException {
+        writeFrame(store.payload(), out);
+    }
+
+    /**
+     * Writes the remaining bytes of payload as one frame to out, the position of payload is not changed.
+     */
+    public static void writeFrame(ByteBuffer payload, OutputStream out) throws IOException {
+        int length = payload.remaining();
+        byte[] header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(length).putInt(headerChecksum(length)).putInt(checksum(payload.duplicate()))
+                .array();
+        out.write(header);
+        if (payload.hasArray()) {
+            out.write(payload.array(), payload.arrayOffset() + payload.position(), length);
+        } else {
+            byte[] bytes = new byte[length];
+            payload.duplicate().get(bytes);
+            out.write(bytes);
+        }
+    }
+
+    static int headerChecksum(int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8).putInt(MAGIC).putInt(length).flip());
+        return (int) crc.getValue();
+    }
+
+    static int checksum(ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Reads the frames of a buffer or a stream one by one.
+     * <p/>
+     * A reader over a {@link ByteBuffer} hands out slices of that buffer. A reader over an {@link InputStream}
+     * hands out slices of its internal buffer, which are only valid until the next call of {@link #next()}.
+     * A reader is not thread safe.
+     */
+    public static final class Reader {
+
+        private final InputStream in;
+        private final int maxFrameLength;
+        private ByteBuffer buffer;
+        private boolean eof;
+        private long corruptFrames;
+        private long skippedBytes;
+
+        public Reader(ByteBuffer frames) {
+            this(frames, DEFAULT_MAX_FRAME_LENGTH);
+        }
+
+        public Reader(ByteBuffer frames, int maxFrameLength) {
+            this.in = null;
+            this.buffer = frames.slice();
+            this.maxFrameLength = maxFrameLength;
+            this.eof = true;
+        }
+
+        public Reader(InputStream in) {
+            this(in, DEFAULT_MAX_FRAME_LENGTH);
+        }
+
+        public Reader(InputStream in, int maxFrameLength) {
+            this.in = in;
+            this.buffer = ByteBuffer.allocate(8192).flip();
+            this.maxFrameLength = maxFrameLength;
+        }
+
+        /**
+         * Returns the payload of the next valid frame or null at the end of the input.
+         * Invalid frames and garbage between frames are skipped.
+         */
+        public ByteBuffer next() throws IOException {
+            while (true) {
+                if (!request(HEADER_SIZE)) {
+                    skip(buffer.remaining());
+                    return null;
+                }
+                int position = buffer.position();
+                if (buffer.getInt(position) != MAGIC) {
+                    resync();
+                    continue;
+                }
+                int length = buffer.getInt(position + 4);
+                if (headerChecksum(length) != buffer.getInt(position + 8) || length < 0 || length > maxFrameLength
+                        || !request(HEADER_SIZE + length)) {
+                    corrupt();
+                    continue;
+                }
+                // request() can compact the buffer
+                position = buffer.position();
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(position + HEADER_SIZE).limit(position + HEADER_SIZE + length);
+                if (checksum(payload.duplicate()) != buffer.getInt(position + 12)) {
+                    corrupt();
+                    continue;
+                }
+                buffer.position(position + HEADER_SIZE + length);
+                return payload.slice();
+            }
+        }
+
+        /**
+         * Returns a store reading the payload of the next valid frame or null at the end of the input.
+         * The store doesn't depend on the reader, it is valid after the next call.
+         */
+        public StoreBase nextStore(StoreType type) throws IOException {
+            ByteBuffer payload = next();
+            if (payload == null) return null;
+            if (in == null) return type.createReader(payload);
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            return type.createReader(bytes);
+        }
+
+        /**
+         * Reads the payload of the next frame, a damaged frame is reported instead of skipped.
+         *
+         * @throws EOFException at the end of the input
+         * @throws IOException  if the next bytes are no valid frame
+         */
+        public ByteBuffer nextStrict() throws IOException {
+            long corrupt = corruptFrames;
+            long skipped = skippedBytes;
+            ByteBuffer payload = next();
+            if (corruptFrames != corrupt || skippedBytes != skipped) throw new IOException("Corrupt frame");
+            if (payload == null) throw new EOFException();
+            return payload;
+        }
+
+        /**
+         * The number of frames which failed the header, length or payload checksum validation.
+         */
+        public long getCorruptFrames() {
+            return corruptFrames;
+        }
+
+        /**
+         * The number of bytes skipped while searching for the next frame.
+         */
+        public long getSkippedBytes() {
+            return skippedBytes;
+        }
+
+        private void corrupt() {
+            corruptFrames++;
+            resync();
+        }
+
+        /**
+         * Skips to the next possible start of a magic after the current position.
+         */
+        private void resync() {
+            int position = buffer.position() + 1;
+            int limit = buffer.limit();
+            byte first = (byte) (MAGIC >>> 24);
+            while (position < limit && buffer.get(position) != first) position++;
+            skip(position - buffer.position());
+        }
+
+        private void skip(int count) {
+            buffer.position(buffer.position() + count);
+            skippedBytes += count;
+        }
+
+        /**
+         * Makes sure count bytes are readable from the current position, returns false at the end of the input.
+         */
+        private boolean request(int count) throws IOException {
+            if (buffer.remaining() >= count) return true;
+            if (eof) return false;
+            if (buffer.capacity() < count) {
+                int capacity = Math.max(count, Math.min(buffer.capacity() * 2, maxFrameLength + HEADER_SIZE));
+                ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                bigger.put(buffer).flip();
+                buffer = bigger;
+            }
+            buffer.compact();
+            try {
+                while (buffer.position() < count) {
+                    int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    buffer.position(buffer.position() + read);
+                }
+            } finally {
+                buffer.flip();
+            }
+            return buffer.remaining() >= count;
+        }
+    }
+}
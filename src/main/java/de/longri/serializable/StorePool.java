@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of reusable stores, so short-lived stores don't allocate a new buffer every time.
+ * <p/>
+ * A borrowed store is empty and in the state of a new store. {@link #release(StoreBase)} clears the store and keeps
+ * its buffer for the next borrower, stores which grew bigger than the retained capacity are dropped instead.
+ * The pool is thread safe, a store must not be used after it is released.
+ * <pre>
+ * BitStore store = StorePool.BIT.borrow();
+ * try {
+ *     credentials.store(store);
+ *     return store.getBase64String();
+ * } finally {
+ *     StorePool.BIT.release(store);
+ * }
+ * </pre>
+ */
+public class StorePool<S extends StoreBase> {
+
+    public static final int DEFAULT_MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    public static final int DEFAULT_MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    public static final StorePool<NormalStore> NORMAL = new StorePool<>(NormalStore::new);
+    public static final StorePool<VariableByteStore> VARIABLE_BYTE = new StorePool<>(VariableByteStore::new);
+    public static final StorePool<BitStore> BIT = new StorePool<>(BitStore::new);
+
+    private final Supplier<S> factory;
+    private final int maxPooled;
+    private final int maxRetainedCapacity;
+    private final ConcurrentLinkedQueue<S> stores = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    public StorePool(Supplier<S> factory) {
+        this(factory, DEFAULT_MAX_POOLED, DEFAULT_MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * @param maxPooled           maximal count of idle stores kept by the pool
+     * @param maxRetainedCapacity stores with a bigger buffer are not kept
+     */
+    public StorePool(Supplier<S> factory, int maxPooled, int maxRetainedCapacity) {
+        this.factory = factory;
+        this.maxPooled = maxPooled;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    public S borrow() {
+        S store = stores.poll();
+        if (store == null) return factory.get();
+        count.decrementAndGet();
+        return store;
+    }
+
+    public void release(S store) {
+        if (store == null || store.capacity() > maxRetainedCapacity) return;
+        store.clear();
+        if (count.incrementAndGet() <= maxPooled) {
+            stores.offer(store);
+        } else {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the count of idle stores in the pool.
+     */
+    public int size() {
+        return count.get();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * The source or sink of a streaming store, moves the chunk buffer of a {@link NormalStore} from and to an
+ * {@link OutputStream}, {@link InputStream} or a byte channel.
+ * <p/>
+ * All stream handling of {@link StreamNormalStore} and {@link StreamVariableByteStore} lives here, the stores
+ * only forward their buffer hooks, since they extend different wire formats.
+ */
+final class StoreStream implements Closeable, Flushable {
+
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+    private final WritableByteChannel writableChannel;
+    private final InputStream inputStream;
+    private final ReadableByteChannel readableChannel;
+
+    private boolean endOfStream;
+
+    StoreStream(OutputStream outputStream) {
+        this(outputStream, null, null, null);
+    }
+
+    StoreStream(WritableByteChannel channel) {
+        this(null, channel, null, null);
+    }
+
+    StoreStream(InputStream inputStream) {
+        this(null, null, inputStream, null);
+    }
+
+    StoreStream(ReadableByteChannel channel) {
+        this(null, null, null, channel);
+    }
+
+    private StoreStream(OutputStream outputStream, WritableByteChannel writableChannel, InputStream inputStream,
+                        ReadableByteChannel readableChannel) {
+        this.outputStream = outputStream;
+        this.writableChannel = writableChannel;
+        this.inputStream = inputStream;
+        this.readableChannel = readableChannel;
+    }
+
+    boolean isWriter() {
+        return outputStream != null || writableChannel != null;
+    }
+
+    /**
+     * Writes the written bytes of the store to the sink and rewinds the store.
+     */
+    void drain(NormalStore store) {
+        if (store.size == 0) return;
+        try {
+            if (outputStream != null) {
+                outputStream.write(store.buffer, 0, store.size);
+            } else if (writableChannel != null) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(store.buffer, 0, store.size);
+                while (byteBuffer.hasRemaining()) {
+                    writableChannel.write(byteBuffer);
+                }
+            } else {
+                throw new IllegalStateException("store is opened for reading");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        store.size = 0;
+    }
+
+    /**
+     * Drains a writer before the store rewinds. A reader can't be rewound, its buffer holds bytes read ahead from
+     * the stream which would be lost.
+     */
+    void reset(NormalStore store) {
+        if (!isWriter()) throw new IllegalStateException("a stream reader can't be reset");
+        drain(store);
+    }
+
+    /**
+     * The write side of {@link StoreBase#ensureCapacity(int)}, drains the buffer when it can't take the next value.
+     * A single value bigger than the chunk size grows the chunk.
+     */
+    void ensureCapacity(NormalStore store, int additionalCapacity) {
+        if (store.size + additionalCapacity <= store.buffer.length) return;
+        drain(store);
+        if (additionalCapacity > store.buffer.length) store.buffer = Arrays.copyOf(store.buffer, additionalCapacity);
+    }
+
+    /**
+     * Makes at least count unread bytes available in the buffer of the store. Unread bytes are moved to the start
+     * of the buffer before it is refilled, the stream is read only until count bytes are there, so a reader never
+     * waits for bytes behind the value it reads.
+     *
+     * @throws UncheckedIOException with an {@link EOFException} if the stream ends before count bytes
+     */
+    void fill(NormalStore store, int count) {
+        int available = store.size - store.readIndex;
+        if (available >= count) return;
+        if (endOfStream) throw endOfStream(available, count);
+
+        System.arraycopy(store.buffer, store.readIndex, store.buffer, 0, available);
+        store.readIndex = 0;
+        store.size = available;
+        if (count > store.buffer.length) store.buffer = Arrays.copyOf(store.buffer, count);
+
+        try {
+            while (store.size < count) {
+                int read = read(store.buffer, store.size, store.buffer.length - store.size);
+                if (read < 0) {
+                    endOfStream = true;
+                    throw endOfStream(store.size, count);
+                }
+                store.size += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static UncheckedIOException endOfStream(int available, int count) {
+        return new UncheckedIOException(new EOFException(
+                "end of stream, " + available + " of " + count + " bytes available"));
+    }
+
+    /**
+     * Writes all buffered bytes of a writer to the stream or channel.
+     */
+    void flush(NormalStore store) throws IOException {
+        if (!isWriter()) return;
+        drain(store);
+        flush();
+    }
+
+    /**
+     * Flushes a writer and closes the underlying stream or channel.
+     */
+    void close(NormalStore store) throws IOException {
+        flush(store);
+        close();
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (inputStream != null) return inputStream.read(b, off, len);
+        if (readableChannel != null) return readableChannel.read(ByteBuffer.wrap(b, off, len));
+        throw new IllegalStateException("store is opened for writing");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (outputStream != null) outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputStream != null) outputStream.close();
+        if (writableChannel != null) writableChannel.close();
+        if (inputStream != null) inputStream.close();
+        if (readableChannel != null) readableChannel.close();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The store implementations a container format can use for its elements, with a stable id for the file header.
+ */
+public enum StoreType {
+
+    NORMAL(0),
+    VARIABLE_BYTE(1),
+    BIT(2);
+
+    private final byte id;
+
+    StoreType(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public static StoreType fromId(int id) {
+        for (StoreType type : values()) {
+            if (type.id == id) return type;
+        }
+        throw new IllegalArgumentException("Unknown store type: " + id);
+    }
+
+    public StoreBase createWriter() {
+        switch (this) {
+            case VARIABLE_BYTE:
+                return new VariableByteStore();
+            case BIT:
+                return new BitStore();
+            default:
+                return new NormalStore();
+        }
+    }
+
+    /**
+     * Creates a store reading the remaining bytes of the given buffer. {@link #NORMAL} reads the buffer
+     * in place with a {@link ByteBufferStore}, the other types copy the bytes.
+     */
+    public StoreBase createReader(ByteBuffer buffer) {
+        if (this == NORMAL) return new ByteBufferStore(buffer);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return createReader(bytes);
+    }
+
+    public StoreBase createReader(byte[] bytes) {
+        switch (this) {
+            case VARIABLE_BYTE:
+                return new VariableByteStore(bytes);
+            case BIT:
+                return new BitStore(bytes);
+            default:
+                return new NormalStore(bytes);
+        }
+    }
+}
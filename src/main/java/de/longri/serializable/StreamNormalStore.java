@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A streaming variant of {@link NormalStore} with the same wire format.
+ * <p/>
+ * A writer flushes the buffer to the stream or channel in fixed-size chunks, a reader refills the buffer
+ * incrementally. So only one chunk is held in memory, independent of the payload size.
+ * A single value bigger than the chunk size grows the chunk.
+ */
+public class StreamNormalStore extends NormalStore implements Closeable, Flushable {
+
+    private final StoreStream stream;
+
+    public StreamNormalStore(OutputStream outputStream) {
+        this(new StoreStream(outputStream), StoreStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamNormalStore(OutputStream outputStream, int chunkSize) {
+        this(new StoreStream(outputStream), chunkSize);
+    }
+
+    public StreamNormalStore(WritableByteChannel channel) {
+        this(new StoreStream(channel), StoreStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamNormalStore(WritableByteChannel channel, int chunkSize) {
+        this(new StoreStream(channel), chunkSize);
+    }
+
+    public StreamNormalStore(InputStream inputStream) {
+        this(new StoreStream(inputStream), StoreStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamNormalStore(InputStream inputStream, int chunkSize) {
+        this(new StoreStream(inputStream), chunkSize);
+    }
+
+    public StreamNormalStore(ReadableByteChannel channel) {
+        this(new StoreStream(channel), StoreStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamNormalStore(ReadableByteChannel channel, int chunkSize) {
+        this(new StoreStream(channel), chunkSize);
+    }
+
+    private StreamNormalStore(StoreStream stream, int chunkSize) {
+        super(new byte[chunkSize]);
+        this.stream = stream;
+        this.size = 0;
+    }
+
+    @Override
+    protected void ensureCapacity(int additionalCapacity) {
+        stream.ensureCapacity(this, additionalCapacity);
+    }
+
+    @Override
+    protected void ensureAvailable(int count) {
+        stream.fill(this, count);
+    }
+
+    /**
+     * The buffer only holds the current chunk of the stream.
+     */
+    @Override
+    protected SealedStore.ReaderFactory readerFactory() throws NotImplementedException {
+        throw new NotImplementedException("A stream store can't be sealed");
+    }
+
+    /**
+     * The buffer is refilled by the next read, so the view gets its own copy of the bytes.
+     */
+    @Override
+    protected Utf8View _readStringView() {
+        return super._readStringView().copy();
+    }
+
+    /**
+     * A writer writes the buffered bytes to the stream or channel before it rewinds, so {@link #clear()} doesn't lose
+     * them either. A reader throws an {@link IllegalStateException}, its buffer holds bytes read ahead from the stream.
+     */
+    @Override
+    public void reset() {
+        stream.reset(this);
+        super.reset();
+    }
+
+    /**
+     * Writes all buffered bytes to the stream or channel.
+     */
+    @Override
+    public void flush() throws IOException {
+        stream.flush(this);
+    }
+
+    /**
+     * Flushes a writer and closes the underlying stream or channel.
+     */
+    @Override
+    public void close() throws IOException {
+        stream.close(this);
+    }
+
+    @Override
+    public byte[] getArray() throws NotImplementedException {
+        throw new NotImplementedException("a stream store has no array, use flush()");
+    }
+
+    @Override
+    protected ByteBuffer payload() throws NotImplementedException {
+        throw new NotImplementedException("a stream store has no buffer, use flush()");
+    }
+}
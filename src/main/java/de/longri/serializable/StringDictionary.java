@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * String table for the dictionary mode of a {@link StoreBase}, see {@link StoreBase#setStringDictionary(StringDictionary)}.
+ * <p>
+ * The first occurrence of a string is written in full and added to the table, every following occurrence
+ * is written as reference to the table entry. A dictionary can be reused for several stores of a session,
+ * as long as the stores are read in the same order as they were written, with a separate dictionary
+ * on the reading side. Not thread safe.
+ */
+public class StringDictionary {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private final HashMap<String, Integer> indices = new HashMap<>();
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final int maxEntries;
+
+    public StringDictionary() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries strings are written in full without being added once the table is full
+     */
+    public StringDictionary(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the index of the given string, or -1 if the string isn't in the table. A missing string
+     * is added as long as the table isn't full.
+     */
+    int indexOfOrAdd(String s) {
+        if (strings.size() >= maxEntries) {
+            Integer index = indices.get(s);
+            return index == null ? -1 : index;
+        }
+        Integer index = indices.putIfAbsent(s, strings.size());
+        if (index != null) return index;
+        strings.add(s);
+        return -1;
+    }
+
+    /**
+     * Adds a string read in full, the reading side of {@link #indexOfOrAdd(String)}.
+     */
+    void add(String s) {
+        if (strings.size() < maxEntries && indices.putIfAbsent(s, strings.size()) == null) {
+            strings.add(s);
+        }
+    }
+
+    public String get(int index) {
+        if (index < 0 || index >= strings.size()) {
+            throw new IllegalArgumentException("Unknown string reference: " + index + " of " + strings.size());
+        }
+        return strings.get(index);
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void clear() {
+        indices.clear();
+        strings.clear();
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Base64 and hex transport encoding of store content.
+ * <p/>
+ * Encoding runs from the store buffer through the block encoder of {@link Base64} (intrinsified by the JIT) and writes
+ * straight into the target {@link Appendable} or {@link ByteBuffer}, only a small per thread scratch buffer is used.
+ * Decoding accepts the basic and the URL-safe alphabet, with or without padding, and decodes straight into the array
+ * that becomes the buffer of the reading store or into a given {@link ByteBuffer}.
+ * <p/>
+ * For large stores the streaming variants {@link #base64OutputStream(OutputStream, boolean)} and
+ * {@link #base64InputStream(InputStream, boolean)} can be put between a stream store and a socket or file.
+ */
+public final class TransportEncoding {
+
+    private static final int SCRATCH_SIZE = 8 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final byte[] BASE64_VALUES = new byte[128];
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[SCRATCH_SIZE]);
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        BASE64_VALUES['+'] = BASE64_VALUES['-'] = 62;
+        BASE64_VALUES['/'] = BASE64_VALUES['_'] = 63;
+
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) HEX_VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) HEX_VALUES['a' + i] = HEX_VALUES['A' + i] = (byte) (10 + i);
+    }
+
+    private TransportEncoding() {
+    }
+
+    private static Base64.Encoder encoder(boolean urlSafe) {
+        return urlSafe ? Base64.getUrlEncoder().withoutPadding() : Base64.getEncoder();
+    }
+
+    /**
+     * Returns the number of Base64 chars for the given number of bytes.
+     * The URL-safe mode writes no padding.
+     */
+    public static int base64Length(int byteCount, boolean urlSafe) {
+        if (urlSafe) return byteCount / 3 * 4 + (byteCount % 3 == 0 ? 0 : byteCount % 3 + 1);
+        return (byteCount + 2) / 3 * 4;
+    }
+
+    /*---------- Base64 encoding --------------*/
+
+    /**
+     * Encodes the remaining bytes of src to out, the position of src is not changed.
+     * A {@link CharBuffer} as target must have room for {@link #base64Length(int, boolean)} chars.
+     */
+    public static void encodeBase64(ByteBuffer src, Appendable out, boolean urlSafe) throws IOException {
+        encode(src, encoder(urlSafe).wrap(new AppendableSink(out)));
+    }
+
+    /**
+     * Encodes the remaining bytes of src as US-ASCII bytes into dst, the position of src is not changed.
+     */
+    public static void encodeBase64(ByteBuffer src, ByteBuffer dst, boolean urlSafe) {
+        try {
+            encode(src, encoder(urlSafe).wrap(new ByteBufferSink(dst)));
+        } catch (IOException e) {
+            // the sinks don't throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void encode(ByteBuffer src, OutputStream encoding) throws IOException {
+        if (src.hasArray()) {
+            encoding.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        } else {
+            ByteBuffer in = src.duplicate();
+            byte[] chunk = new byte[Math.min(SCRATCH_SIZE, in.remaining())];
+            while (in.hasRemaining()) {
+                int n = Math.min(chunk.length, in.remaining());
+                in.get(chunk, 0, n);
+                encoding.write(chunk, 0, n);
+            }
+        }
+        // writes the padding, the sinks ignore close()
+        encoding.close();
+    }
+
+    /**
+     * Returns a stream which Base64 encodes everything written to it into out.
+     * Closing the returned stream writes the last bytes and closes out.
+     */
+    public static OutputStream base64OutputStream(OutputStream out, boolean urlSafe) {
+        return encoder(urlSafe).wrap(out);
+    }
+
+    /**
+     * Returns a stream which Base64 encodes everything written to it into out.
+     * Closing the returned stream writes the last chars, out is not closed.
+     */
+    public static OutputStream base64OutputStream(Appendable out, boolean urlSafe) {
+        return encoder(urlSafe).wrap(new AppendableSink(out));
+    }
+
+    /**
+     * Returns a stream which decodes the Base64 content of in.
+     */
+    public static InputStream base64InputStream(InputStream in, boolean urlSafe) {
+        return (urlSafe ? Base64.getUrlDecoder() : Base64.getDecoder()).wrap(in);
+    }
+
+    /*---------- Base64 decoding --------------*/
+
+    /**
+     * Decodes the Base64 chars of src, basic and URL-safe alphabet with or without padding are accepted.
+     *
+     * @throws IllegalArgumentException if src is not valid Base64
+     */
+    public static byte[] decodeBase64(CharSequence src) {
+        int length = base64ContentLength(src);
+        if (src instanceof String) {
+            // Latin-1 strings are copied by an intrinsic, the decoder works on blocks
+            String s = (String) src;
+            boolean urlSafe = s.indexOf('-') >= 0 || s.indexOf('_') >= 0;
+            return (urlSafe ? Base64.getUrlDecoder() : Base64.getDecoder()).decode(s);
+        }
+        byte[] result = new byte[decodedLength(length)];
+        decodeBase64(src, length, ByteBuffer.wrap(result));
+        return result;
+    }
+
+    /**
+     * Decodes the Base64 chars of src into dst and returns the number of decoded bytes.
+     *
+     * @throws IllegalArgumentException if src is not valid Base64
+     */
+    public static int decodeBase64(CharSequence src, ByteBuffer dst) {
+        int length = base64ContentLength(src);
+        int count = decodedLength(length);
+        if (dst.remaining() < count)
+            throw new IllegalArgumentException("Destination buffer too small: " + dst.remaining() + " < " + count);
+        decodeBase64(src, length, dst);
+        return count;
+    }
+
+    private static void decodeBase64(CharSequence src, int length, ByteBuffer dst) {
+        int i = 0;
+        int full = length & ~3;
+        while (i < full) {
+            int bits = value(src, i) << 18 | value(src, i + 1) << 12 | value(src, i + 2) << 6 | value(src, i + 3);
+            dst.put((byte) (bits >> 16)).put((byte) (bits >> 8)).put((byte) bits);
+            i += 4;
+        }
+        int rest = length - full;
+        if (rest >= 2) {
+            int bits = value(src, i) << 18 | value(src, i + 1) << 12 | (rest == 3 ? value(src, i + 2) << 6 : 0);
+            dst.put((byte) (bits >> 16));
+            if (rest == 3) dst.put((byte) (bits >> 8));
+        }
+    }
+
+    private static int value(CharSequence src, int index) {
+        char c = src.charAt(index);
+        int v = c < 128 ? BASE64_VALUES[c] : -1;
+        if (v < 0) throw new IllegalArgumentException("Illegal Base64 character " + Integer.toHexString(c) + " at " + index);
+        return v;
+    }
+
+    /**
+     * The length without padding.
+     */
+    private static int base64ContentLength(CharSequence src) {
+        int length = src.length();
+        if (length > 0 && src.charAt(length - 1) == '=') length--;
+        if (length > 0 && src.charAt(length - 1) == '=') length--;
+        if (length % 4 == 1) throw new IllegalArgumentException("Illegal Base64 length " + src.length());
+        return length;
+    }
+
+    private static int decodedLength(int contentLength) {
+        int rest = contentLength & 3;
+        return contentLength / 4 * 3 + (rest == 0 ? 0 : rest - 1);
+    }
+
+    /*---------- hex --------------*/
+
+    /**
+     * Writes the remaining bytes of src as lower case hex to out, the position of src is not changed.
+     */
+    public static void encodeHex(ByteBuffer src, Appendable out) throws IOException {
+        char[] chars = SCRATCH.get();
+        int end = src.limit();
+        int n = 0;
+        for (int i = src.position(); i < end; i++) {
+            int b = src.get(i);
+            chars[n++] = HEX[(b >> 4) & 0xF];
+            chars[n++] = HEX[b & 0xF];
+            if (n == chars.length) {
+                append(out, chars, n);
+                n = 0;
+            }
+        }
+        append(out, chars, n);
+    }
+
+    /**
+     * Decodes the hex chars of src, upper and lower case are accepted.
+     *
+     * @throws IllegalArgumentException if src is not valid hex
+     */
+    public static byte[] decodeHex(CharSequence src) {
+        if ((src.length() & 1) != 0) throw new IllegalArgumentException("Illegal hex length " + src.length());
+        byte[] result = new byte[src.length() / 2];
+        decodeHex(src, ByteBuffer.wrap(result));
+        return result;
+    }
+
+    /**
+     * Decodes the hex chars of src into dst and returns the number of decoded bytes.
+     *
+     * @throws IllegalArgumentException if src is not valid hex
+     */
+    public static int decodeHex(CharSequence src, ByteBuffer dst) {
+        int length = src.length();
+        if ((length & 1) != 0) throw new IllegalArgumentException("Illegal hex length " + length);
+        int count = length / 2;
+        if (dst.remaining() < count)
+            throw new IllegalArgumentException("Destination buffer too small: " + dst.remaining() + " < " + count);
+        for (int i = 0; i < length; i += 2) {
+            dst.put((byte) (hexValue(src, i) << 4 | hexValue(src, i + 1)));
+        }
+        return count;
+    }
+
+    private static int hexValue(CharSequence src, int index) {
+        char c = src.charAt(index);
+        int v = c < 128 ? HEX_VALUES[c] : -1;
+        if (v < 0) throw new IllegalArgumentException("Illegal hex character " + Integer.toHexString(c) + " at " + index);
+        return v;
+    }
+
+    /*---------- sinks --------------*/
+
+    private static void append(Appendable out, char[] chars, int length) throws IOException {
+        if (length == 0) return;
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(chars, 0, length);
+        } else if (out instanceof CharBuffer) {
+            ((CharBuffer) out).put(chars, 0, length);
+        } else if (out instanceof Writer) {
+            ((Writer) out).write(chars, 0, length);
+        } else {
+            out.append(CharBuffer.wrap(chars, 0, length));
+        }
+    }
+
+    /**
+     * Widens the encoded US-ASCII bytes to chars and appends them in blocks.
+     */
+    private static final class AppendableSink extends OutputStream {
+        private final Appendable out;
+
+        AppendableSink(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.append((char) (b & 0xFF));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            char[] chars = SCRATCH.get();
+            while (len > 0) {
+                int n = Math.min(len, chars.length);
+                for (int i = 0; i < n; i++) chars[i] = (char) (b[off + i] & 0xFF);
+                append(out, chars, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the target stays open
+        }
+    }
+
+    private static final class ByteBufferSink extends OutputStream {
+        private final ByteBuffer out;
+
+        ByteBufferSink(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            out.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            out.put(b, off, len);
+        }
+    }
+}
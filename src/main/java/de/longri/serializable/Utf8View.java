@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@link CharSequence} over UTF-8 bytes, which decodes to a {@link String} only when chars are asked for.
+ * <p/>
+ * {@link StoreBase#readStringView()} returns views backed by the store buffer, so scans over serialized records
+ * can compare strings on byte level without allocating. {@link #equals(Object)}, {@link #hashCode()},
+ * {@link #startsWith(Utf8View)} and {@link #compareTo(Utf8View)} work on the bytes, the hash code is therefore not
+ * the one of the decoded String. Needles for repeated comparisons are encoded once with {@link #of(String)}.
+ * <p/>
+ * A view backed by a store buffer is valid until the store is reset or written again, {@link #copy()} detaches it.
+ * <pre>
+ * Utf8View needle = Utf8View.of("/data/images");
+ * while (hasNext) {
+ *     Utf8View path = store.readStringView();
+ *     if (path.startsWith(needle)) result.add(path.toString());
+ * }
+ * </pre>
+ */
+public final class Utf8View implements CharSequence, Comparable<Utf8View> {
+
+    public static final Utf8View EMPTY = new Utf8View(new byte[0], 0, 0, "");
+
+    private static final byte UNKNOWN = 0, ASCII = 1, NON_ASCII = 2;
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private String string;
+    private int hash;
+    private byte ascii;
+
+    private Utf8View(byte[] bytes, int offset, int length, String string) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.string = string;
+    }
+
+    /**
+     * Returns a view of the given bytes, the bytes are not copied.
+     */
+    public static Utf8View wrap(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array " + bytes.length);
+        return new Utf8View(bytes, offset, length, null);
+    }
+
+    /**
+     * Encodes the given string, returns null for null.
+     */
+    public static Utf8View of(String s) {
+        if (s == null) return null;
+        if (s.isEmpty()) return EMPTY;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return new Utf8View(bytes, 0, bytes.length, s);
+    }
+
+    /**
+     * Returns a view with its own copy of the bytes.
+     */
+    public Utf8View copy() {
+        Utf8View copy = new Utf8View(Arrays.copyOfRange(bytes, offset, offset + length), 0, length, string);
+        copy.hash = hash;
+        copy.ascii = ascii;
+        return copy;
+    }
+
+    public int byteLength() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+        return bytes[offset + index];
+    }
+
+    /**
+     * Copies the UTF-8 bytes into dst.
+     */
+    public void getBytes(byte[] dst, int dstOffset) {
+        System.arraycopy(bytes, offset, dst, dstOffset, length);
+    }
+
+    public boolean isAscii() {
+        if (ascii == UNKNOWN) {
+            byte state = ASCII;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                if (bytes[i] < 0) {
+                    state = NON_ASCII;
+                    break;
+                }
+            }
+            ascii = state;
+        }
+        return ascii == ASCII;
+    }
+
+    /*---------- byte level comparison --------------*/
+
+    public boolean startsWith(Utf8View prefix) {
+        return prefix.length <= length
+                && Arrays.equals(bytes, offset, offset + prefix.length, prefix.bytes, prefix.offset, prefix.offset + prefix.length);
+    }
+
+    public boolean endsWith(Utf8View suffix) {
+        int start = offset + length - suffix.length;
+        return suffix.length <= length
+                && Arrays.equals(bytes, start, offset + length, suffix.bytes, suffix.offset, suffix.offset + suffix.length);
+    }
+
+    /**
+     * Compares with the given string without decoding, ASCII content is compared char by char.
+     */
+    public boolean contentEquals(String s) {
+        if (s == null) return false;
+        if (string != null) return string.equals(s);
+        if (isAscii()) {
+            if (s.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (bytes[offset + i] != s.charAt(i)) return false;
+            }
+            return true;
+        }
+        return toString().equals(s);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Utf8View)) return false;
+        Utf8View view = (Utf8View) other;
+        return length == view.length
+                && Arrays.equals(bytes, offset, offset + length, view.bytes, view.offset, view.offset + view.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && length > 0) {
+            for (int i = offset, end = offset + length; i < end; i++) h = 31 * h + bytes[i];
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Unsigned byte order, which is the code point order of the decoded strings.
+     */
+    @Override
+    public int compareTo(Utf8View other) {
+        return Arrays.compareUnsigned(bytes, offset, offset + length, other.bytes, other.offset, other.offset + other.length);
+    }
+
+    /*---------- CharSequence, decodes non ASCII content --------------*/
+
+    @Override
+    public int length() {
+        return isAscii() ? length : toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (isAscii()) {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+            return (char) bytes[offset + index];
+        }
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (isAscii()) {
+            if (start < 0 || end > length || start > end) throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+            return new Utf8View(bytes, offset + start, end - start, null);
+        }
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        String s = string;
+        if (s == null) {
+            s = new String(bytes, offset, length, StandardCharsets.UTF_8);
+            string = s;
+        }
+        return s;
+    }
+}
@@ -31,6 +31,10 @@ public class VariableByteStore extends NormalStore {
         super(array);
     }
 
+    protected VariableByteStore(byte[] values, int length) {
+        super(values, length);
+    }
+
     public VariableByteStore(String base64) {
         super(base64);
     }
@@ -128,10 +132,13 @@ public class VariableByteStore extends NormalStore {
         int variableByteDecode = 0;
         byte variableByteShift = 0;
 
+        // byte by byte, a stream may end right behind the value
+        ensureAvailable(1);
         // check if the continuation bit is set
         while ((this.buffer[this.readIndex] & 0x80) != 0) {
             variableByteDecode |= (this.buffer[this.readIndex++] & 0x7f) << variableByteShift;
             variableByteShift += 7;
+            ensureAvailable(1);
         }
 
         // read the six data bits from the last byte
@@ -154,19 +161,99 @@ public class VariableByteStore extends NormalStore {
         int variableByteDecode = 0;
         byte variableByteShift = 0;
 
+        // byte by byte, a stream may end right behind the value
+        ensureAvailable(1);
         // check if the continuation bit is set
         while ((this.buffer[this.readIndex] & 0x80) != 0) {
             variableByteDecode |= (this.buffer[this.readIndex++] & 0x7f) << variableByteShift;
             variableByteShift += 7;
+            ensureAvailable(1);
         }
 
         // read the seven data bits from the last byte
         return variableByteDecode | (this.buffer[this.readIndex++] << variableByteShift);
     }
 
+    /**
+     * Writes a signed int with the variable byte encoding of {@link #getVariableByteSigned(int)}
+     * directly into the buffer.
+     */
+    public void writeSignedInt(int value) {
+        ensureCapacity(5);
+        writeVariableByteSigned(value);
+    }
+
+    /**
+     * Writes an unsigned int with the variable byte encoding of {@link #getVariableByteUnsigned(int)}
+     * directly into the buffer.
+     */
+    public void writeUnsignedInt(int value) {
+        ensureCapacity(5);
+        writeVariableByteUnsigned(value);
+    }
+
+    /**
+     * Writes a long zigzag encoded as unsigned variable byte value with 1-10 bytes, so small values of
+     * both signs (like the deltas of sorted numbers) take few bytes.
+     */
+    public void writeZigZagLong(long value) {
+        ensureCapacity(10);
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            buffer[size++] = (byte) (zigZag | 0x80);
+            zigZag >>>= 7;
+        }
+        buffer[size++] = (byte) zigZag;
+    }
+
+    /**
+     * Reads a long written by {@link #writeZigZagLong(long)}.
+     */
+    public long readZigZagLong() {
+        long zigZag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            // byte by byte, a stream may end right behind the value
+            ensureAvailable(1);
+            b = buffer[readIndex++];
+            zigZag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
     @Override
-    protected void _write(Integer i) {
-        add(getVariableByteSigned(i));
+    protected void writeCompactLong(long value) {
+        writeZigZagLong(value);
+    }
+
+    @Override
+    protected long readCompactLong() {
+        return readZigZagLong();
+    }
+
+    private void writeVariableByteSigned(int value) {
+        long absValue = Math.abs((long) value);
+        while (absValue >= 64) {
+            buffer[size++] = (byte) (absValue | 0x80);
+            absValue >>>= 7;
+        }
+        buffer[size++] = (byte) (value < 0 ? absValue | 0x40 : absValue);
+    }
+
+    private void writeVariableByteUnsigned(int value) {
+        if (value < 0) throw new InvalidParameterException("negative value not allowed: " + value);
+        while (value >= 128) {
+            buffer[size++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    @Override
+    protected void _write(int i) {
+        writeVariableByteSigned(i);
     }
 
     @Override
@@ -177,13 +264,29 @@ public class VariableByteStore extends NormalStore {
     @Override
     protected void _write(String s) {
         byte[] bytes = s.getBytes(UTF8_CHARSET);
-        add(getVariableByteUnsigned(bytes.length));
+        ensureCapacity(bytes.length + 5);
+        writeVariableByteUnsigned(bytes.length);
         add(bytes);
     }
 
     @Override
-    public String readString() {
+    protected SealedStore.ReaderFactory readerFactory() throws NotImplementedException {
+        return (content, offset) -> {
+            VariableByteStore reader = new VariableByteStore(content.array(), content.limit());
+            reader.readIndex = offset;
+            return reader;
+        };
+    }
+
+    @Override
+    protected Utf8View _readStringView() {
+        return readStringView(readUnsignedInt());
+    }
+
+    @Override
+    protected String _readString() {
         int stringLength = readUnsignedInt();
+        ensureAvailable(stringLength);
         if (stringLength > 0 && readIndex + stringLength <= buffer.length) {
             readIndex += stringLength;
             try {
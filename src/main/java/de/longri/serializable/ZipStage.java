@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The Deflate compression stage of the zipped stores.
+ * <p/>
+ * {@link Deflater} and {@link Inflater} instances are pooled, since creating them allocates native zlib memory.
+ * Compression runs straight from the store buffer through a reusable per thread scratch buffer,
+ * decompression inflates straight into the array that becomes the buffer of the reading store.
+ */
+public final class ZipStage {
+
+    private static final int SCRATCH_SIZE = 64 * 1024;
+    private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final ConcurrentLinkedQueue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final ConcurrentLinkedQueue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger DEFLATER_COUNT = new AtomicInteger();
+    private static final AtomicInteger INFLATER_COUNT = new AtomicInteger();
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    private ZipStage() {
+    }
+
+    /**
+     * The result of a decompression, the buffer can be bigger than the data length.
+     */
+    static final class Inflated {
+        final byte[] buffer;
+        final int length;
+
+        Inflated(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+    }
+
+    /*---------- pooling --------------*/
+
+    public static Deflater borrowDeflater(int level, int strategy) {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        } else {
+            DEFLATER_COUNT.decrementAndGet();
+            deflater.setLevel(level);
+        }
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    public static void returnDeflater(Deflater deflater) {
+        deflater.reset();
+        if (DEFLATER_COUNT.incrementAndGet() <= MAX_POOLED) {
+            DEFLATERS.offer(deflater);
+        } else {
+            DEFLATER_COUNT.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    public static Inflater borrowInflater() {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) return new Inflater();
+        INFLATER_COUNT.decrementAndGet();
+        return inflater;
+    }
+
+    public static void returnInflater(Inflater inflater) {
+        inflater.reset();
+        if (INFLATER_COUNT.incrementAndGet() <= MAX_POOLED) {
+            INFLATERS.offer(inflater);
+        } else {
+            INFLATER_COUNT.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    /*---------- compression --------------*/
+
+    public static byte[] compress(byte[] data, int off, int len, int level, int strategy) {
+        return compress(ByteBuffer.wrap(data, off, len), level, strategy);
+    }
+
+    /**
+     * Compresses the remaining bytes of the given buffer, the position of the buffer is moved to its limit.
+     */
+    public static byte[] compress(ByteBuffer data, int level, int strategy) {
+        Deflater deflater = borrowDeflater(level, strategy);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] scratch = SCRATCH.get();
+            byte[] output = null;
+            int length = 0;
+            while (!deflater.finished()) {
+                int count = deflater.deflate(scratch);
+                if (output == null && deflater.finished()) {
+                    // the common case, everything fits into the scratch buffer
+                    return Arrays.copyOf(scratch, count);
+                }
+                if (output == null) output = new byte[Math.max(scratch.length * 2, data.capacity() / 2)];
+                if (length + count > output.length) output = Arrays.copyOf(output, Math.max(output.length * 2, length + count));
+                System.arraycopy(scratch, 0, output, length, count);
+                length += count;
+            }
+            return output == null ? new byte[0] : Arrays.copyOf(output, length);
+        } finally {
+            returnDeflater(deflater);
+        }
+    }
+
+    /**
+     * Compresses the remaining bytes of the given buffer straight into the stream, without an output array.
+     */
+    public static void compress(ByteBuffer data, OutputStream out, int level, int strategy) throws IOException {
+        Deflater deflater = borrowDeflater(level, strategy);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] scratch = SCRATCH.get();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(scratch);
+                out.write(scratch, 0, count);
+            }
+        } finally {
+            returnDeflater(deflater);
+        }
+    }
+
+    public static byte[] decompress(byte[] data) {
+        Inflated inflated = inflate(data, 0, data.length);
+        return inflated.length == inflated.buffer.length ? inflated.buffer : Arrays.copyOf(inflated.buffer, inflated.length);
+    }
+
+    /**
+     * Inflates into a growing array, which can be used as store buffer without a further copy.
+     */
+    static Inflated inflate(byte[] data, int off, int len) {
+        Inflater inflater = borrowInflater();
+        try {
+            inflater.setInput(data, off, len);
+            byte[] output = new byte[Math.max(SCRATCH_SIZE, len * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == output.length) output = Arrays.copyOf(output, output.length * 2);
+                int count = inflater.inflate(output, length, output.length - length);
+                if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("truncated or invalid zip data");
+                }
+                length += count;
+            }
+            return new Inflated(output, length);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            returnInflater(inflater);
+        }
+    }
+
+    /*---------- streaming --------------*/
+
+    /**
+     * Returns a compressing stream with a pooled Deflater, the Deflater goes back to the pool on close.
+     * Use it as sink of a {@link StreamNormalStore} or {@link StreamVariableByteStore}.
+     */
+    public static OutputStream deflate(OutputStream out, int level, int strategy) {
+        Deflater deflater = borrowDeflater(level, strategy);
+        return new DeflaterOutputStream(out, deflater, SCRATCH_SIZE) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    returnDeflater(deflater);
+                }
+            }
+        };
+    }
+
+    public static OutputStream deflate(OutputStream out) {
+        return deflate(out, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * Returns a decompressing stream with a pooled Inflater, the Inflater goes back to the pool on close.
+     */
+    public static InputStream inflate(InputStream in) {
+        Inflater inflater = borrowInflater();
+        return new InflaterInputStream(in, inflater, SCRATCH_SIZE) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    returnInflater(inflater);
+                }
+            }
+        };
+    }
+}
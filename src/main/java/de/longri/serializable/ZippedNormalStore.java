@@ -18,20 +18,25 @@
  */
 package de.longri.serializable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.DataFormatException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 /**
  * Created by Longri on 15.11.15.
  */
 public class ZippedNormalStore extends NormalStore {
 
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int compressionStrategy = Deflater.DEFAULT_STRATEGY;
 
     public ZippedNormalStore(byte[] array) {
-        super(decompress(array));
+        this(ZipStage.inflate(array, 0, array.length));
+    }
+
+    private ZippedNormalStore(ZipStage.Inflated inflated) {
+        super(inflated.buffer, inflated.length);
     }
 
     public ZippedNormalStore() {
@@ -39,61 +44,44 @@ public class ZippedNormalStore extends NormalStore {
     }
 
     public ZippedNormalStore(String base64) {
-        super(base64);
+        this(TransportEncoding.decodeBase64(base64));
     }
 
-    public static byte[] compress(byte[] data) throws IOException {
-        Deflater deflater = new Deflater();
-        deflater.setInput(data);
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-
-        deflater.finish();
-        byte[] buffer = new byte[1024];
-        while (!deflater.finished()) {
-            int count = deflater.deflate(buffer); // returns the generated code... index
-            outputStream.write(buffer, 0, count);
-        }
-        outputStream.close();
-        byte[] output = outputStream.toByteArray();
+    /**
+     * Sets the Deflater level, see {@link Deflater#setLevel(int)}.
+     */
+    public void setCompressionLevel(int level) {
+        this.compressionLevel = level;
+    }
 
-        deflater.end();
+    /**
+     * Sets the Deflater strategy, see {@link Deflater#setStrategy(int)}.
+     */
+    public void setCompressionStrategy(int strategy) {
+        this.compressionStrategy = strategy;
+    }
 
-        return output;
+    public static byte[] compress(byte[] data) throws IOException {
+        return ZipStage.compress(data, 0, data.length, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
     }
 
     public static byte[] decompress(byte[] data) {
-        Inflater inflater = new Inflater();
-        inflater.setInput(data);
+        return ZipStage.decompress(data);
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] buffer = new byte[1024];
-        while (!inflater.finished()) {
-            int count = 0;
-            try {
-                count = inflater.inflate(buffer);
-            } catch (DataFormatException e) {
-                e.printStackTrace();
-            }
-            outputStream.write(buffer, 0, count);
-        }
-        try {
-            outputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        byte[] output = outputStream.toByteArray();
+    public byte[] getArray() throws NotImplementedException {
+        return ZipStage.compress(super.payload(), compressionLevel, compressionStrategy);
+    }
 
-        inflater.end();
-        return output;
+    @Override
+    protected ByteBuffer payload() throws NotImplementedException {
+        return ByteBuffer.wrap(getArray());
     }
 
-    public byte[] getArray() throws NotImplementedException {
-        trimToSize();
-        try {
-            return compress(buffer);
-        } catch (IOException e) {
-            return new byte[0];
-        }
+    /**
+     * Compresses the written bytes straight into the given stream.
+     */
+    public void writeTo(OutputStream out) throws IOException, NotImplementedException {
+        ZipStage.compress(super.payload(), out, compressionLevel, compressionStrategy);
     }
 }
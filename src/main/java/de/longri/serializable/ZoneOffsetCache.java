@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converts between local and epoch seconds of one zone without intermediate objects.
+ * <p/>
+ * The offset is cached together with the range in which it is valid, so the zone rules are only asked again when
+ * a value crosses a transition (twice a year for Europe/Berlin). The results are the same as
+ * {@code atZone(zone).toEpochSecond()} and {@code Instant.atZone(zone)}, including the handling of gaps and overlaps.
+ * Not thread safe, every store has its own cache.
+ */
+final class ZoneOffsetCache {
+
+    final ZoneId zone;
+    private final ZoneRules rules;
+
+    // local seconds [localStart, localEnd) map to exactly one instant with localOffset
+    private long localStart = 1, localEnd = 0;
+    private int localOffset;
+
+    // epoch seconds [epochStart, epochEnd) have the offset epochOffset
+    private long epochStart = 1, epochEnd = 0;
+    private ZoneOffset epochOffset;
+
+    ZoneOffsetCache(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+    }
+
+    /**
+     * Returns the epoch second of the given local second (seconds since 1970-01-01T00:00 local time).
+     */
+    long toEpochSecond(long localSecond) {
+        if (localSecond < localStart || localSecond >= localEnd) {
+            LocalDateTime local = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+            ZoneOffset offset = rules.getOffset(local);
+            if (rules.getValidOffsets(local).size() != 1) {
+                // gap or overlap, the earlier offset like ZonedDateTime.ofLocal
+                return localSecond - offset.getTotalSeconds();
+            }
+            localOffset = offset.getTotalSeconds();
+            long epochSecond = localSecond - localOffset;
+            ZoneOffsetTransition previous = rules.previousTransition(Instant.ofEpochSecond(epochSecond + 1));
+            ZoneOffsetTransition next = rules.nextTransition(Instant.ofEpochSecond(epochSecond));
+            localStart = previous == null ? Long.MIN_VALUE : previous.toEpochSecond()
+                    + Math.max(previous.getOffsetBefore().getTotalSeconds(), previous.getOffsetAfter().getTotalSeconds());
+            localEnd = next == null ? Long.MAX_VALUE : next.toEpochSecond()
+                    + Math.min(next.getOffsetBefore().getTotalSeconds(), next.getOffsetAfter().getTotalSeconds());
+        }
+        return localSecond - localOffset;
+    }
+
+    /**
+     * Like {@link #toEpochSecond(long)}, but a local midnight in a gap maps to the end of the gap
+     * like {@code LocalDate.atStartOfDay(zone)}.
+     */
+    long startOfDayToEpochSecond(long localSecond) {
+        if (localSecond < localStart || localSecond >= localEnd) {
+            ZoneOffsetTransition transition = rules.getTransition(LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC));
+            if (transition != null && transition.isGap()) return transition.toEpochSecond();
+        }
+        return toEpochSecond(localSecond);
+    }
+
+    /**
+     * Returns the offset of the zone at the given epoch second.
+     */
+    ZoneOffset getOffset(long epochSecond) {
+        if (epochSecond < epochStart || epochSecond >= epochEnd) {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            epochOffset = rules.getOffset(instant);
+            ZoneOffsetTransition previous = rules.previousTransition(Instant.ofEpochSecond(epochSecond + 1));
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            epochStart = previous == null ? Long.MIN_VALUE : previous.toEpochSecond();
+            epochEnd = next == null ? Long.MAX_VALUE : next.toEpochSecond();
+        }
+        return epochOffset;
+    }
+
+    /**
+     * Returns the local second of the given epoch second.
+     */
+    long toLocalSecond(long epochSecond) {
+        return epochSecond + getOffset(epochSecond).getTotalSeconds();
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code SerializableCodec} for every class annotated with {@code @Serialized}.
+ * <p>
+ * The generated codec accesses the {@code @Tag} fields directly, so no reflection is used while writing or reading.
+ * Supported field types are all primitives, {@link String}, {@code byte[]}, enums (stored by name) and other
+ * {@code @Serialized} classes.
+ */
+@SupportedAnnotationTypes(SerializableCodecProcessor.SERIALIZED)
+public class SerializableCodecProcessor extends AbstractProcessor {
+
+    static final String PACKAGE = "de.longri.serializable";
+    static final String SERIALIZED = PACKAGE + ".Serialized";
+    static final String TAG = PACKAGE + ".Tag";
+    static final String CODECS = PACKAGE + ".SerializableCodecs";
+    static final int MAX_TAG = Integer.MAX_VALUE >> 3;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                try {
+                    CodecModel model = createModel(type);
+                    if (model != null) writeCodec(model);
+                } catch (IOException e) {
+                    error(type, "Can't write codec: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private CodecModel createModel(TypeElement type) {
+        boolean valid = true;
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "@Serialized is only allowed on non abstract classes");
+            valid = false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@Serialized classes must not be generic");
+            valid = false;
+        }
+        for (Element element = type; element.getKind().isClass(); element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                error(type, "@Serialized classes must not be private");
+                valid = false;
+            }
+            if (element.getEnclosingElement().getKind().isClass() && !element.getModifiers().contains(Modifier.STATIC)) {
+                error(type, "nested @Serialized classes must be static");
+                valid = false;
+            }
+        }
+        if (!hasNoArgConstructor(type)) {
+            error(type, "@Serialized classes need a non private no-arg constructor");
+            valid = false;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        List<FieldModel> fields = new ArrayList<>();
+        Map<Integer, VariableElement> tags = new HashMap<>();
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Integer tag = getTag(field);
+                if (tag == null) continue;
+                Set<Modifier> modifiers = field.getModifiers();
+                String fieldPackage = processingEnv.getElementUtils().getPackageOf(field).getQualifiedName().toString();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+                    error(field, "@Tag fields must not be static or final");
+                    valid = false;
+                } else if (modifiers.contains(Modifier.PRIVATE)
+                        || (!modifiers.contains(Modifier.PUBLIC) && !fieldPackage.equals(packageName))) {
+                    error(field, "@Tag fields must be accessible from package " + packageName);
+                    valid = false;
+                } else if (tag <= 0 || tag > MAX_TAG) {
+                    error(field, "@Tag must be between 1 and " + MAX_TAG);
+                    valid = false;
+                } else if (tags.containsKey(tag)) {
+                    error(field, "@Tag(" + tag + ") is already used by " + tags.get(tag).getSimpleName());
+                    valid = false;
+                } else {
+                    FieldModel model = createField(field, tag);
+                    if (model == null) {
+                        valid = false;
+                    } else {
+                        tags.put(tag, field);
+                        fields.add(model);
+                    }
+                }
+            }
+        }
+        fields.sort((a, b) -> Integer.compare(a.tag, b.tag));
+        return valid ? new CodecModel(type, packageName, codecName(type), fields) : null;
+    }
+
+    private FieldModel createField(VariableElement field, int tag) {
+        String name = "value." + field.getSimpleName();
+        TypeMirror type = field.asType();
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return new FieldModel(tag, "WIRE_BOOL", "writer.write(" + name + ");", name + " = reader.readBool();");
+            case BYTE:
+                return new FieldModel(tag, "WIRE_BYTE", "writer.write(" + name + ");", name + " = reader.readByte();");
+            case SHORT:
+                return new FieldModel(tag, "WIRE_SHORT", "writer.write(" + name + ");", name + " = reader.readShort();");
+            case CHAR:
+                return new FieldModel(tag, "WIRE_SHORT", "writer.write((short) " + name + ");", name + " = (char) reader.readShort();");
+            case INT:
+                return new FieldModel(tag, "WIRE_INT", "writer.write(" + name + ");", name + " = reader.readInt();");
+            case LONG:
+                return new FieldModel(tag, "WIRE_LONG", "writer.write(" + name + ");", name + " = reader.readLong();");
+            case FLOAT:
+                return new FieldModel(tag, "WIRE_INT", "writer.write(Float.floatToRawIntBits(" + name + "));",
+                        name + " = Float.intBitsToFloat(reader.readInt());");
+            case DOUBLE:
+                return new FieldModel(tag, "WIRE_LONG", "writer.write(Double.doubleToRawLongBits(" + name + "));",
+                        name + " = Double.longBitsToDouble(reader.readLong());");
+            case ARRAY:
+                if (((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) {
+                    return new FieldModel(tag, "WIRE_BYTES", CODECS + ".writeBytes(writer, " + name + ");",
+                            name + " = " + CODECS + ".readBytes(reader);");
+                }
+                break;
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                String typeName = element.getQualifiedName().toString();
+                if (typeName.equals("java.lang.String")) {
+                    return new FieldModel(tag, "WIRE_STRING", CODECS + ".writeString(writer, " + name + ");",
+                            name + " = " + CODECS + ".readString(reader);");
+                }
+                if (element.getKind() == ElementKind.ENUM) {
+                    return new FieldModel(tag, "WIRE_STRING",
+                            CODECS + ".writeString(writer, " + name + " == null ? null : " + name + ".name());",
+                            "String name = " + CODECS + ".readString(reader);\n"
+                                    + "                    " + name + " = name == null ? null : " + typeName + ".valueOf(name);");
+                }
+                if (isSerialized(element)) {
+                    String codec = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName()
+                            + "." + codecName(element) + ".INSTANCE";
+                    return new FieldModel(tag, "WIRE_OBJECT",
+                            "writer.write(" + name + " != null);\n"
+                                    + "        if (" + name + " != null) " + codec + ".write(" + name + ", writer);",
+                            "if (reader.readBool()) {\n"
+                                    + "                        if (" + name + " == null) " + name + " = " + codec + ".newInstance();\n"
+                                    + "                        " + codec + ".read(" + name + ", reader);\n"
+                                    + "                    } else {\n"
+                                    + "                        " + name + " = null;\n"
+                                    + "                    }");
+                }
+                break;
+            default:
+                break;
+        }
+        error(field, "Unsupported @Tag field type " + type);
+        return null;
+    }
+
+    private void writeCodec(CodecModel model) throws IOException {
+        String typeName = model.type.getQualifiedName().toString();
+        String qualifiedName = model.packageName.isEmpty() ? model.codecName : model.packageName + "." + model.codecName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, model.type);
+
+        StringBuilder sb = new StringBuilder();
+        if (!model.packageName.isEmpty()) sb.append("package ").append(model.packageName).append(";\n\n");
+        sb.append("import ").append(PACKAGE).append(".NotImplementedException;\n");
+        sb.append("import ").append(PACKAGE).append(".SerializableCodec;\n");
+        sb.append("import ").append(PACKAGE).append(".StoreBase;\n\n");
+        sb.append("/**\n * Generated by ").append(getClass().getSimpleName()).append(" from {@link ").append(typeName)
+                .append("}, don't edit.\n */\n");
+        sb.append("public final class ").append(model.codecName).append(" implements SerializableCodec<")
+                .append(typeName).append("> {\n\n");
+        sb.append("    public static final ").append(model.codecName).append(" INSTANCE = new ")
+                .append(model.codecName).append("();\n\n");
+
+        sb.append("    @Override\n    public ").append(typeName).append(" newInstance() {\n");
+        sb.append("        return new ").append(typeName).append("();\n    }\n\n");
+
+        sb.append("    @Override\n    public void write(").append(typeName)
+                .append(" value, StoreBase writer) throws NotImplementedException {\n");
+        for (FieldModel field : model.fields) {
+            sb.append("        writer.write(").append(field.key()).append(");\n");
+            sb.append("        ").append(field.write).append('\n');
+        }
+        sb.append("        writer.write(").append(CODECS).append(".END);\n    }\n\n");
+
+        sb.append("    @Override\n    public void read(").append(typeName)
+                .append(" value, StoreBase reader) throws NotImplementedException {\n");
+        sb.append("        for (int key = reader.readInt(); key != ").append(CODECS)
+                .append(".END; key = reader.readInt()) {\n");
+        sb.append("            switch (key) {\n");
+        for (FieldModel field : model.fields) {
+            sb.append("                case ").append(field.key()).append(": {\n");
+            sb.append("                    ").append(field.read).append('\n');
+            sb.append("                    break;\n                }\n");
+        }
+        sb.append("                default:\n");
+        sb.append("                    ").append(CODECS).append(".skip(reader, key & 7);\n");
+        sb.append("            }\n        }\n    }\n}\n");
+
+        try (Writer writer = file.openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private Integer getTag(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotation.getQualifiedName().contentEquals(TAG)) continue;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    return (Integer) entry.getValue().getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isSerialized(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(SERIALIZED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same naming as {@code SerializableCodecs.getCodecName(Class)}.
+     */
+    static String codecName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing.getKind().isClass(); enclosing = enclosing.getEnclosingElement()) {
+            sb.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return sb.append("_Codec").toString();
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class CodecModel {
+        final TypeElement type;
+        final String packageName;
+        final String codecName;
+        final List<FieldModel> fields;
+
+        CodecModel(TypeElement type, String packageName, String codecName, List<FieldModel> fields) {
+            this.type = type;
+            this.packageName = packageName;
+            this.codecName = codecName;
+            this.fields = fields;
+        }
+    }
+
+    private static final class FieldModel {
+        final int tag;
+        final String wireType;
+        final String write;
+        final String read;
+
+        FieldModel(int tag, String wireType, String write, String read) {
+            this.tag = tag;
+            this.wireType = wireType;
+            this.write = write;
+            this.read = read;
+        }
+
+        /**
+         * The key as constant expression for the switch of the generated reader.
+         */
+        String key() {
+            return "(" + tag + " << 3 | " + CODECS + "." + wireType + ")";
+        }
+    }
+}
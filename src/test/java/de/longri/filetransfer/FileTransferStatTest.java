@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTransferStatTest {
+
+    @Test
+    void file() {
+        FileTransferStat stat = FileTransferStat.file(1234, 5678);
+        assertTrue(stat.exists());
+        assertFalse(stat.isDirectory());
+        assertEquals(1234, stat.length());
+        assertEquals(5678, stat.lastModified());
+        assertEquals("[file 1234 bytes modified:5678]", stat.toString());
+    }
+
+    @Test
+    void directory() {
+        FileTransferStat stat = FileTransferStat.directory(5678);
+        assertTrue(stat.exists());
+        assertTrue(stat.isDirectory());
+        assertEquals(0, stat.length());
+        assertEquals(5678, stat.lastModified());
+        assertEquals("[dir modified:5678]", stat.toString());
+    }
+
+    @Test
+    void missing() {
+        FileTransferStat stat = FileTransferStat.MISSING;
+        assertFalse(stat.exists());
+        assertFalse(stat.isDirectory());
+        assertEquals(0, stat.length());
+        assertEquals(0, stat.lastModified());
+        assertEquals("[missing]", stat.toString());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTransferWalkerTest {
+
+    /**
+     * Local handle with a slow list, counting the concurrent list calls.
+     */
+    static final class SlowHandle extends Local_FileTransferHandle {
+        final AtomicInteger running;
+        final AtomicInteger maxRunning;
+
+        SlowHandle(File file, AtomicInteger running, AtomicInteger maxRunning) {
+            super(file);
+            this.running = running;
+            this.maxRunning = maxRunning;
+        }
+
+        @Override
+        public FileTransferHandle[] list() {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                FileTransferHandle[] children = super.list();
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = new SlowHandle(new File(children[i].path()), running, maxRunning);
+                }
+                return children;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new FileTransferHandle[0];
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Creates 4 directories with 3 sub directories with 2 files each.
+     */
+    private static void createTree(File root) throws IOException {
+        for (int d = 0; d < 4; d++) {
+            for (int s = 0; s < 3; s++) {
+                File sub = new File(root, "dir" + d + "/sub" + s);
+                assertTrue(sub.mkdirs());
+                for (int f = 0; f < 2; f++) assertTrue(new File(sub, "file" + f + ".txt").createNewFile());
+            }
+        }
+    }
+
+    @Test
+    void walksWholeTree(@TempDir File root) throws Exception {
+        createTree(root);
+        Set<String> names = new HashSet<>();
+        List<Integer> depths = new ArrayList<>();
+        FileTransferWalker walker = new FileTransferWalker(new Local_FileTransferHandle(root));
+        long count = walker.walk(fth -> {
+            names.add(fth.path().substring(root.getPath().length()).replace('\\', '/'));
+            depths.add(fth.isDirectory() ? (fth.name().startsWith("dir") ? 1 : 2) : 3);
+        });
+        assertEquals(4 + 12 + 24, count);
+        assertEquals(40, names.size());
+        assertTrue(names.contains("/dir3/sub2/file1.txt"));
+        assertEquals(0, walker.getFailedDirectories());
+        // breadth first, the directories of the first level come first
+        assertEquals(List.of(1, 1, 1, 1), depths.subList(0, 4));
+    }
+
+    @Test
+    void filtersAndLimitsDepth(@TempDir File root) throws Exception {
+        createTree(root);
+        List<FileTransferHandle> files = new ArrayList<>();
+        long count = new FileTransferWalker(new Local_FileTransferHandle(root))
+                .setFilter(fth -> !fth.isDirectory())
+                .setDirectoryFilter(fth -> !fth.name().equals("dir0"))
+                .walk(files::add);
+        assertEquals(18, count);
+        for (FileTransferHandle file : files) assertFalse(file.path().contains("dir0"));
+
+        count = new FileTransferWalker(new Local_FileTransferHandle(root)).setMaxDepth(2).walk(fth -> {
+        });
+        assertEquals(16, count);
+        assertEquals(0, new FileTransferWalker(new Local_FileTransferHandle(root)).setMaxDepth(0).walk(fth -> {
+        }));
+    }
+
+    @Test
+    void boundsConcurrentListCalls(@TempDir File root) throws Exception {
+        createTree(root);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        long count = new FileTransferWalker(new SlowHandle(root, running, maxRunning))
+                .setParallelism(3)
+                .walk(fth -> {
+                });
+        assertEquals(40, count);
+        assertTrue(maxRunning.get() <= 3, "max concurrent list calls: " + maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "list calls didn't run in parallel");
+    }
+
+    @Test
+    void cancelStopsWalk(@TempDir File root) throws Exception {
+        createTree(root);
+        FileTransferWalker walker = new FileTransferWalker(new Local_FileTransferHandle(root));
+        AtomicInteger seen = new AtomicInteger();
+        long count = walker.walk(fth -> {
+            if (seen.incrementAndGet() == 5) walker.cancel();
+        });
+        assertEquals(5, count);
+        assertTrue(walker.isCancelled());
+        assertEquals(0, walker.walk(fth -> fail("cancelled walker walks")));
+    }
+
+    @Test
+    void countsFailedRemoteListings() throws Exception {
+        Ftp_FileTransferHandleTest.FakeConnection connection = new Ftp_FileTransferHandleTest.FakeConnection();
+        connection.client.put("/", Ftp_FileTransferHandleTest.directory("ok"),
+                Ftp_FileTransferHandleTest.directory("broken"));
+        connection.client.put("/ok", Ftp_FileTransferHandleTest.file("a.txt", 1));
+        connection.client.unreadable.add("/broken");
+
+        FileTransferWalker walker = new FileTransferWalker(new Ftp_FileTransferHandle(connection, "/"));
+        assertEquals(3, walker.walk(fth -> {
+        }));
+        assertEquals(1, walker.getFailedDirectories());
+    }
+
+    @Test
+    void errorOfListingIsThrownByWalk(@TempDir File root) {
+        FileTransferHandle broken = new Local_FileTransferHandle(root) {
+            @Override
+            public FileTransferHandle[] list() {
+                throw new AssertionError("broken listing");
+            }
+        };
+        AssertionError error = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(AssertionError.class, () -> new FileTransferWalker(broken).walk(fth -> {
+                })));
+        assertEquals("broken listing", error.getMessage());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ftp_ConnectionPoolTest {
+
+    /**
+     * Client without a server, it serves every file with the same content.
+     */
+    static final class FakeClient extends FTPClient {
+        boolean connected = true;
+        boolean transferCompletes = true;
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean logout() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public boolean sendNoOp() {
+            return connected;
+        }
+
+        @Override
+        public InputStream retrieveFileStream(String path) {
+            return new ByteArrayInputStream(("content of " + path).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean completePendingCommand() {
+            return transferCompletes;
+        }
+
+        @Override
+        public String[] getReplyStrings() {
+            return new String[0];
+        }
+    }
+
+    static final class FakePool extends Ftp_ConnectionPool {
+        final List<FakeClient> clients = new ArrayList<>();
+
+        FakePool(int maxClients) {
+            super(null, maxClients);
+        }
+
+        @Override
+        protected FTPClient openSession() {
+            FakeClient client = new FakeClient();
+            synchronized (clients) {
+                clients.add(client);
+            }
+            return client;
+        }
+    }
+
+    static final class PooledConnection extends Ftp_Connection {
+        FakePool pool;
+
+        PooledConnection() {
+            super((Credentials) null);
+        }
+
+        @Override
+        Ftp_ConnectionPool createPool(int maxClients) {
+            pool = new FakePool(maxClients);
+            return pool;
+        }
+    }
+
+    @Test
+    void invalidatedClientIsDisconnected() throws Exception {
+        FakePool pool = new FakePool(1);
+        FTPClient client = pool.borrow();
+        pool.release(client);
+        assertSame(client, pool.borrow());
+
+        pool.invalidate(client);
+        assertFalse(client.isConnected());
+        assertEquals(0, pool.getSessionCount());
+        FTPClient next = pool.borrow();
+        assertNotSame(client, next);
+        assertEquals(1, pool.getSessionCount());
+        pool.release(next);
+    }
+
+    @Test
+    void executeDropsOnlyLostClients() throws Exception {
+        PooledConnection connection = new PooledConnection();
+        FTPClient first = connection.execute(client -> client);
+        assertEquals(1, connection.pool.getIdleCount());
+
+        // a failure reply keeps the client
+        assertThrows(IOException.class, () -> connection.execute(client -> {
+            throw new IOException("550 no such file");
+        }));
+        assertSame(first, connection.execute(client -> client));
+
+        // a closed control connection drops it
+        assertThrows(IOException.class, () -> connection.execute(client -> {
+            throw new FTPConnectionClosedException("421 timeout");
+        }));
+        assertFalse(first.isConnected());
+        assertEquals(0, connection.pool.getSessionCount());
+        assertNotSame(first, connection.execute(client -> client));
+    }
+
+    @Test
+    void readReleasesCompletedTransfers() throws Exception {
+        PooledConnection connection = new PooledConnection();
+        try (InputStream in = connection.read("/a.txt")) {
+            assertEquals("content of /a.txt", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            assertEquals(1, connection.pool.getLeasedCount());
+        }
+        assertEquals(0, connection.pool.getLeasedCount());
+        FakeClient client = connection.pool.clients.get(0);
+        assertTrue(client.isConnected());
+        assertEquals(1, connection.pool.getIdleCount());
+
+        // an incomplete transfer leaves the control connection in an unknown state
+        client.transferCompletes = false;
+        connection.read("/b.txt").close();
+        assertFalse(client.isConnected());
+        assertEquals(0, connection.pool.getSessionCount());
+        assertNotSame(client, connection.execute(c -> c));
+        assertEquals(2, connection.pool.clients.size());
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ftp_FileTransferHandleTest {
+
+    @Test
+    void listedChildrenNeedNoRoundTrip() throws Exception {
+        FakeConnection connection = new FakeConnection();
+        connection.client.put("/", directory("dir"), file("a.txt", 10), file("b.txt", 20));
+        connection.client.put("/dir", file("c.txt", 30));
+
+        Ftp_FileTransferHandle root = new Ftp_FileTransferHandle(connection, "/");
+        for (FileTransferHandle child : root.list()) {
+            assertTrue(child.exists());
+            assertEquals(child.name().equals("dir"), child.isDirectory());
+            assertTrue(child.lastModified() > 0);
+        }
+        assertEquals(1, root.listDirs().length);
+        assertEquals(1, connection.client.listings);
+        assertEquals(0, connection.client.stats);
+
+        // the walker lists every directory once and asks for no stat
+        assertEquals(4, new FileTransferWalker(root).walk(fth -> {
+        }));
+        assertEquals(2, connection.client.listings);
+        assertEquals(0, connection.client.stats);
+    }
+
+    @Test
+    void listedChildrenKeepTheirSnapshot() throws InterruptedException {
+        FakeConnection connection = new FakeConnection();
+        connection.getMetadataCache().setTimeToLive(50);
+        connection.client.put("/", file("a.txt", 10));
+
+        Ftp_FileTransferHandle root = new Ftp_FileTransferHandle(connection, "/");
+        FileTransferHandle listed = root.list()[0];
+        assertTrue(root.child("a.txt").exists());
+        assertEquals(0, connection.client.stats);
+
+        // after the time to live only handles without a snapshot ask the server
+        Thread.sleep(100);
+        assertTrue(listed.exists());
+        assertEquals(0, connection.client.stats);
+        assertTrue(root.child("a.txt").exists());
+        assertEquals(1, connection.client.stats);
+    }
+
+    @Test
+    void listingsBiggerThanTheCacheNeedNoRoundTrip() throws Exception {
+        FakeConnection connection = new FakeConnection();
+        connection.getMetadataCache().setMaxEntries(3);
+        FTPFile[] files = new FTPFile[10];
+        for (int i = 0; i < files.length; i++) files[i] = file("f" + i + ".txt", i);
+        connection.client.put("/", files);
+
+        assertEquals(10, new FileTransferWalker(new Ftp_FileTransferHandle(connection, "/")).walk(fth -> {
+        }));
+        assertEquals(1, connection.client.listings);
+        assertEquals(0, connection.client.stats);
+    }
+
+    @Test
+    void withoutCacheOnlyListedChildrenNeedNoRoundTrip() {
+        FakeConnection connection = new FakeConnection();
+        connection.client.put("/", file("a.txt", 10));
+
+        Ftp_FileTransferHandle root = new Ftp_FileTransferHandle(connection, "/").setUseMetadataCache(false);
+        FileTransferHandle listed = root.list()[0];
+        assertTrue(listed.exists());
+        assertFalse(listed.isDirectory());
+        assertEquals(0, connection.client.stats);
+
+        FileTransferHandle child = root.child("a.txt");
+        assertTrue(child.exists());
+        assertFalse(child.isDirectory());
+        assertEquals(2, connection.client.stats);
+    }
+
+    @Test
+    void invalidatedStatIsQueriedAgain() {
+        FakeConnection connection = new FakeConnection();
+        connection.client.put("/", file("a.txt", 10));
+
+        Ftp_FileTransferHandle root = new Ftp_FileTransferHandle(connection, "/");
+        root.list();
+        assertTrue(root.child("a.txt").exists());
+        connection.client.put("/");
+        connection.getMetadataCache().invalidate("/a.txt");
+        assertFalse(root.child("a.txt").exists());
+        assertEquals(1, connection.client.stats);
+    }
+
+    @Test
+    void onlyNotFoundRepliesAreMissing() {
+        FakeConnection connection = new FakeConnection();
+        connection.client.put("/", file("a.txt", 10));
+
+        Ftp_FileTransferHandle root = new Ftp_FileTransferHandle(connection, "/").setUseMetadataCache(false);
+        assertFalse(root.child("b.txt").exists());
+
+        connection.client.failure = new IOException("connection lost");
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> root.child("a.txt").exists());
+        assertSame(connection.client.failure, e.getCause());
+        assertThrows(UncheckedIOException.class, () -> root.child("a.txt").list());
+    }
+
+    static FTPFile file(String name, long size) {
+        FTPFile file = new FTPFile();
+        file.setName(name);
+        file.setType(FTPFile.FILE_TYPE);
+        file.setSize(size);
+        file.setTimestamp(Calendar.getInstance());
+        return file;
+    }
+
+    static FTPFile directory(String name) {
+        FTPFile file = new FTPFile();
+        file.setName(name);
+        file.setType(FTPFile.DIRECTORY_TYPE);
+        file.setTimestamp(Calendar.getInstance());
+        return file;
+    }
+
+    /**
+     * Client with an in memory directory tree, it counts the round trips.
+     */
+    static final class FakeClient extends FTPClient {
+        final Map<String, FTPFile[]> directories = new HashMap<>();
+        final Set<String> unreadable = new HashSet<>();
+        IOException failure;
+        int listings;
+        int stats;
+
+        void put(String directory, FTPFile... files) {
+            directories.put(MetadataCache.normalize(directory), files);
+        }
+
+        @Override
+        public FTPFile[] listFiles(String path) throws IOException {
+            listings++;
+            if (unreadable.contains(MetadataCache.normalize(path))) throw new IOException("can't list " + path);
+            FTPFile[] files = directories.get(MetadataCache.normalize(path));
+            return files == null ? new FTPFile[0] : files;
+        }
+
+        @Override
+        public FTPFile mlistFile(String path) throws IOException {
+            stats++;
+            if (failure != null) throw failure;
+            path = MetadataCache.normalize(path);
+            FTPFile[] files = directories.get(MetadataCache.parentPath(path));
+            if (files == null) return null;
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            for (FTPFile file : files) {
+                if (name.equals(file.getName())) return file;
+            }
+            return null;
+        }
+
+        @Override
+        public int getReplyCode() {
+            return 550;
+        }
+
+        @Override
+        public String[] getReplyStrings() {
+            return new String[0];
+        }
+    }
+
+    /**
+     * Connection which runs every action on the fake client instead of a pooled one.
+     */
+    static final class FakeConnection extends Ftp_Connection {
+        final FakeClient client = new FakeClient();
+
+        FakeConnection() {
+            super((Credentials) null);
+        }
+
+        @Override
+        public <R> R execute(FtpAction<R> action) throws IOException {
+            return action.run(client);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataCacheTest {
+
+    private static final FileTransferHandle[] EMPTY = new FileTransferHandle[0];
+
+    @Test
+    void cachesStatsAndListings() {
+        MetadataCache cache = new MetadataCache();
+        FileTransferStat stat = FileTransferStat.file(10, 1000);
+        cache.putStat("/dir/a.txt", stat);
+        cache.putListing("/dir/", EMPTY);
+
+        assertSame(stat, cache.getStat("/dir/a.txt"));
+        assertSame(stat, cache.getStat("//dir/a.txt"));
+        assertArrayEquals(EMPTY, cache.getListing("/dir"));
+        assertNull(cache.getStat("/dir/b.txt"));
+        assertNull(cache.getListing("/other"));
+    }
+
+    @Test
+    void expiresAfterTimeToLive() throws InterruptedException {
+        MetadataCache cache = new MetadataCache();
+        cache.setTimeToLive(50);
+        cache.putStat("/a", FileTransferStat.MISSING);
+        cache.putListing("/", EMPTY);
+        assertNotNull(cache.getStat("/a"));
+        Thread.sleep(100);
+        assertNull(cache.getStat("/a"));
+        assertNull(cache.getListing("/"));
+        assertEquals(0, cache.size());
+
+        cache.setTimeToLive(0);
+        cache.putStat("/a", FileTransferStat.MISSING);
+        assertNull(cache.getStat("/a"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        MetadataCache cache = new MetadataCache(2);
+        cache.putStat("/a", FileTransferStat.MISSING);
+        cache.putStat("/b", FileTransferStat.MISSING);
+        cache.getStat("/a");
+        cache.putStat("/c", FileTransferStat.MISSING);
+        assertNotNull(cache.getStat("/a"));
+        assertNull(cache.getStat("/b"));
+        assertNotNull(cache.getStat("/c"));
+
+        cache.setMaxEntries(1);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getStat("/c"));
+    }
+
+    @Test
+    void invalidatesPathAndParentListing() {
+        MetadataCache cache = new MetadataCache();
+        cache.putListing("/", EMPTY);
+        cache.putListing("/dir", EMPTY);
+        cache.putStat("/dir", FileTransferStat.directory(0));
+        cache.putStat("/dir/a.txt", FileTransferStat.file(1, 0));
+        cache.putStat("/dir/sub/b.txt", FileTransferStat.file(1, 0));
+        cache.putStat("/dirx", FileTransferStat.directory(0));
+
+        cache.invalidate("/dir/a.txt");
+        assertNull(cache.getStat("/dir/a.txt"));
+        assertNull(cache.getListing("/dir"));
+        assertNotNull(cache.getStat("/dir"));
+        assertNotNull(cache.getListing("/"));
+
+        cache.invalidateTree("/dir/");
+        assertNull(cache.getStat("/dir"));
+        assertNull(cache.getStat("/dir/sub/b.txt"));
+        assertNull(cache.getListing("/"));
+        assertNotNull(cache.getStat("/dirx"));
+    }
+
+    @Test
+    void normalizesPaths() {
+        assertEquals("/", MetadataCache.normalize(""));
+        assertEquals("/", MetadataCache.normalize("//"));
+        assertEquals("/a/b", MetadataCache.normalize("/a//b/"));
+        assertEquals("/", MetadataCache.parentPath("/a"));
+        assertEquals("/a", MetadataCache.parentPath("/a/b"));
+    }
+}
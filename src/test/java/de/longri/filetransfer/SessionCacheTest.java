@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCacheTest {
+
+    static final class FakeSession {
+        final Credentials cred;
+        boolean alive = true;
+        boolean closed;
+
+        FakeSession(Credentials cred) {
+            this.cred = cred;
+        }
+    }
+
+    static final class FakeShare {
+        final FakeSession session;
+        final String name;
+        boolean alive = true;
+        boolean closed;
+
+        FakeShare(FakeSession session, String name) {
+            this.session = session;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Cache with sessions and shares in memory, like SMB_SessionCache with a stubbed SMBClient and Session.
+     */
+    static final class FakeCache extends SessionCache<FakeSession, FakeShare> {
+        final List<FakeSession> sessions = new ArrayList<>();
+        final List<FakeShare> shares = new ArrayList<>();
+        boolean shareFails;
+
+        @Override
+        protected FakeSession openSession(Credentials cred) {
+            FakeSession session = new FakeSession(cred);
+            sessions.add(session);
+            return session;
+        }
+
+        @Override
+        protected FakeShare openShare(FakeSession session, String shareName) throws IOException {
+            if (shareFails) throw new IOException("can't connect share " + shareName);
+            FakeShare share = new FakeShare(session, shareName);
+            shares.add(share);
+            return share;
+        }
+
+        @Override
+        protected boolean isAlive(FakeSession session) {
+            return session.alive && !session.closed;
+        }
+
+        @Override
+        protected boolean isShareAlive(FakeShare share) {
+            return share.alive && !share.closed;
+        }
+
+        @Override
+        protected void closeShare(FakeShare share) {
+            share.closed = true;
+        }
+
+        @Override
+        protected void closeSession(FakeSession session) {
+            session.closed = true;
+        }
+    }
+
+    private static Credentials credentials(String user, String share) throws Exception {
+        return new Credentials("127.0.0.1", "445", share, user, "", "secret");
+    }
+
+    @Test
+    void countsAcquireAndRelease() throws Exception {
+        FakeCache cache = new FakeCache();
+        Credentials cred = credentials("user", "public");
+        FakeShare first = cache.acquire(cred);
+        assertSame(first, cache.acquire(cred));
+        // an other share of the same server and user shares the session
+        FakeShare other = cache.acquire(credentials("user", "private"));
+        assertSame(first.session, other.session);
+        assertEquals(1, cache.sessions.size());
+        assertEquals(1, cache.size());
+
+        cache.release(cred);
+        cache.release(cred);
+        cache.release(credentials("user", "private"));
+        assertThrows(IllegalStateException.class, () -> cache.release(cred));
+        assertThrows(IllegalStateException.class, () -> cache.release(credentials("unknown", "public")));
+    }
+
+    @Test
+    void evictsOnlySessionsWithoutUsers() throws Exception {
+        FakeCache cache = new FakeCache();
+        cache.setIdleTimeout(0);
+        Credentials used = credentials("used", "public");
+        Credentials unused = credentials("unused", "public");
+        FakeShare usedShare = cache.acquire(used);
+        FakeShare unusedShare = cache.acquire(unused);
+        cache.release(unused);
+
+        cache.evictIdle();
+        assertEquals(1, cache.size());
+        assertFalse(usedShare.closed);
+        assertFalse(usedShare.session.closed);
+        assertTrue(unusedShare.closed);
+        assertTrue(unusedShare.session.closed);
+
+        cache.release(used);
+        cache.evictIdle();
+        assertEquals(0, cache.size());
+        assertTrue(usedShare.session.closed);
+    }
+
+    @Test
+    void keepsSessionsUntilIdleTimeout() throws Exception {
+        FakeCache cache = new FakeCache();
+        Credentials cred = credentials("user", "public");
+        FakeShare share = cache.acquire(cred);
+        cache.release(cred);
+        cache.evictIdle();
+        assertEquals(1, cache.size());
+        assertSame(share, cache.acquire(cred));
+        cache.release(cred);
+    }
+
+    @Test
+    void reconnectsAfterInvalidate() throws Exception {
+        FakeCache cache = new FakeCache();
+        Credentials cred = credentials("user", "public");
+        FakeShare share = cache.acquire(cred);
+        cache.release(cred);
+
+        cache.invalidate(cred);
+        assertTrue(share.closed);
+        assertTrue(share.session.closed);
+        FakeShare reconnected = cache.acquire(cred);
+        assertNotSame(share, reconnected);
+        assertNotSame(share.session, reconnected.session);
+        assertEquals(2, cache.sessions.size());
+        cache.release(cred);
+    }
+
+    @Test
+    void reconnectsLostShareAndSession() throws Exception {
+        FakeCache cache = new FakeCache();
+        Credentials cred = credentials("user", "public");
+        FakeShare share = cache.acquire(cred);
+        cache.release(cred);
+
+        // a lost share is connected again on the same session
+        share.alive = false;
+        FakeShare second = cache.acquire(cred);
+        cache.release(cred);
+        assertTrue(share.closed);
+        assertSame(share.session, second.session);
+        assertEquals(1, cache.sessions.size());
+
+        // a lost session is authenticated again
+        second.session.alive = false;
+        FakeShare third = cache.acquire(cred);
+        cache.release(cred);
+        assertNotSame(second.session, third.session);
+        assertTrue(second.session.closed);
+        assertEquals(2, cache.sessions.size());
+    }
+
+    @Test
+    void failedAcquireIsReleased() throws Exception {
+        FakeCache cache = new FakeCache();
+        cache.setIdleTimeout(0);
+        Credentials cred = credentials("user", "public");
+        cache.shareFails = true;
+        assertThrows(IOException.class, () -> cache.acquire(cred));
+        assertTrue(cache.sessions.get(0).closed);
+        assertThrows(IllegalStateException.class, () -> cache.release(cred));
+
+        cache.evictIdle();
+        assertEquals(0, cache.size());
+    }
+}
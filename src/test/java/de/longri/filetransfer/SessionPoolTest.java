@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.filetransfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTest {
+
+    static final class FakeSession {
+        boolean alive = true;
+        int channels;
+    }
+
+    static final class FakeChannel {
+        final FakeSession session;
+        boolean alive = true;
+
+        FakeChannel(FakeSession session) {
+            this.session = session;
+        }
+    }
+
+    static final class FakePool extends SessionPool<FakeSession, FakeChannel> {
+        final AtomicInteger openedSessions = new AtomicInteger();
+        final AtomicInteger closedSessions = new AtomicInteger();
+        final AtomicInteger openedChannels = new AtomicInteger();
+        volatile boolean validateResult = true;
+        // round trip time of validate and closeSession
+        volatile long delay;
+
+        FakePool(int maxSessions, int maxChannelsPerSession) {
+            super(maxSessions, maxChannelsPerSession);
+        }
+
+        @Override
+        protected FakeSession openSession() {
+            openedSessions.incrementAndGet();
+            return new FakeSession();
+        }
+
+        @Override
+        protected FakeChannel openChannel(FakeSession session) throws IOException {
+            if (!session.alive) throw new IOException("session lost");
+            synchronized (session) {
+                session.channels++;
+            }
+            openedChannels.incrementAndGet();
+            return new FakeChannel(session);
+        }
+
+        @Override
+        protected boolean isAlive(FakeSession session) {
+            return session.alive;
+        }
+
+        @Override
+        protected boolean isChannelAlive(FakeChannel channel) {
+            return channel.alive;
+        }
+
+        @Override
+        protected boolean validate(FakeChannel channel) {
+            sleep(delay);
+            return validateResult;
+        }
+
+        @Override
+        protected void closeChannel(FakeChannel channel) {
+            channel.alive = false;
+        }
+
+        @Override
+        protected void closeSession(FakeSession session) {
+            sleep(delay);
+            session.alive = false;
+            closedSessions.incrementAndGet();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void multiplexesChannelsOverSessions() throws Exception {
+        FakePool pool = new FakePool(2, 3);
+        List<FakeChannel> channels = new ArrayList<>();
+        for (int i = 0; i < 6; i++) channels.add(pool.borrow());
+        assertEquals(2, pool.getSessionCount());
+        assertEquals(6, pool.getLeasedCount());
+        for (FakeChannel channel : channels) assertTrue(channel.session.channels <= 3);
+
+        pool.setBorrowTimeout(50);
+        assertThrows(IOException.class, pool::borrow);
+
+        pool.release(channels.get(0));
+        assertSame(channels.get(0), pool.borrow());
+        assertEquals(6, pool.openedChannels.get());
+        pool.close();
+    }
+
+    @Test
+    void waitsForReleasedChannel() throws Exception {
+        FakePool pool = new FakePool(1, 1);
+        FakeChannel channel = pool.borrow();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<FakeChannel> waiting = executor.submit(pool::borrow);
+            Thread.sleep(50);
+            assertFalse(waiting.isDone());
+            pool.release(channel);
+            assertSame(channel, waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            pool.close();
+        }
+    }
+
+    @Test
+    void healthChecks() throws Exception {
+        FakePool pool = new FakePool(2, 2);
+        FakeChannel first = pool.borrow();
+        FakeChannel second = pool.borrow();
+
+        // a dead idle channel is replaced
+        pool.release(first);
+        first.alive = false;
+        FakeChannel third = pool.borrow();
+        assertNotSame(first, third);
+        assertTrue(third.alive);
+
+        // an invalidated channel of a dead session drops the session
+        second.session.alive = false;
+        pool.invalidate(second);
+        pool.invalidate(third);
+        assertEquals(0, pool.getSessionCount());
+        FakeChannel fresh = pool.borrow();
+        assertTrue(fresh.session.alive);
+        assertEquals(2, pool.openedSessions.get());
+
+        // channels idle for longer than the validate time are checked
+        pool.setValidateAfter(0);
+        pool.release(fresh);
+        pool.validateResult = false;
+        assertNotSame(fresh, pool.borrow());
+        assertThrows(IllegalArgumentException.class, () -> pool.release(fresh));
+        pool.close();
+    }
+
+    @Test
+    void idleEviction() throws Exception {
+        FakePool pool = new FakePool(2, 2);
+        FakeChannel a = pool.borrow();
+        FakeChannel b = pool.borrow();
+        FakeChannel c = pool.borrow();
+        pool.release(a);
+        pool.release(b);
+        pool.setIdleTimeout(0);
+        pool.evictIdle();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getSessionCount());
+        assertTrue(c.session.alive);
+
+        pool.close();
+        assertEquals(1, pool.getSessionCount());
+        pool.release(c);
+        assertEquals(0, pool.getSessionCount());
+        assertEquals(pool.openedSessions.get(), pool.closedSessions.get());
+        assertThrows(IOException.class, pool::borrow);
+    }
+
+    @Test
+    void roundTripsRunOutsideTheLock() throws Exception {
+        FakePool pool = new FakePool(2, 1);
+        FakeChannel a = pool.borrow();
+        FakeChannel b = pool.borrow();
+        pool.release(a);
+        pool.setValidateAfter(0);
+        pool.delay = 500;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // a slow validate doesn't block the release of another channel
+            Future<FakeChannel> validating = executor.submit(pool::borrow);
+            Thread.sleep(50);
+            long start = System.nanoTime();
+            pool.release(b);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+            assertSame(a, validating.get(5, TimeUnit.SECONDS));
+
+            // a slow close doesn't block other callers
+            a.session.alive = false;
+            Future<?> closing = executor.submit(() -> pool.invalidate(a));
+            Thread.sleep(50);
+            start = System.nanoTime();
+            assertEquals(1, pool.getIdleCount());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+            closing.get(5, TimeUnit.SECONDS);
+            assertEquals(1, pool.closedSessions.get());
+        } finally {
+            executor.shutdown();
+            pool.delay = 0;
+            pool.close();
+        }
+    }
+}
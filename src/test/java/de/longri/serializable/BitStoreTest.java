@@ -20,7 +20,10 @@ package de.longri.serializable;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -294,4 +297,61 @@ public class BitStoreTest {
         
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testReadOwnWrites() throws Exception {
+        // the last written bits are still in the accumulator when they are read back
+        BitStore bitStore = new BitStore();
+        bitStore.write(true);
+        assertTrue(bitStore.readBool());
+        bitStore.write((byte) 5);
+        bitStore.write(123456789L);
+        assertEquals(5, bitStore.readByte());
+        assertEquals(123456789L, bitStore.readLong());
+        for (int i = 0; i < 100; i++) {
+            bitStore.write(i * 7919);
+            bitStore.write("value " + i);
+            assertEquals(i * 7919, bitStore.readInt());
+            assertEquals("value " + i, bitStore.readString());
+        }
+        bitStore.write(false);
+        assertFalse(bitStore.readBool());
+    }
+
+    @Test
+    public void testWireFormat() throws Exception {
+        // bytes written by the former bit-by-bit implementation
+        byte[] expected = {-97, 85, 105, 34, 5, 9, -66, -73, -102, 42, -1, -1, -1, -1, -1, -1, -1, -1, -4, 26, 36, 27,
+                115, -55, 61, 35, -59, 9, 24, -120, -42, 70, -26, 0};
+
+        BitStore writer = new BitStore();
+        writer.write(true);
+        writer.write((byte) 7);
+        writer.write((byte) -86);
+        writer.write((short) -36);
+        writer.write(Short.MIN_VALUE);
+        writer.write(0);
+        writer.write(Integer.MIN_VALUE);
+        writer.write(123456789);
+        writer.write(Long.MAX_VALUE);
+        writer.write(-1L);
+        writer.write("Wire äöü");
+        writer.write((String) null);
+        writer.write(false);
+        assertArrayEquals(expected, writer.getArray());
+
+        BitStore reader = new BitStore(expected);
+        assertEquals(true, reader.readBool());
+        assertEquals(7, reader.readByte());
+        assertEquals(-86, reader.readByte());
+        assertEquals(-36, reader.readShort());
+        assertEquals(Short.MIN_VALUE, reader.readShort());
+        assertEquals(0, reader.readInt());
+        assertEquals(Integer.MIN_VALUE, reader.readInt());
+        assertEquals(123456789, reader.readInt());
+        assertEquals(Long.MAX_VALUE, reader.readLong());
+        assertEquals(-1L, reader.readLong());
+        assertEquals("Wire äöü", reader.readString());
+        assertEquals(null, reader.readString());
+        assertEquals(false, reader.readBool());
+    }
+}
@@ -21,6 +21,11 @@ package de.longri.serializable;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -186,5 +191,48 @@ public class ByteArrayTest  {
 
     }
 
+    private static byte[] toFixBytes(BigInteger value, int length) {
+        byte[] big = value.toByteArray();
+        byte[] result = new byte[length];
+        int copy = Math.min(big.length, length);
+        System.arraycopy(big, big.length - copy, result, length - copy, copy);
+        return result;
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testWordOperations() throws Exception {
+        Random random = new Random(17);
+        for (int length = 1; length < 40; length++) {
+            BigInteger mask = BigInteger.ONE.shiftLeft(length * 8).subtract(BigInteger.ONE);
+            for (int n = 0; n <= length * 8 + 3; n++) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                BigInteger value = new BigInteger(1, bytes);
+
+                ByteArray ba = new ByteArray(bytes.clone());
+                ba.shiftLeft(n);
+                assertArrayEquals(toFixBytes(value.shiftLeft(n).and(mask), length), ba.toByteArray(), length + "<<" + n);
+                assertEquals(value.shiftLeft(n).and(mask).bitLength(), ba.bitLength());
+
+                ba = new ByteArray(bytes.clone());
+                ba.shiftRight(n);
+                assertArrayEquals(toFixBytes(value.shiftRight(n), length), ba.toByteArray(), length + ">>" + n);
+
+                byte[] other = new byte[length];
+                random.nextBytes(other);
+                ba = new ByteArray(bytes.clone());
+                ba.or(new ByteArray(other));
+                assertArrayEquals(toFixBytes(value.or(new BigInteger(1, other)), length), ba.toByteArray());
+                ba = new ByteArray(bytes.clone());
+                ba.and(new ByteArray(other));
+                assertArrayEquals(toFixBytes(value.and(new BigInteger(1, other)), length), ba.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testToString() throws Exception {
+        assertEquals("2 bytes :1111 1111 | 0000 0101", new ByteArray(2, (short) -251).toString());
+        assertEquals("1 bytes :1000 0000", new ByteArray((byte) -128).toString());
+    }
+}
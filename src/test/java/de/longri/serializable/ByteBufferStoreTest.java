@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestObjectString createStringObject() {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "Test";
+        obj.value2 = "Object";
+        obj.value3 = "Umlaute äöü ß";
+        obj.value4 = "Test Object String";
+        obj.value5 = "";
+        obj.value6 = "Java is a general-purpose computer programming language that is concurrent, class-based, object-oriented, and specifically designed to have as few implementation dependencies as possible.";
+        return obj;
+    }
+
+    private TestObjectLong createLongObject() {
+        TestObjectLong obj = new TestObjectLong();
+        obj.value1 = -36;
+        obj.value2 = 117;
+        obj.value3 = 36;
+        obj.value4 = Long.MIN_VALUE;
+        obj.value5 = Long.MAX_VALUE;
+        obj.value6 = 0;
+        return obj;
+    }
+
+    @Test
+    void heapAndDirect() throws Exception {
+        for (boolean direct : new boolean[]{false, true}) {
+            TestObjectString obj = createStringObject();
+            TestObjectLong objLong = createLongObject();
+
+            // small initial capacity forces growing
+            ByteBufferStore writer = new ByteBufferStore(8, direct);
+            assertEquals(direct, writer.isDirect());
+            obj.serialize(writer);
+            objLong.serialize(writer);
+
+            ByteBufferStore reader = new ByteBufferStore(writer.getByteBuffer());
+            TestObjectString obj2 = new TestObjectString();
+            TestObjectLong objLong2 = new TestObjectLong();
+            obj2.deserialize(reader);
+            objLong2.deserialize(reader);
+            assertEquals(obj, obj2);
+            assertEquals(objLong, objLong2);
+        }
+    }
+
+    @Test
+    void wireCompatibleWithNormalStore() throws Exception {
+        TestObjectString obj = createStringObject();
+        TestObjectLong objLong = createLongObject();
+
+        NormalStore normalStore = new NormalStore();
+        obj.serialize(normalStore);
+        objLong.serialize(normalStore);
+
+        ByteBufferStore bufferStore = new ByteBufferStore();
+        obj.serialize(bufferStore);
+        objLong.serialize(bufferStore);
+
+        byte[] normalArray = normalStore.getArray();
+        assertArrayEquals(normalArray, bufferStore.getArray());
+
+        TestObjectString obj2 = new TestObjectString();
+        obj2.deserialize(new ByteBufferStore(normalArray));
+        assertEquals(obj, obj2);
+    }
+
+    @Test
+    void readOnlyView() throws Exception {
+        ByteBufferStore writer = new ByteBufferStore();
+        writer.write(42);
+        writer.write("view");
+
+        ByteBuffer view = writer.getByteBuffer();
+        assertTrue(view.isReadOnly());
+        assertEquals(writer.size(), view.remaining());
+        assertEquals(42, view.getInt(0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(out)) {
+            assertEquals(writer.size(), writer.writeTo(channel));
+        }
+        assertArrayEquals(writer.getArray(), out.toByteArray());
+    }
+
+    @Test
+    void mappedFile() throws Exception {
+        Path file = tempDir.resolve("mapped.store");
+        TestObjectString obj = createStringObject();
+
+        try (ByteBufferStore writer = ByteBufferStore.map(file, 16)) {
+            assertTrue(writer.isMapped());
+            for (int i = 0; i < 100; i++) {
+                obj.serialize(writer);
+            }
+        }
+
+        ByteBufferStore reader = ByteBufferStore.mapReadOnly(file);
+        assertEquals(Files.size(file), reader.size());
+        for (int i = 0; i < 100; i++) {
+            TestObjectString obj2 = new TestObjectString();
+            obj2.deserialize(reader);
+            assertEquals(obj, obj2);
+        }
+    }
+}
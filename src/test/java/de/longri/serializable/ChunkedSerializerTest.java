@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedSerializerTest {
+
+    private static List<TestObjectString> createList(int count) {
+        List<TestObjectString> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TestObjectString obj = new TestObjectString();
+            obj.value1 = "Value " + i;
+            obj.value4 = "ÄÖÜ " + (i % 17);
+            obj.value9 = String.valueOf(i * 7);
+            list.add(obj);
+        }
+        return list;
+    }
+
+    @Test
+    void roundTrip() throws NotImplementedException, IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int count : new int[]{0, 1, 999, 5000}) {
+                List<TestObjectString> list = createList(count);
+                for (StoreType type : StoreType.values()) {
+                    for (Codec codec : Codecs.values()) {
+                        for (int chunkSize : new int[]{1, 7, 1000}) {
+                            if (count / chunkSize > 1000) continue;
+                            byte[] data = ChunkedSerializer.serialize(list, type, codec, chunkSize, pool);
+                            ArrayList<TestObjectString> read = ChunkedSerializer.deserialize(data, TestObjectString.class, pool);
+                            assertEquals(list, read, type + " " + codec.getName() + " " + chunkSize);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void serializableArrayList() throws NotImplementedException, IOException {
+        SerializableArrayList<TestObjectString> list = new SerializableArrayList<>(TestObjectString.class);
+        for (TestObjectString obj : createList(3000)) list.add(obj);
+        byte[] plain = list.serializeParallel(StoreType.VARIABLE_BYTE, Codecs.NONE);
+        byte[] compressed = list.serializeParallel(StoreType.VARIABLE_BYTE, Codecs.DEFLATE);
+        assertTrue(compressed.length < plain.length);
+
+        SerializableArrayList<TestObjectString> list2 = new SerializableArrayList<>(TestObjectString.class);
+        list2.deserializeParallel(compressed);
+        assertEquals(3000, list2.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(list.get(i), list2.get(i));
+        }
+    }
+
+    @Test
+    void corrupt() throws NotImplementedException {
+        byte[] data = ChunkedSerializer.serialize(createList(100), StoreType.NORMAL, Codecs.LZ4);
+        assertThrows(IOException.class, () -> ChunkedSerializer.deserialize(new byte[3], TestObjectString.class));
+        byte[] truncated = new byte[data.length - 10];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> ChunkedSerializer.deserialize(truncated, TestObjectString.class));
+    }
+}
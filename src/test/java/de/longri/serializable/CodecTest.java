@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecTest {
+
+    private static byte[] createData(int length, int alphabet) {
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(alphabet));
+        }
+        return data;
+    }
+
+    @Test
+    void roundTrip() {
+        byte[][] inputs = {
+                new byte[0],
+                "a".getBytes(StandardCharsets.UTF_8),
+                "abcabcabcabcabcabcabcabc".getBytes(StandardCharsets.UTF_8),
+                new byte[100000],
+                createData(100000, 4),
+                createData(100000, 256),
+                createData(13, 2),
+                createData(300, 1),
+        };
+        for (Codec codec : Codecs.values()) {
+            for (byte[] data : inputs) {
+                byte[] packed = Codecs.pack(codec, data, 0, data.length);
+                assertSame(codec, Codecs.detect(packed));
+                assertArrayEquals(data, Codecs.unpack(packed), codec.getName() + " " + data.length);
+            }
+        }
+    }
+
+    @Test
+    void lz4Compresses() {
+        byte[] data = createData(100000, 4);
+        byte[] zeros = new byte[100000];
+        assertTrue(Codecs.LZ4.encode(data, 0, data.length).length < data.length * 0.7);
+        assertTrue(Codecs.LZ4.encode(zeros, 0, zeros.length).length < 1000);
+
+        // offset and length inside a bigger array
+        byte[] encoded = Codecs.LZ4.encode(data, 1000, 5000);
+        byte[] decoded = Codecs.LZ4.decode(encoded, 0, encoded.length);
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 6000), decoded);
+    }
+
+    @Test
+    void invalidData() {
+        byte[] data = createData(10000, 4);
+        byte[] encoded = Codecs.LZ4.encode(data, 0, data.length);
+        assertThrows(IllegalArgumentException.class, () -> Codecs.LZ4.decode(encoded, 0, encoded.length / 2));
+        // untrusted length headers, negative and far bigger than the data can expand to
+        byte[] negative = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f, 0};
+        assertThrows(IllegalArgumentException.class, () -> Codecs.LZ4.decode(negative, 0, negative.length));
+        byte[] huge = {(byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 0};
+        assertThrows(IllegalArgumentException.class, () -> Codecs.LZ4.decode(huge, 0, huge.length));
+        assertThrows(IllegalArgumentException.class, () -> Codecs.unpack(new byte[]{(byte) 200, 1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> Codecs.register(new DeflateCodec(1, 0)));
+    }
+
+    @Test
+    void storeWithCodec() throws Exception {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "Test";
+        obj.value6 = new String(createData(5000, 8), StandardCharsets.UTF_8);
+
+        for (Codec codec : Codecs.values()) {
+            NormalStore writer = new NormalStore();
+            obj.serialize(writer);
+            byte[] packed = writer.getArray(codec);
+
+            TestObjectString obj2 = new TestObjectString();
+            obj2.deserialize(new NormalStore(Codecs.unpack(packed)));
+            assertEquals(obj, obj2);
+
+            BitStore bitWriter = new BitStore();
+            obj.serialize(bitWriter);
+            TestObjectString obj3 = new TestObjectString();
+            obj3.deserialize(new BitStore(Codecs.unpack(bitWriter.getArray(codec))));
+            assertEquals(obj, obj3);
+
+            BitStoreZippedString zippedString = new BitStoreZippedString(codec);
+            obj.serialize(zippedString);
+            TestObjectString obj4 = new TestObjectString();
+            obj4.deserialize(new BitStoreZippedString(zippedString.getArray(), codec));
+            assertEquals(obj, obj4);
+        }
+    }
+}
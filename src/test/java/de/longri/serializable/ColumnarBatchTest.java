@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarBatchTest {
+
+    public static class Telemetry implements Serializable {
+        int temperature;
+        long time;
+        boolean valid;
+        String station;
+        short humidity;
+        byte state;
+
+        @Override
+        public void serialize(StoreBase writer) throws NotImplementedException {
+            writer.write(temperature);
+            writer.write(time);
+            writer.write(valid);
+            writer.write(station);
+            writer.write(humidity);
+            writer.write(state);
+        }
+
+        @Override
+        public void deserialize(StoreBase reader) throws NotImplementedException {
+            temperature = reader.readInt();
+            time = reader.readLong();
+            valid = reader.readBool();
+            station = reader.readString();
+            humidity = reader.readShort();
+            state = reader.readByte();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Telemetry)) return false;
+            Telemetry t = (Telemetry) o;
+            return temperature == t.temperature && time == t.time && valid == t.valid
+                    && Objects.equals(station, t.station) && humidity == t.humidity && state == t.state;
+        }
+
+        @Override
+        public int hashCode() {
+            return temperature;
+        }
+    }
+
+    private static List<Telemetry> createTelemetry(int count) {
+        Random random = new Random(7);
+        List<Telemetry> list = new ArrayList<>();
+        long time = 1700000000000L;
+        int temperature = 200;
+        for (int i = 0; i < count; i++) {
+            Telemetry t = new Telemetry();
+            time += 1000 + random.nextInt(50);
+            temperature += random.nextInt(5) - 2;
+            t.time = time;
+            t.temperature = temperature;
+            t.valid = i % 500 != 0;
+            t.station = i % 3000 < 1500 ? "Station Nord" : "Station Süd";
+            t.humidity = (short) (600 + random.nextInt(10));
+            t.state = (byte) (i / 1000);
+            list.add(t);
+        }
+        return list;
+    }
+
+    @Test
+    void roundTrip() throws NotImplementedException {
+        for (int count : new int[]{0, 1, 2, 1000, 10000}) {
+            List<Telemetry> list = createTelemetry(count);
+            byte[] data = ColumnarBatch.encode(list);
+            assertEquals(list, ColumnarBatch.decode(data, Telemetry.class));
+        }
+    }
+
+    @Test
+    void extremeValues() throws NotImplementedException {
+        List<Telemetry> list = new ArrayList<>();
+        int[] ints = {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, Integer.MIN_VALUE};
+        long[] longs = {Long.MAX_VALUE, Long.MIN_VALUE, -1, 0, Long.MAX_VALUE};
+        for (int i = 0; i < ints.length; i++) {
+            Telemetry t = new Telemetry();
+            t.temperature = ints[i];
+            t.time = longs[i];
+            t.station = i == 2 ? null : "ÄÖÜ" + (i % 2);
+            t.humidity = i % 2 == 0 ? Short.MIN_VALUE : Short.MAX_VALUE;
+            t.state = i % 2 == 0 ? Byte.MIN_VALUE : Byte.MAX_VALUE;
+            t.valid = i == 4;
+            list.add(t);
+        }
+        assertEquals(list, ColumnarBatch.decode(ColumnarBatch.encode(list), Telemetry.class));
+    }
+
+    @Test
+    void smallerThanRowEncoding() throws NotImplementedException {
+        SerializableArrayList<Telemetry> list = new SerializableArrayList<>(Telemetry.class);
+        for (Telemetry t : createTelemetry(10000)) list.add(t);
+
+        VariableByteStore rows = new VariableByteStore();
+        list.serialize(rows);
+        byte[] columnar = list.serializeColumnar();
+        assertTrue(columnar.length * 3 < rows.getArray().length, columnar.length + " / " + rows.getArray().length);
+
+        // the columns compress much better too
+        byte[] zippedRows = Codecs.DEFLATE.encode(rows.getArray(), 0, rows.getArray().length);
+        byte[] zippedColumns = Codecs.DEFLATE.encode(columnar, 0, columnar.length);
+        assertTrue(zippedColumns.length * 2 < zippedRows.length, zippedColumns.length + " / " + zippedRows.length);
+
+        SerializableArrayList<Telemetry> list2 = new SerializableArrayList<>(Telemetry.class);
+        list2.deserializeColumnar(columnar);
+        assertEquals(list.size(), list2.size());
+        assertEquals(list.get(9999), list2.get(9999));
+    }
+
+    @Test
+    void differentLayout() {
+        List<TestObjectString> list = new ArrayList<>();
+        list.add(new TestObjectString());
+        list.add(new TestObjectString());
+        assertDoesNotThrow(() -> ColumnarBatch.encode(list));
+
+        List<Serializable> mixed = new ArrayList<>();
+        mixed.add(new Telemetry());
+        mixed.add(new TestObjectString());
+        assertThrows(IllegalArgumentException.class, () -> ColumnarBatch.encode(mixed));
+    }
+
+    @Test
+    void zigZagLong() throws NotImplementedException {
+        VariableByteStore store = new VariableByteStore();
+        long[] values = {0, 1, -1, 63, -64, 64, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40};
+        for (long value : values) store.writeZigZagLong(value);
+        VariableByteStore reader = new VariableByteStore(store.getArray());
+        for (long value : values) assertEquals(value, reader.readZigZagLong());
+
+        VariableByteStore small = new VariableByteStore();
+        small.writeZigZagLong(-64);
+        assertEquals(1, small.getArray().length);
+    }
+}
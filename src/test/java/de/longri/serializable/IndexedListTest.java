@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedListTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static TestObjectString create(int i) {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "Value " + i;
+        obj.value2 = i % 3 == 0 ? "" : "Second " + i;
+        obj.value3 = "Third";
+        obj.value4 = "Fourth ÄÖÜ " + i;
+        obj.value5 = String.valueOf(i * 31);
+        obj.value6 = "Six";
+        return obj;
+    }
+
+    @Test
+    void fileRoundTrip() throws IOException, NotImplementedException {
+        for (StoreType type : StoreType.values()) {
+            SerializableArrayList<TestObjectString> list = new SerializableArrayList<>(TestObjectString.class);
+            for (int i = 0; i < 1000; i++) list.add(create(i));
+            Path file = tempDir.resolve("list_" + type + ".idx");
+            list.writeIndexed(file, type);
+
+            for (boolean mapped : new boolean[]{true, false}) {
+                try (IndexedList<TestObjectString> indexed = IndexedList.open(file, TestObjectString.class, mapped)) {
+                    assertEquals(1000, indexed.size());
+                    assertEquals(type, indexed.getStoreType());
+                    assertEquals(mapped, indexed.isMapped());
+                    for (int i : new int[]{999, 0, 500, 1, 998}) {
+                        assertEquals(create(i), indexed.get(i), type + " " + i);
+                    }
+                    TestObjectString reused = new TestObjectString();
+                    indexed.get(42, reused);
+                    assertEquals(create(42), reused);
+                    assertThrows(IndexOutOfBoundsException.class, () -> indexed.get(1000));
+                    assertThrows(IndexOutOfBoundsException.class, () -> indexed.get(-1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void inMemory() throws IOException, NotImplementedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (IndexedListWriter<TestObjectString> writer = new IndexedListWriter<>(Channels.newChannel(out), StoreType.BIT)) {
+            for (int i = 0; i < 10; i++) writer.add(create(i));
+            assertEquals(10, writer.size());
+        }
+        IndexedList<TestObjectString> indexed = new IndexedList<>(out.toByteArray(), TestObjectString.class);
+        assertEquals(10, indexed.size());
+        assertEquals(create(7), indexed.get(7));
+
+        // big element bigger than the write buffer
+        ByteBuffer big = ByteBuffer.allocate(200000);
+        out.reset();
+        try (IndexedListWriter<TestObjectString> writer = new IndexedListWriter<>(Channels.newChannel(out), StoreType.NORMAL)) {
+            writer.add(create(1));
+            writer.add(big);
+            writer.add(create(2));
+        }
+        indexed = new IndexedList<>(out.toByteArray(), TestObjectString.class);
+        assertEquals(200000, indexed.getBytes(1).remaining());
+        assertEquals(create(2), indexed.get(2));
+    }
+
+    @Test
+    void emptyAndCorrupt() throws IOException {
+        Path file = tempDir.resolve("empty.idx");
+        new IndexedListWriter<TestObjectString>(file, StoreType.NORMAL).close();
+        try (IndexedList<TestObjectString> indexed = IndexedList.open(file, TestObjectString.class)) {
+            assertTrue(indexed.isEmpty());
+        }
+
+        SerializableArrayList<TestObjectString> list = new SerializableArrayList<>(TestObjectString.class);
+        list.add(create(1));
+        Path corrupt = tempDir.resolve("corrupt.idx");
+        try {
+            list.writeIndexed(corrupt, StoreType.NORMAL);
+        } catch (NotImplementedException e) {
+            fail(e);
+        }
+        byte[] bytes = Files.readAllBytes(corrupt);
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> new IndexedList<>(truncated, TestObjectString.class));
+        assertThrows(IOException.class, () -> new IndexedList<>(new byte[10], TestObjectString.class));
+    }
+}
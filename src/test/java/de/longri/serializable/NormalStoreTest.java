@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -320,4 +321,30 @@ public class NormalStoreTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testBulkWrite() throws Exception {
+        int[] ints = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 32000};
+        long[] longs = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, System.currentTimeMillis()};
+        byte[] bytes = "bulk write of a byte array".getBytes();
+
+        NormalStore writer = new NormalStore();
+        writer.write(ints);
+        writer.write(longs);
+        writer.write(bytes, 5, 5);
+        writer.write("end");
+
+        NormalStore reader = new NormalStore(writer.getArray());
+        int[] readInts = new int[ints.length];
+        long[] readLongs = new long[longs.length];
+        byte[] readBytes = new byte[5];
+        reader.readInts(readInts);
+        reader.readLongs(readLongs);
+        reader.readBytes(readBytes, 0, 5);
+
+        assertArrayEquals(ints, readInts);
+        assertArrayEquals(longs, readLongs);
+        assertEquals("write", new String(readBytes));
+        assertEquals("end", reader.readString());
+        assertEquals(ints.length * 4 + longs.length * 8 + 5 + 4 + 3, writer.getArray().length);
+    }
+}
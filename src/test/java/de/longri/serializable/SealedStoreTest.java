@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SealedStoreTest {
+
+    private static final int COUNT = 2000;
+    private static final int SECTIONS = 4;
+
+    private static TestObjectString create(int i) {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "value " + i;
+        obj.value7 = Integer.toString(i * 31);
+        return obj;
+    }
+
+    /**
+     * Decodes the sections of one sealed store in parallel, every section starts at a recorded offset.
+     */
+    @Test
+    void parallelSections() throws Exception {
+        List<Supplier<StoreBase>> writers = List.of(NormalStore::new, VariableByteStore::new, ByteBufferStore::new,
+                ZippedNormalStore::new);
+        ExecutorService executor = Executors.newFixedThreadPool(SECTIONS);
+        try {
+            for (Supplier<StoreBase> supplier : writers) {
+                StoreBase writer = supplier.get();
+                int[] offsets = new int[SECTIONS];
+                for (int i = 0; i < COUNT; i++) {
+                    if (i % (COUNT / SECTIONS) == 0) offsets[i / (COUNT / SECTIONS)] = writer.size();
+                    create(i).serialize(writer);
+                }
+                int size = writer.size();
+                SealedStore sealed = writer.seal();
+                assertEquals(size, sealed.size());
+                assertEquals(0, writer.size());
+
+                // the writer continues with its own buffer
+                create(-1).serialize(writer);
+
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int section = 0; section < SECTIONS; section++) {
+                    int first = section * (COUNT / SECTIONS);
+                    int offset = offsets[section];
+                    results.add(executor.submit(() -> {
+                        StoreBase reader = sealed.newReader(offset);
+                        for (int i = first; i < first + COUNT / SECTIONS; i++) {
+                            TestObjectString obj = new TestObjectString();
+                            obj.deserialize(reader);
+                            if (!create(i).equals(obj)) return false;
+                        }
+                        return true;
+                    }));
+                }
+                for (Future<Boolean> result : results) assertTrue(result.get(), supplier.get().getClass().getSimpleName());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void independentReaders() throws Exception {
+        for (StoreBase writer : new StoreBase[]{new BitStore(), new ZippedBitStore(), new BitStoreZippedString()}) {
+            for (int i = 0; i < 100; i++) create(i).serialize(writer);
+            SealedStore sealed = writer.seal();
+            StoreBase first = sealed.newReader();
+            StoreBase second = sealed.newReader();
+            for (int i = 0; i < 100; i++) {
+                TestObjectString a = new TestObjectString();
+                a.deserialize(first);
+                assertEquals(create(i), a);
+                if (i % 2 == 0) {
+                    TestObjectString b = new TestObjectString();
+                    b.deserialize(second);
+                    assertEquals(create(i / 2), b);
+                }
+            }
+        }
+    }
+
+    @Test
+    void readersAreReadOnly() throws Exception {
+        NormalStore writer = new NormalStore();
+        writer.write(42);
+        SealedStore sealed = writer.seal();
+        StoreBase reader = sealed.newReader();
+        assertThrows(IllegalStateException.class, () -> reader.write(1));
+        assertEquals(42, reader.readInt());
+        assertFalse(sealed.getByteBuffer().hasArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> sealed.newReader(5));
+
+        writer.write(7);
+        assertEquals(42, sealed.newReader().readInt());
+
+        assertThrows(NotImplementedException.class, () -> new StreamNormalStore(new ByteArrayOutputStream()).seal());
+    }
+
+    @Test
+    void readersKeepTemporalModes() throws Exception {
+        LocalDateTime dateTime = LocalDateTime.of(2024, 6, 1, 12, 30);
+        LocalDate date = LocalDate.of(2024, 6, 1);
+        Supplier<?>[] writers = {NormalStore::new, VariableByteStore::new, BitStore::new, ByteBufferStore::new};
+        for (Supplier<?> supplier : writers) {
+            StoreBase compact = (StoreBase) supplier.get();
+            compact.setTemporalBase(LocalDateTime.of(2024, 1, 1, 0, 0));
+            compact.write(dateTime);
+            compact.write(date);
+            compact.write((LocalDateTime) null);
+            StoreBase reader = compact.seal().newReader();
+            String kind = compact.getClass().getSimpleName();
+            assertEquals(dateTime, reader.readLocalDateTime(), kind);
+            assertEquals(date, reader.readLocalDate(), kind);
+            assertNull(reader.readLocalDateTime(), kind);
+
+            StoreBase zoned = (StoreBase) supplier.get();
+            zoned.berlinZone = ZoneId.of("America/New_York");
+            zoned.write(dateTime);
+            reader = zoned.seal().newReader();
+            assertEquals(dateTime, reader.readLocalDateTime(), kind);
+            assertEquals(ZoneId.of("America/New_York"), reader.berlinZone, kind);
+        }
+    }
+}
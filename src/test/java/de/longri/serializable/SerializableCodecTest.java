@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializableCodecTest {
+
+    private static TestObjectTaggedV1 createV1() {
+        TestObjectTaggedV1 obj = new TestObjectTaggedV1();
+        obj.intValue = -123456;
+        obj.stringValue = "Tagged ÄÖÜ";
+        obj.boolValue = true;
+        obj.byteValue = -7;
+        obj.shortValue = 1234;
+        obj.longValue = Long.MIN_VALUE + 5;
+        obj.charValue = 'ß';
+        obj.floatValue = 3.25f;
+        obj.doubleValue = -Math.PI;
+        obj.bytes = new byte[]{1, 2, 3, -1};
+        obj.kind = TestObjectTaggedV1.Kind.SECOND;
+        obj.child = new TestObjectTaggedV1.Child();
+        obj.child.name = "child";
+        obj.child.value = 99;
+        obj.removedInV2 = "gone";
+        obj.notSerialized = 5;
+        return obj;
+    }
+
+    private static StoreBase[] stores() {
+        return new StoreBase[]{new NormalStore(), new VariableByteStore(), new BitStore()};
+    }
+
+    private static StoreBase reader(StoreBase writer) throws NotImplementedException {
+        if (writer instanceof BitStore) return new BitStore(writer.getArray());
+        if (writer instanceof VariableByteStore) return new VariableByteStore(writer.getArray());
+        return new NormalStore(writer.getArray());
+    }
+
+    @Test
+    void roundTrip() throws NotImplementedException {
+        for (StoreBase writer : stores()) {
+            TestObjectTaggedV1 obj = createV1();
+            obj.serialize(writer);
+
+            TestObjectTaggedV1 obj2 = new TestObjectTaggedV1();
+            obj2.deserialize(reader(writer));
+            assertEquals(obj.intValue, obj2.intValue);
+            assertEquals(obj.stringValue, obj2.stringValue);
+            assertEquals(obj.boolValue, obj2.boolValue);
+            assertEquals(obj.byteValue, obj2.byteValue);
+            assertEquals(obj.shortValue, obj2.shortValue);
+            assertEquals(obj.longValue, obj2.longValue);
+            assertEquals(obj.charValue, obj2.charValue);
+            assertEquals(obj.floatValue, obj2.floatValue);
+            assertEquals(obj.doubleValue, obj2.doubleValue);
+            assertArrayEquals(obj.bytes, obj2.bytes);
+            assertEquals(obj.kind, obj2.kind);
+            assertEquals("child", obj2.child.name);
+            assertEquals(99, obj2.child.value);
+            assertEquals("gone", obj2.removedInV2);
+            assertEquals(0, obj2.notSerialized);
+        }
+    }
+
+    @Test
+    void nullValues() throws NotImplementedException {
+        for (StoreBase writer : stores()) {
+            TestObjectTaggedV1 obj = new TestObjectTaggedV1();
+            obj.stringValue = null;
+            obj.serialize(writer);
+
+            TestObjectTaggedV1 obj2 = createV1();
+            obj2.deserialize(reader(writer));
+            assertNull(obj2.stringValue);
+            assertNull(obj2.bytes);
+            assertNull(obj2.kind);
+            assertNull(obj2.child);
+        }
+    }
+
+    @Test
+    void versionedTags() throws NotImplementedException {
+        for (StoreBase writer : stores()) {
+            // old payload, new class
+            createV1().serialize(writer);
+            TestObjectTaggedV2 v2 = new TestObjectTaggedV2();
+            v2.deserialize(reader(writer));
+            assertEquals(-123456, v2.intValue);
+            assertEquals("Tagged ÄÖÜ", v2.stringValue);
+            assertEquals(Long.MIN_VALUE + 5, v2.longValue);
+            assertEquals("child", v2.child.name);
+            assertEquals(42, v2.addedInV2);
+            assertNull(v2.otherChild);
+        }
+
+        for (StoreBase writer : stores()) {
+            // new payload, old class
+            TestObjectTaggedV2 v2 = new TestObjectTaggedV2();
+            v2.intValue = 17;
+            v2.addedInV2 = 8;
+            v2.otherChild = new TestObjectTaggedV1.Child();
+            v2.otherChild.name = "skipped";
+            v2.serialize(writer);
+            writer.write(4711);
+
+            StoreBase reader = reader(writer);
+            TestObjectTaggedV1 v1 = new TestObjectTaggedV1();
+            v1.deserialize(reader);
+            assertEquals(17, v1.intValue);
+            assertNull(v1.stringValue);
+            assertEquals(4711, reader.readInt());
+        }
+    }
+
+    @Test
+    void readListUsesCodec() throws NotImplementedException {
+        SerializableArrayList<TestObjectTaggedV1> list = new SerializableArrayList<>(TestObjectTaggedV1.class);
+        for (int i = 0; i < 10; i++) {
+            TestObjectTaggedV1 obj = createV1();
+            obj.intValue = i;
+            list.add(obj);
+        }
+        NormalStore writer = new NormalStore();
+        list.serialize(writer);
+
+        ArrayList<TestObjectTaggedV1> read = new NormalStore(writer.getArray()).readList(TestObjectTaggedV1.class);
+        assertEquals(10, read.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, read.get(i).intValue);
+        }
+        assertEquals(TestObjectTaggedV1_Codec.class, SerializableCodecs.get(TestObjectTaggedV1.class).getClass());
+        assertEquals("TestObjectTaggedV1_Child_Codec", SerializableCodecs.getCodecName(TestObjectTaggedV1.Child.class));
+        assertNotNull(SerializableCodecs.get(TestObject.class).newInstance());
+    }
+
+    @Test
+    void readListPropagatesExceptions() throws NotImplementedException {
+        NormalStore writer = new NormalStore();
+        writer.write(1);
+        assertThrows(IllegalArgumentException.class, () -> new NormalStore(writer.getArray()).readList(NoConstructor.class));
+    }
+
+    static class NoConstructor implements Serializable {
+        NoConstructor(int value) {
+        }
+
+        @Override
+        public void serialize(StoreBase writer) {
+        }
+
+        @Override
+        public void deserialize(StoreBase reader) {
+        }
+    }
+}
@@ -20,6 +20,9 @@ package de.longri.serializable;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.*;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class StoreBaseTest {
@@ -59,4 +62,93 @@ class StoreBaseTest {
         assertEquals(obj, obj2);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void legacyTemporalFormat() throws NotImplementedException {
+        String[] zones = {"Europe/Berlin", "America/New_York", "UTC", "Pacific/Apia", "Australia/Lord_Howe", "Asia/Kolkata"};
+        Random random = new Random(13);
+        for (String zoneName : zones) {
+            ZoneId zone = ZoneId.of(zoneName);
+            NormalStore writer = new NormalStore();
+            writer.berlinZone = zone;
+            LocalDateTime[] times = new LocalDateTime[5000];
+            LocalDate[] dates = new LocalDate[times.length];
+            for (int i = 0; i < times.length; i++) {
+                // half of the values close to 2011-12-30, around the DST transitions of every zone
+                long second = i % 2 == 0 ? 1300000000L + random.nextInt(400000000)
+                        : 1325000000L + random.nextInt(200000) - 100000;
+                times[i] = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+                dates[i] = times[i].toLocalDate();
+                writer.write(times[i]);
+                writer.write(dates[i]);
+
+                // same values as the former atZone() conversion
+                long expected = times[i].atZone(zone).toEpochSecond() * 1000;
+                long expectedDate = dates[i].atStartOfDay(zone).toEpochSecond() * 1000;
+                NormalStore single = new NormalStore();
+                single.berlinZone = zone;
+                single.write(times[i]);
+                single.write(dates[i]);
+                NormalStore check = new NormalStore(single.getArray());
+                assertEquals(expected, check.readLong(), zoneName + " " + times[i]);
+                assertEquals(expectedDate, check.readLong(), zoneName + " " + dates[i]);
+            }
+
+            NormalStore reader = new NormalStore(writer.getArray());
+            reader.berlinZone = zone;
+            for (int i = 0; i < times.length; i++) {
+                LocalDateTime expected = times[i].atZone(zone).toLocalDateTime();
+                assertEquals(expected, reader.readLocalDateTime(), zoneName);
+                assertEquals(dates[i].atStartOfDay(zone).toLocalDate(), reader.readLocalDate(), zoneName);
+            }
+        }
+
+        // millisecond values of other writers
+        NormalStore writer = new NormalStore();
+        long[] millis = {0, 1, 999, -1000, -999, 1700000000123L, -86400001};
+        for (long value : millis) writer.write(value);
+        NormalStore reader = new NormalStore(writer.getArray());
+        for (long value : millis) {
+            assertEquals(value == -1 ? null : Instant.ofEpochMilli(value).atZone(reader.berlinZone).toLocalDateTime(),
+                    reader.readLocalDateTime());
+        }
+    }
+
+    @Test
+    void compactTemporal() throws NotImplementedException {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime[] times = {base, base.plusSeconds(1), base.minusSeconds(1), null, base.plusDays(400).withNano(5000),
+                LocalDateTime.of(1900, 3, 30, 2, 30), LocalDateTime.of(2024, 3, 31, 2, 30)};
+        LocalDate[] dates = {base.toLocalDate(), null, LocalDate.of(2024, 1, 2), LocalDate.of(1999, 12, 31)};
+
+        StoreBase[] writers = {new NormalStore(), new VariableByteStore(), new BitStore()};
+        for (StoreBase writer : writers) {
+            writer.setTemporalBase(base);
+            assertEquals(base, writer.getTemporalBase());
+            for (LocalDateTime time : times) writer.write(time);
+            for (LocalDate date : dates) writer.write(date);
+
+            byte[] bytes = writer.getArray();
+            StoreBase reader = writer instanceof BitStore ? new BitStore(bytes)
+                    : writer instanceof VariableByteStore ? new VariableByteStore(bytes) : new NormalStore(bytes);
+            reader.setTemporalBase(base);
+            for (LocalDateTime time : times) {
+                assertEquals(time == null ? null : time.withNano(0), reader.readLocalDateTime(), writer.getClass().getSimpleName());
+            }
+            for (LocalDate date : dates) assertEquals(date, reader.readLocalDate());
+        }
+
+        // a day of timestamps in seconds takes at most 3 bytes each instead of 8
+        VariableByteStore plain = new VariableByteStore();
+        VariableByteStore compact = new VariableByteStore();
+        compact.setTemporalBase(base);
+        for (int i = 0; i < 86400; i += 60) {
+            plain.write(base.plusSeconds(i));
+            compact.write(base.plusSeconds(i));
+        }
+        assertTrue(compact.getArray().length * 2 < plain.getArray().length);
+
+        compact.setTemporalBase(null);
+        assertNull(compact.getTemporalBase());
+    }
+}
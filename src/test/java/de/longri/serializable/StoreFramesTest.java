@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreFramesTest {
+
+    private static byte[] frames(int count, List<Integer> offsets) throws IOException, NotImplementedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            offsets.add(out.size());
+            NormalStore store = new NormalStore();
+            store.write(i);
+            store.write("frame " + i);
+            StoreFrames.writeFrame(store, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Integer> readAll(StoreFrames.Reader reader) throws IOException, NotImplementedException {
+        List<Integer> values = new ArrayList<>();
+        StoreBase store;
+        while ((store = reader.nextStore(StoreType.NORMAL)) != null) {
+            int value = store.readInt();
+            assertEquals("frame " + value, store.readString());
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Delivers the bytes in small pieces, like a socket.
+     */
+    private static InputStream trickle(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        byte[] data = frames(1000, new ArrayList<>());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) expected.add(i);
+
+        assertEquals(expected, readAll(new StoreFrames.Reader(ByteBuffer.wrap(data))));
+        StoreFrames.Reader reader = new StoreFrames.Reader(trickle(data));
+        assertEquals(expected, readAll(reader));
+        assertEquals(0, reader.getCorruptFrames());
+        assertEquals(0, reader.getSkippedBytes());
+
+        NormalStore store = new NormalStore();
+        store.write(42);
+        store.write("frame 42");
+        byte[] frame = StoreFrames.frame(store);
+        assertEquals(List.of(42), readAll(new StoreFrames.Reader(ByteBuffer.wrap(frame))));
+    }
+
+    @Test
+    void skipsCorruptFramesAndResyncs() throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        byte[] data = frames(10, offsets);
+        // flip a payload byte of frame 2, break the length of frame 5 and the magic of frame 7
+        data[offsets.get(2) + StoreFrames.HEADER_SIZE + 1] ^= 0x10;
+        data[offsets.get(5) + 5] = 0x7F;
+        data[offsets.get(7)] = 0;
+
+        ByteArrayOutputStream withGarbage = new ByteArrayOutputStream();
+        withGarbage.write(new byte[]{1, 2, 3, 0x4C, 0x53});
+        withGarbage.write(data);
+        // truncated last frame
+        withGarbage.write(data, offsets.get(9), 10);
+        byte[] damaged = withGarbage.toByteArray();
+
+        List<Integer> expected = List.of(0, 1, 3, 4, 6, 8, 9);
+        StoreFrames.Reader reader = new StoreFrames.Reader(ByteBuffer.wrap(damaged));
+        assertEquals(expected, readAll(reader));
+        assertEquals(2, reader.getCorruptFrames());
+        assertTrue(reader.getSkippedBytes() > 0);
+
+        reader = new StoreFrames.Reader(trickle(damaged), 1024);
+        assertEquals(expected, readAll(reader));
+        assertEquals(2, reader.getCorruptFrames());
+    }
+
+    @Test
+    void damagedLengthIsRejectedBeforeThePayload() throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        byte[] data = frames(3, offsets);
+        // a plausible length below the maximum, without the header checksum the reader would wait for 1 MB
+        data[offsets.get(1) + 5] = 0x10;
+
+        // the stream never ends, reading past the data fails the test
+        InputStream endless = new FilterInputStream(trickle(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read < 0) throw new IOException("read past the frames");
+                return read;
+            }
+        };
+        StoreFrames.Reader reader = new StoreFrames.Reader(endless);
+        assertEquals(0, reader.nextStore(StoreType.NORMAL).readInt());
+        assertEquals(2, reader.nextStore(StoreType.NORMAL).readInt());
+        assertEquals(1, reader.getCorruptFrames());
+    }
+
+    @Test
+    void strict() throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        byte[] data = frames(2, offsets);
+        data[offsets.get(1) + StoreFrames.HEADER_SIZE] ^= 1;
+        StoreFrames.Reader reader = new StoreFrames.Reader(new ByteArrayInputStream(data));
+        assertNotNull(reader.nextStrict());
+        assertThrows(IOException.class, reader::nextStrict);
+        assertThrows(EOFException.class, reader::nextStrict);
+    }
+}
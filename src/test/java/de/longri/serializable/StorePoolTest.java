@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorePoolTest {
+
+    private static TestObjectString create(String value) {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = value;
+        obj.value5 = value + value;
+        return obj;
+    }
+
+    @Test
+    void reset() throws NotImplementedException {
+        StoreBase[] stores = {new NormalStore(), new VariableByteStore(), new BitStore(), new ByteBufferStore(),
+                new ZippedNormalStore(), new ZippedBitStore(), new BitStoreZippedString()};
+        for (StoreBase store : stores) {
+            create("first value which is longer").serialize(store);
+            ByteBuffer firstBuffer = store.getByteBuffer();
+            int firstSize = firstBuffer.remaining();
+            store.reset();
+            assertEquals(0, store.size());
+            create("second").serialize(store);
+
+            assertNotEquals(firstSize, store.getByteBuffer().remaining(), store.getClass().getSimpleName());
+            StoreBase expected = newStore(store);
+            create("second").serialize(expected);
+            assertArrayEquals(expected.getArray(), store.getArray(), store.getClass().getSimpleName());
+        }
+    }
+
+    private static StoreBase newStore(StoreBase store) {
+        try {
+            return store.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void resetReadIndex() throws NotImplementedException {
+        NormalStore store = new NormalStore();
+        store.write(17);
+        store.write("abc");
+        assertEquals(17, store.readInt());
+        store.reset();
+        store.write(4711);
+        assertEquals(4711, store.readInt());
+
+        BitStore bitStore = new BitStore();
+        bitStore.write(true);
+        bitStore.write(12345L);
+        assertTrue(bitStore.readBool());
+        bitStore.reset();
+        bitStore.write(-5);
+        assertEquals(-5, bitStore.readInt());
+    }
+
+    @Test
+    void getArrayIsNotOverwritten() throws NotImplementedException {
+        NormalStore store = new NormalStore();
+        store.write(1);
+        store.write(2);
+        byte[] array = store.getArray();
+        byte[] copy = array.clone();
+        store.reset();
+        store.write(3);
+        store.write(4);
+        assertArrayEquals(copy, array);
+        assertEquals(3, new NormalStore(store.getArray()).readInt());
+    }
+
+    @Test
+    void pool() throws NotImplementedException {
+        StorePool<BitStore> pool = new StorePool<>(BitStore::new, 2, 100000);
+        BitStore store = pool.borrow();
+        store.setStringDictionary(new StringDictionary());
+        store.setTemporalBase(LocalDateTime.now());
+        store.write("value");
+        pool.release(store);
+        assertEquals(1, pool.size());
+
+        BitStore again = pool.borrow();
+        assertSame(store, again);
+        assertEquals(0, pool.size());
+        assertEquals(0, again.size());
+        assertNull(again.getStringDictionary());
+        assertNull(again.getTemporalBase());
+
+        // full pool and too big stores are dropped
+        pool.release(again);
+        pool.release(new BitStore());
+        pool.release(new BitStore());
+        assertEquals(2, pool.size());
+        BitStore big = new BitStore();
+        big.write(new byte[200000], 0, 200000);
+        StorePool<BitStore> small = new StorePool<>(BitStore::new, 2, 100000);
+        small.release(big);
+        assertEquals(0, small.size());
+    }
+
+    @Test
+    void steadyStateAllocation() throws NotImplementedException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        TestObjectString obj = create("Credentials");
+        long sum = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < 1000; i++) {
+                NormalStore store = StorePool.NORMAL.borrow();
+                obj.serialize(store);
+                sum += store.size();
+                StorePool.NORMAL.release(store);
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+            if (round == 1) assertTrue(allocated < 1000 * 1000, "allocated " + allocated + " bytes");
+        }
+        assertTrue(sum > 0);
+    }
+}
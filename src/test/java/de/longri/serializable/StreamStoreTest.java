@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamStoreTest {
+
+    private static final int COUNT = 20000;
+
+    private TestObjectString createObject(int i) {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "Object " + i;
+        obj.value2 = "Umlaute äöü ß";
+        obj.value6 = "Java is a general-purpose computer programming language that is concurrent, class-based, object-oriented, and specifically designed to have as few implementation dependencies as possible.";
+        return obj;
+    }
+
+    private void writeAndRead(Function<ByteArrayOutputStream, StoreBase> writerFactory, Supplier<StoreBase> arrayWriter,
+                              Function<byte[], StoreBase> readerFactory) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StoreBase writer = writerFactory.apply(out);
+        StoreBase arrayStore = arrayWriter.get();
+        for (int i = 0; i < COUNT; i++) {
+            TestObjectString obj = createObject(i);
+            obj.serialize(writer);
+            obj.serialize(arrayStore);
+            writer.write(i);
+            arrayStore.write(i);
+            writer.write((long) i << 32);
+            arrayStore.write((long) i << 32);
+        }
+        ((AutoCloseable) writer).close();
+
+        // same wire format as the array based store
+        assertArrayEquals(arrayStore.getArray(), out.toByteArray());
+
+        StoreBase reader = readerFactory.apply(out.toByteArray());
+        for (int i = 0; i < COUNT; i++) {
+            TestObjectString obj = new TestObjectString();
+            obj.deserialize(reader);
+            assertEquals(createObject(i), obj);
+            assertEquals(i, reader.readInt());
+            assertEquals((long) i << 32, reader.readLong());
+        }
+    }
+
+    @Test
+    void normalStore() throws Exception {
+        writeAndRead(out -> new StreamNormalStore(out, 1024), NormalStore::new,
+                bytes -> new StreamNormalStore(new ByteArrayInputStream(bytes), 1024));
+    }
+
+    @Test
+    void variableByteStore() throws Exception {
+        writeAndRead(out -> new StreamVariableByteStore(out, 1024), VariableByteStore::new,
+                bytes -> new StreamVariableByteStore(new ByteArrayInputStream(bytes), 1024));
+    }
+
+    @Test
+    void channels() throws Exception {
+        writeAndRead(out -> new StreamVariableByteStore(Channels.newChannel(out), 100), VariableByteStore::new,
+                bytes -> new StreamVariableByteStore(Channels.newChannel(new ByteArrayInputStream(bytes)), 100));
+    }
+
+    @Test
+    void serializableArrayList() throws Exception {
+        SerializableArrayList<TestObject> list = new SerializableArrayList<>(TestObject.class);
+        for (int i = 0; i < COUNT; i++) {
+            TestObject obj = new TestObject();
+            obj.IntegerValue1 = i;
+            obj.IntegerValue2 = -i;
+            obj.bool2 = i % 2 == 0;
+            list.add(obj);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamVariableByteStore writer = new StreamVariableByteStore(out, 512)) {
+            list.serialize(writer);
+        }
+
+        SerializableArrayList<TestObject> list2 = new SerializableArrayList<>(TestObject.class);
+        list2.deserialize(new StreamVariableByteStore(new ByteArrayInputStream(out.toByteArray()), 512));
+        assertEquals(COUNT, list2.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(list.get(i), list2.get(i));
+        }
+    }
+
+    @Test
+    void endOfStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamNormalStore writer = new StreamNormalStore(out)) {
+            writer.write(42);
+            assertThrows(NotImplementedException.class, writer::getArray);
+        }
+
+        StreamNormalStore reader = new StreamNormalStore(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(42, reader.readInt());
+        assertThrows(java.io.UncheckedIOException.class, reader::readInt);
+    }
+
+    /**
+     * Hands out the bytes like a socket and fails instead of blocking once they are consumed.
+     */
+    private static final class SocketLikeInputStream extends InputStream {
+        private final byte[] bytes;
+        private int pos;
+
+        SocketLikeInputStream(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos == bytes.length) throw new AssertionError("the reader waits for bytes the peer never sends");
+            int n = Math.min(len, Math.min(3, bytes.length - pos));
+            System.arraycopy(bytes, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    @Test
+    void varintsDontReadAhead() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamVariableByteStore writer = new StreamVariableByteStore(out)) {
+            writer.write(1);
+            writer.writeUnsignedInt(300);
+            writer.writeZigZagLong(-2);
+            writer.write(5);
+        }
+        StreamVariableByteStore reader = new StreamVariableByteStore(new SocketLikeInputStream(out.toByteArray()));
+        assertEquals(1, reader.readInt());
+        assertEquals(300, reader.readUnsignedInt());
+        assertEquals(-2, reader.readZigZagLong());
+        assertEquals(5, reader.readInt());
+    }
+
+    @Test
+    void truncatedStreamThrowsEOF() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamNormalStore writer = new StreamNormalStore(out)) {
+            writer.write(7);
+            writer.write(123456789L);
+        }
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), 4 + 5);
+        StreamNormalStore reader = new StreamNormalStore(new ByteArrayInputStream(truncated));
+        assertEquals(7, reader.readInt());
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, reader::readLong);
+        assertInstanceOf(EOFException.class, e.getCause());
+
+        out = new ByteArrayOutputStream();
+        try (StreamVariableByteStore writer = new StreamVariableByteStore(out)) {
+            writer.writeUnsignedInt(1 << 20);
+        }
+        truncated = Arrays.copyOf(out.toByteArray(), 2);
+        StreamVariableByteStore varReader = new StreamVariableByteStore(new ByteArrayInputStream(truncated));
+        e = assertThrows(UncheckedIOException.class, varReader::readUnsignedInt);
+        assertInstanceOf(EOFException.class, e.getCause());
+    }
+
+    @Test
+    void resetDrainsWritersAndRejectsReaders() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamNormalStore writer = new StreamNormalStore(out)) {
+            writer.write(1);
+            writer.reset();
+            writer.write(2);
+            writer.clear();
+            writer.write(3);
+        }
+        StreamNormalStore reader = new StreamNormalStore(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, reader.readInt());
+        assertThrows(IllegalStateException.class, reader::reset);
+        assertThrows(IllegalStateException.class, reader::clear);
+        assertEquals(2, reader.readInt());
+        assertEquals(3, reader.readInt());
+
+        out = new ByteArrayOutputStream();
+        try (StreamVariableByteStore writer = new StreamVariableByteStore(out)) {
+            writer.writeUnsignedInt(300);
+            writer.clear();
+            writer.writeUnsignedInt(400);
+        }
+        StreamVariableByteStore varReader = new StreamVariableByteStore(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(300, varReader.readUnsignedInt());
+        assertThrows(IllegalStateException.class, varReader::reset);
+        assertEquals(400, varReader.readUnsignedInt());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    private static final String[] VALUES = {"smb://server/share", "user", null, "", "smb://server/share", "Ä€ß",
+            "user", null, "path/to/file.txt", "user"};
+
+    private static StoreBase[] writers() {
+        return new StoreBase[]{new NormalStore(), new VariableByteStore(), new BitStore(),
+                new ByteBufferStore(), new BitStoreZippedString()};
+    }
+
+    private static StoreBase reader(StoreBase writer) throws NotImplementedException {
+        byte[] array = writer.getArray();
+        if (writer instanceof BitStoreZippedString) return new BitStoreZippedString(array);
+        if (writer instanceof BitStore) return new BitStore(array);
+        if (writer instanceof VariableByteStore) return new VariableByteStore(array);
+        if (writer instanceof ByteBufferStore) return new ByteBufferStore(array);
+        return new NormalStore(array);
+    }
+
+    @Test
+    void roundTrip() throws NotImplementedException {
+        for (StoreBase writer : writers()) {
+            writer.setStringDictionary(new StringDictionary());
+            for (String value : VALUES) {
+                writer.write(value);
+                writer.write(7);
+            }
+
+            StoreBase reader = reader(writer);
+            reader.setStringDictionary(new StringDictionary());
+            for (String value : VALUES) {
+                String read = reader.readString();
+                if (value == null || value.isEmpty()) {
+                    assertTrue(read == null || read.isEmpty(), writer.getClass().getSimpleName());
+                } else {
+                    assertEquals(value, read, writer.getClass().getSimpleName());
+                }
+                assertEquals(7, reader.readInt());
+            }
+            assertEquals(5, writer.getStringDictionary().size());
+        }
+    }
+
+    @Test
+    void smallerWithRepetitiveStrings() throws NotImplementedException {
+        StoreBase[] plainWriters = writers();
+        StoreBase[] dictionaryWriters = writers();
+        for (int n = 0; n < plainWriters.length; n++) {
+            StoreBase plain = plainWriters[n];
+            StoreBase dictionary = dictionaryWriters[n];
+            dictionary.setStringDictionary(new StringDictionary());
+            for (int i = 0; i < 1000; i++) {
+                plain.write("Credentials/user" + (i % 10));
+                dictionary.write("Credentials/user" + (i % 10));
+            }
+            assertTrue(dictionary.getArray().length * 4 < plain.getArray().length, plain.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void reuseAcrossStores() throws NotImplementedException {
+        StringDictionary writeDictionary = new StringDictionary();
+        NormalStore first = new NormalStore();
+        first.setStringDictionary(writeDictionary);
+        first.write("shared");
+        NormalStore second = new NormalStore();
+        second.setStringDictionary(writeDictionary);
+        second.write("shared");
+        second.write("new");
+
+        // the second store only contains a reference to "shared"
+        NormalStore plainSecond = new NormalStore(second.getArray());
+        assertEquals(1, plainSecond.readInt());
+
+        StringDictionary readDictionary = new StringDictionary();
+        NormalStore firstReader = new NormalStore(first.getArray());
+        firstReader.setStringDictionary(readDictionary);
+        assertEquals("shared", firstReader.readString());
+        NormalStore secondReader = new NormalStore(second.getArray());
+        secondReader.setStringDictionary(readDictionary);
+        assertEquals("shared", secondReader.readString());
+        assertEquals("new", secondReader.readString());
+
+        readDictionary.clear();
+        assertEquals(0, readDictionary.size());
+        NormalStore unknownReference = new NormalStore(second.getArray());
+        unknownReference.setStringDictionary(readDictionary);
+        assertThrows(IllegalArgumentException.class, unknownReference::readString);
+    }
+
+    @Test
+    void fullDictionary() throws NotImplementedException {
+        VariableByteStore writer = new VariableByteStore();
+        writer.setStringDictionary(new StringDictionary(2));
+        String[] values = {"a", "b", "c", "a", "c", "b", "c"};
+        for (String value : values) writer.write(value);
+        assertEquals(2, writer.getStringDictionary().size());
+
+        VariableByteStore reader = new VariableByteStore(writer.getArray());
+        reader.setStringDictionary(new StringDictionary(2));
+        for (String value : values) assertEquals(value, reader.readString());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+/**
+ * Version 1 of a generated codec test object, see {@link TestObjectTaggedV2}.
+ */
+@Serialized
+public class TestObjectTaggedV1 implements Serializable {
+
+    enum Kind {FIRST, SECOND}
+
+    @Serialized
+    static class Child {
+        @Tag(1)
+        String name;
+        @Tag(2)
+        long value;
+    }
+
+    @Tag(1)
+    int intValue;
+    @Tag(2)
+    String stringValue = "default";
+    @Tag(3)
+    boolean boolValue;
+    @Tag(4)
+    byte byteValue;
+    @Tag(5)
+    short shortValue;
+    @Tag(6)
+    long longValue;
+    @Tag(7)
+    char charValue;
+    @Tag(8)
+    float floatValue;
+    @Tag(9)
+    double doubleValue;
+    @Tag(10)
+    byte[] bytes;
+    @Tag(11)
+    Kind kind;
+    @Tag(12)
+    Child child;
+    @Tag(13)
+    String removedInV2;
+
+    int notSerialized;
+
+    @Override
+    public void serialize(StoreBase writer) throws NotImplementedException {
+        TestObjectTaggedV1_Codec.INSTANCE.write(this, writer);
+    }
+
+    @Override
+    public void deserialize(StoreBase reader) throws NotImplementedException {
+        TestObjectTaggedV1_Codec.INSTANCE.read(this, reader);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+/**
+ * Version 2 of {@link TestObjectTaggedV1}: tag 13 is removed, tag 14 and 15 are new.
+ */
+@Serialized
+public class TestObjectTaggedV2 implements Serializable {
+
+    @Tag(1)
+    int intValue;
+    @Tag(2)
+    String stringValue;
+    @Tag(6)
+    long longValue;
+    @Tag(12)
+    TestObjectTaggedV1.Child child;
+    @Tag(14)
+    int addedInV2 = 42;
+    @Tag(15)
+    TestObjectTaggedV1.Child otherChild;
+
+    @Override
+    public void serialize(StoreBase writer) throws NotImplementedException {
+        TestObjectTaggedV2_Codec.INSTANCE.write(this, writer);
+    }
+
+    @Override
+    public void deserialize(StoreBase reader) throws NotImplementedException {
+        TestObjectTaggedV2_Codec.INSTANCE.read(this, reader);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransportEncodingTest {
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void base64MatchesJdk() throws IOException {
+        for (int length : new int[]{0, 1, 2, 3, 4, 5, 100, 3 * 1024, 20000, 20001}) {
+            byte[] bytes = random(length);
+            ByteBuffer src = ByteBuffer.wrap(bytes);
+
+            StringBuilder sb = new StringBuilder();
+            TransportEncoding.encodeBase64(src, sb, false);
+            assertEquals(Base64.getEncoder().encodeToString(bytes), sb.toString());
+            assertEquals(sb.length(), TransportEncoding.base64Length(length, false));
+            assertEquals(0, src.position());
+
+            StringWriter writer = new StringWriter();
+            TransportEncoding.encodeBase64(src, writer, true);
+            String url = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+            assertEquals(url, writer.toString());
+            assertEquals(url.length(), TransportEncoding.base64Length(length, true));
+
+            CharBuffer chars = CharBuffer.allocate(TransportEncoding.base64Length(length, true));
+            TransportEncoding.encodeBase64(src, chars, true);
+            assertFalse(chars.hasRemaining());
+            chars.flip();
+
+            ByteBuffer ascii = ByteBuffer.allocateDirect(TransportEncoding.base64Length(length, false));
+            TransportEncoding.encodeBase64(src, ascii, false);
+            ascii.flip();
+            assertEquals(sb.toString(), StandardCharsets.US_ASCII.decode(ascii).toString());
+
+            assertArrayEquals(bytes, TransportEncoding.decodeBase64(sb.toString()));
+            assertArrayEquals(bytes, TransportEncoding.decodeBase64(url));
+            assertArrayEquals(bytes, TransportEncoding.decodeBase64(chars));
+            assertArrayEquals(bytes, TransportEncoding.decodeBase64(new StringBuilder(sb)));
+
+            ByteBuffer dst = ByteBuffer.allocate(length + 3);
+            assertEquals(length, TransportEncoding.decodeBase64(chars, dst));
+            assertArrayEquals(bytes, java.util.Arrays.copyOf(dst.array(), dst.position()));
+        }
+    }
+
+    @Test
+    void invalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> TransportEncoding.decodeBase64(new StringBuilder("abcde")));
+        assertThrows(IllegalArgumentException.class, () -> TransportEncoding.decodeBase64(new StringBuilder("ab*d")));
+        assertThrows(IllegalArgumentException.class, () -> TransportEncoding.decodeHex("abc"));
+        assertThrows(IllegalArgumentException.class, () -> TransportEncoding.decodeHex("zz"));
+        assertThrows(IllegalArgumentException.class,
+                () -> TransportEncoding.decodeBase64("AAAA", ByteBuffer.allocate(2)));
+    }
+
+    @Test
+    void hex() throws IOException {
+        byte[] bytes = random(20001);
+        StringBuilder sb = new StringBuilder();
+        TransportEncoding.encodeHex(ByteBuffer.wrap(bytes), sb);
+        assertEquals(HexFormat.of().formatHex(bytes), sb.toString());
+        assertArrayEquals(bytes, TransportEncoding.decodeHex(sb));
+        assertArrayEquals(bytes, TransportEncoding.decodeHex(sb.toString().toUpperCase()));
+    }
+
+    @Test
+    void storeRoundTrip() throws Exception {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "transport";
+        obj.value5 = "encoding";
+
+        StoreBase[] stores = {new NormalStore(), new VariableByteStore(), new BitStore(),
+                new ZippedNormalStore(), new ZippedBitStore(), new ZippedVariableByteStore()};
+        for (StoreBase store : stores) {
+            obj.serialize(store);
+            StringBuilder sb = new StringBuilder();
+            store.writeBase64(sb, true);
+            assertEquals(store.getBase64Length(true), sb.length());
+
+            StoreBase reader = store.getClass().getConstructor(String.class).newInstance(sb.toString());
+            TestObjectString read = new TestObjectString();
+            read.deserialize(reader);
+            assertEquals(obj, read, store.getClass().getSimpleName());
+
+            reader = store.getClass().getConstructor(String.class).newInstance(store.getBase64String());
+            read = new TestObjectString();
+            read.deserialize(reader);
+            assertEquals(obj, read, store.getClass().getSimpleName());
+
+            assertArrayEquals(store.getArray(), TransportEncoding.decodeHex(store.getHexString()));
+        }
+    }
+
+    @Test
+    void streaming() throws NotImplementedException, IOException {
+        ByteArrayOutputStream socket = new ByteArrayOutputStream();
+        try (OutputStream out = TransportEncoding.base64OutputStream(socket, true)) {
+            StreamNormalStore writer = new StreamNormalStore(out);
+            for (int i = 0; i < 10000; i++) writer.write(i);
+            writer.flush();
+        }
+        String text = socket.toString(StandardCharsets.US_ASCII);
+        assertFalse(text.contains("+") || text.contains("/") || text.contains("="));
+
+        InputStream in = TransportEncoding.base64InputStream(new ByteArrayInputStream(socket.toByteArray()), true);
+        StreamNormalStore reader = new StreamNormalStore(in);
+        for (int i = 0; i < 10000; i++) assertEquals(i, reader.readInt());
+    }
+}
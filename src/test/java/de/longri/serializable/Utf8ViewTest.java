@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8ViewTest {
+
+    private static final String[] VALUES = {"/data/images/a.png", "", "/data/text.txt", "Grüße/äöü", "/data/images/b.png"};
+
+    private static void write(StoreBase store) throws NotImplementedException {
+        for (String value : VALUES) {
+            store.write(value);
+            store.write(value.length());
+        }
+    }
+
+    private static void assertViews(StoreBase store) throws NotImplementedException {
+        Utf8View prefix = Utf8View.of("/data/images");
+        List<String> found = new ArrayList<>();
+        for (String value : VALUES) {
+            Utf8View view = store.readStringView();
+            assertTrue(view.contentEquals(value), value);
+            assertEquals(Utf8View.of(value), view);
+            assertEquals(Utf8View.of(value).hashCode(), view.hashCode());
+            assertEquals(value.length(), view.length());
+            if (view.startsWith(prefix)) found.add(view.toString());
+            assertEquals(value.length(), store.readInt());
+        }
+        assertEquals(List.of(VALUES[0], VALUES[4]), found);
+    }
+
+    @Test
+    void storeViews() throws Exception {
+        List<Function<byte[], StoreBase>> readers = List.of(NormalStore::new, VariableByteStore::new,
+                b -> new ByteBufferStore(ByteBuffer.wrap(b)), BitStore::new);
+        List<StoreBase> writers = List.of(new NormalStore(), new VariableByteStore(), new NormalStore(), new BitStore());
+        for (int i = 0; i < writers.size(); i++) {
+            StoreBase writer = writers.get(i);
+            write(writer);
+            assertViews(readers.get(i).apply(writer.getArray()));
+        }
+
+        NormalStore dictionaryWriter = new NormalStore();
+        dictionaryWriter.setStringDictionary(new StringDictionary());
+        write(dictionaryWriter);
+        NormalStore dictionaryReader = new NormalStore(dictionaryWriter.getArray());
+        dictionaryReader.setStringDictionary(new StringDictionary());
+        assertViews(dictionaryReader);
+    }
+
+    @Test
+    void streamViewsAreDetached() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamNormalStore writer = new StreamNormalStore(out, 16)) {
+            write(writer);
+        }
+        StreamNormalStore reader = new StreamNormalStore(new ByteArrayInputStream(out.toByteArray()), 16);
+        List<Utf8View> views = new ArrayList<>();
+        for (int i = 0; i < VALUES.length; i++) {
+            views.add(reader.readStringView());
+            reader.readInt();
+        }
+        for (int i = 0; i < VALUES.length; i++) assertEquals(VALUES[i], views.get(i).toString());
+    }
+
+    @Test
+    void view() {
+        byte[] bytes = "xx/data/ä".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        Utf8View view = Utf8View.wrap(bytes, 2, bytes.length - 2);
+        assertFalse(view.isAscii());
+        assertEquals(8, view.byteLength());
+        assertEquals(7, view.length());
+        assertEquals('ä', view.charAt(6));
+        assertTrue(view.endsWith(Utf8View.of("/ä")));
+        assertTrue(view.compareTo(Utf8View.of("/data/a")) > 0);
+        assertTrue(view.compareTo(Utf8View.of("/data/ö")) < 0);
+
+        Utf8View ascii = Utf8View.wrap(bytes, 2, 5);
+        assertEquals("/data", ascii.toString());
+        assertEquals("dat", ascii.subSequence(1, 4).toString());
+        assertEquals(ascii, ascii.copy());
+        assertFalse(ascii.contentEquals("/date"));
+    }
+}
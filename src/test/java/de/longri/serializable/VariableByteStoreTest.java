@@ -319,4 +319,36 @@ public class VariableByteStoreTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testVariableByteEncoding() throws Exception {
+        int[] values = {0, 1, -1, 63, -63, 64, -64, 8191, 8192, -8192, 1048575, 1048576, 134217727, 134217728,
+                -134217728, Integer.MAX_VALUE, Integer.MIN_VALUE + 1};
+
+        VariableByteStore writer = new VariableByteStore();
+        int expectedLength = 0;
+        for (int value : values) {
+            writer.write(value);
+            expectedLength += VariableByteStore.getVariableByteSigned(value).length;
+            if (value >= 0) {
+                writer.writeUnsignedInt(value);
+                expectedLength += VariableByteStore.getVariableByteUnsigned(value).length;
+            }
+        }
+
+        byte[] array = writer.getArray();
+        assertEquals(expectedLength, array.length);
+
+        VariableByteStore reader = new VariableByteStore(array);
+        int index = 0;
+        for (int value : values) {
+            byte[] expected = VariableByteStore.getVariableByteSigned(value);
+            for (byte b : expected) assertEquals(b, array[index++]);
+            assertEquals(value, reader.readInt());
+            if (value >= 0) {
+                expected = VariableByteStore.getVariableByteUnsigned(value);
+                for (byte b : expected) assertEquals(b, array[index++]);
+                assertEquals(value, reader.readUnsignedInt());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2024 Longri
+ *
+ * This file is part of fxutils.
+ *
+ * fxutils is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * fxutils is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with fxutils. If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.longri.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipStageTest {
+
+    private byte[] createData(int length) {
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            // compressible, but not trivial
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    @Test
+    void compressDecompress() {
+        for (int length : new int[]{0, 1, 100, 70000, 1000000}) {
+            byte[] data = createData(length);
+            byte[] compressed = ZipStage.compress(data, 0, data.length, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+            assertArrayEquals(data, ZipStage.decompress(compressed));
+
+            ZipStage.Inflated inflated = ZipStage.inflate(compressed, 0, compressed.length);
+            assertEquals(length, inflated.length);
+        }
+    }
+
+    @Test
+    void levels() {
+        byte[] data = createData(100000);
+        byte[] stored = ZipStage.compress(data, 0, data.length, Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        byte[] best = ZipStage.compress(data, 0, data.length, Deflater.BEST_COMPRESSION, Deflater.FILTERED);
+        assertTrue(stored.length > data.length);
+        assertTrue(best.length < data.length / 2);
+        assertArrayEquals(data, ZipStage.decompress(stored));
+        assertArrayEquals(data, ZipStage.decompress(best));
+    }
+
+    @Test
+    void stream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamVariableByteStore writer = new StreamVariableByteStore(ZipStage.deflate(out), 1024)) {
+            for (int i = 0; i < 100000; i++) {
+                writer.write(i);
+                writer.write("value " + (i % 100));
+            }
+        }
+
+        try (InputStream in = ZipStage.inflate(new ByteArrayInputStream(out.toByteArray()))) {
+            StreamVariableByteStore reader = new StreamVariableByteStore(in, 1024);
+            for (int i = 0; i < 100000; i++) {
+                assertEquals(i, reader.readInt());
+                assertEquals("value " + (i % 100), reader.readString());
+            }
+        }
+    }
+
+    @Test
+    void zippedStores() throws Exception {
+        TestObjectString obj = new TestObjectString();
+        obj.value1 = "Test";
+        obj.value6 = new String(createData(50000));
+
+        ZippedNormalStore writer = new ZippedNormalStore();
+        writer.setCompressionLevel(Deflater.BEST_SPEED);
+        writer.setCompressionStrategy(Deflater.HUFFMAN_ONLY);
+        obj.serialize(writer);
+
+        byte[] array = writer.getArray();
+        TestObjectString obj2 = new TestObjectString();
+        obj2.deserialize(new ZippedNormalStore(array));
+        assertEquals(obj, obj2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertArrayEquals(array, out.toByteArray());
+
+        ZippedBitStore bitWriter = new ZippedBitStore();
+        obj.serialize(bitWriter);
+        TestObjectString obj3 = new TestObjectString();
+        obj3.deserialize(new ZippedBitStore(bitWriter.getArray()));
+        assertEquals(obj, obj3);
+    }
+}